@@ -0,0 +1,52 @@
+package com.tinyml.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, but writes the results
+ * as JSON to jmh-result.json unless another format or file is given, so runs
+ * of different versions can be compared.
+ * <p>
+ * Build with {@code mvn package} from the project directory, then run for
+ * example:
+ *
+ * <pre>
+ * java -jar tinyml-bench/target/benchmarks.jar MatBenchmark -p shape=10000x100
+ * </pre>
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+		if (cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+				|| cmd.shouldListResultFormats()) {
+			// the plain JMH launcher knows how to list
+			Main.main(args);
+			return;
+		}
+
+		OptionsBuilder opts = new OptionsBuilder();
+		opts.parent(cmd);
+		if (cmd.getResultFormat().hasValue() == false) {
+			opts.resultFormat(ResultFormatType.JSON);
+		}
+		if (cmd.getResult().hasValue() == false) {
+			opts.result("jmh-result.json");
+		}
+
+		new Runner(opts.build()).run();
+	}
+}
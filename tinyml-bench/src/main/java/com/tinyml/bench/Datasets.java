@@ -0,0 +1,113 @@
+package com.tinyml.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * CSV files the benchmarks run on, named by a string parameter. "adult" and
+ * "iris" are the files bundled with the library, and "synthetic:RxNxCxK" is a
+ * generated file of R rows with N numeric columns and C categorical columns of
+ * K distinct words each, followed by a label column.
+ * <p>
+ * The bundled files are looked up in the directory of the tinyml.files system
+ * property, then in files, tinyml/files and ../tinyml/files.
+ */
+final class Datasets {
+
+	private static final String SYNTHETIC = "synthetic:";
+
+	private Datasets() {
+
+	}
+
+	static File file(String name) {
+		if (name.startsWith(SYNTHETIC)) {
+			return synthetic(name.substring(SYNTHETIC.length()));
+		}
+
+		if (name.equals("adult") || name.equals("iris")) {
+			return bundled(name + ".data");
+		}
+
+		throw new IllegalArgumentException("Unknown dataset: " + name + ".");
+	}
+
+	private static File bundled(String fileName) {
+		String dir = System.getProperty("tinyml.files");
+		String[] dirs = (dir != null) ? new String[] { dir } : new String[] { "files", "tinyml/files", "../tinyml/files" };
+
+		for (String d : dirs) {
+			File f = new File(d, fileName);
+			if (f.isFile()) {
+				return f;
+			}
+		}
+
+		throw new IllegalStateException("Could not find " + fileName
+				+ ". Run from the project directory or set the tinyml.files system property.");
+	}
+
+	/**
+	 * Generates the file once per shape, so every fork and run of the
+	 * benchmarks reads the same data.
+	 */
+	private static File synthetic(String shape) {
+		String[] dims = shape.split("x");
+		if (dims.length != 4) {
+			throw new IllegalArgumentException("The synthetic shape must be RxNxCxK. Got: " + shape + ".");
+		}
+
+		int rows = Integer.parseInt(dims[0]);
+		int numeric = Integer.parseInt(dims[1]);
+		int categorical = Integer.parseInt(dims[2]);
+		int distinct = Integer.parseInt(dims[3]);
+
+		File f = new File(System.getProperty("java.io.tmpdir"), "tinyml-synthetic-" + shape + ".csv");
+		if (f.isFile()) {
+			return f;
+		}
+
+		File tmp = new File(f.getPath() + ".tmp");
+		Random rnd = new Random(42);
+		try (Writer w = new BufferedWriter(
+				new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), StandardCharsets.UTF_8), 1 << 16)) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < rows; i++) {
+				sb.setLength(0);
+
+				for (int j = 0; j < numeric; j++) {
+					if (rnd.nextInt(100) == 0) {
+						// a few missing values
+					} else if (j % 2 == 0) {
+						sb.append(rnd.nextInt(1000));
+					} else {
+						sb.append((float) (rnd.nextGaussian() * 10));
+					}
+					sb.append(',');
+				}
+
+				for (int j = 0; j < categorical; j++) {
+					// skewed towards the first words, like real categories
+					int k = rnd.nextInt(rnd.nextInt(distinct) + 1);
+					sb.append('c').append(j).append('_').append(k).append(',');
+				}
+
+				sb.append(rnd.nextBoolean() ? "yes" : "no").append('\n');
+				w.append(sb);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		if (tmp.renameTo(f) == false && f.isFile() == false) {
+			throw new IllegalStateException("Could not create " + f + ".");
+		}
+		return f;
+	}
+}
@@ -0,0 +1,62 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Grid;
+import com.tinyml.structs.GridEncoder;
+import com.tinyml.structs.Loader;
+
+/**
+ * Encoding single rows of text with a fitted encoder, as when scoring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncoderBenchmark {
+
+	private static final int ROWS = 1024;
+
+	@Param({ "adult" })
+	public String dataset;
+
+	private GridEncoder encoder;
+	private String[][] rows;
+	private float[] out;
+	private int next;
+
+	@Setup
+	public void setup() {
+		Grid grid = Loader.csv(Datasets.file(dataset));
+		encoder = new GridEncoder(grid, true);
+		out = new float[encoder.cols()];
+
+		rows = new String[Math.min(ROWS, grid.rows())][grid.cols()];
+		for (int i = 0; i < rows.length; i++) {
+			for (int j = 0; j < grid.cols(); j++) {
+				rows[i][j] = grid.get(i, j);
+			}
+		}
+	}
+
+	@Benchmark
+	public float[] encodeRow() {
+		encoder.encode(rows[next], out, 0);
+		next = (next + 1) % rows.length;
+		return out;
+	}
+}
@@ -0,0 +1,65 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.GbdtModel;
+import com.tinyml.structs.GbdtTrainer;
+import com.tinyml.structs.Grid;
+import com.tinyml.structs.LinearModel;
+import com.tinyml.structs.Loader;
+import com.tinyml.structs.Vec;
+
+/**
+ * Ten logistic trees of depth 6 on 40 numeric and 10 category columns, then
+ * scoring the same rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class GbdtBenchmark {
+
+	@Param({ "synthetic:1000000x40x10x100" })
+	public String dataset;
+
+	private Grid x;
+	private Vec y;
+	private GbdtModel model;
+
+	@Setup
+	public void setup() {
+		Grid grid = Loader.csv(Datasets.file(dataset));
+		int label = grid.cols() - 1;
+		x = grid.selectCols(0, label);
+		float[] labels = new float[grid.rows()];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = "yes".equals(grid.get(i, label)) ? 1f : 0f;
+		}
+		y = new Vec(labels);
+		model = fit();
+	}
+
+	@Benchmark
+	public GbdtModel fit() {
+		return new GbdtTrainer(LinearModel.Loss.LOGISTIC).trees(10).fit(x, y);
+	}
+
+	@Benchmark
+	public Vec predict() {
+		return model.predict(x);
+	}
+}
@@ -0,0 +1,52 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Grid;
+import com.tinyml.structs.GridInfo;
+import com.tinyml.structs.Loader;
+import com.tinyml.structs.Mat;
+
+/**
+ * Column statistics and design matrix encoding of a loaded grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridBenchmark {
+
+	@Param({ "iris", "adult", "synthetic:200000x10x5x100" })
+	public String dataset;
+
+	private Grid grid;
+
+	@Setup
+	public void setup() {
+		grid = Loader.csv(Datasets.file(dataset));
+	}
+
+	@Benchmark
+	public GridInfo info() {
+		return grid.info();
+	}
+
+	@Benchmark
+	public Mat toMatrix() {
+		return grid.toMatrix(true);
+	}
+}
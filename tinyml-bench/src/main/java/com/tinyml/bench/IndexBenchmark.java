@@ -0,0 +1,57 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.IvfPqIndex;
+import com.tinyml.structs.Mat;
+import com.tinyml.structs.Neighbors;
+import com.tinyml.structs.Vec;
+
+/**
+ * Latency of one top-10 query on an inverted file index of 200k rows of 50
+ * columns, by the number of lists probed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexBenchmark {
+
+	@Param({ "1", "8", "32" })
+	public int probes;
+
+	private IvfPqIndex index;
+	private Vec[] queries;
+	private int next;
+
+	@Setup
+	public void setup() {
+		Mat x = Mat.rand(200000, 50);
+		index = IvfPqIndex.build(x, IvfPqIndex.Metric.L2);
+
+		queries = new Vec[256];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = x.row(i * 7).add(Vec.rand(50).scale(0.1f));
+		}
+	}
+
+	@Benchmark
+	public Neighbors query() {
+		next = (next + 1) & (queries.length - 1);
+		return index.query(queries[next], 10, probes);
+	}
+}
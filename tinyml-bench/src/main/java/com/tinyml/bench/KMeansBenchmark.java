@@ -0,0 +1,51 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.KMeans;
+import com.tinyml.structs.Mat;
+
+/**
+ * Clustering 200k rows of 50 columns, by Lloyd iterations and by
+ * mini-batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class KMeansBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int k;
+
+	private Mat x;
+
+	@Setup
+	public void setup() {
+		x = Mat.rand(200000, 50);
+	}
+
+	@Benchmark
+	public double lloyd() {
+		return KMeans.fit(x, k, 10, 0L).inertia();
+	}
+
+	@Benchmark
+	public double miniBatch() {
+		return KMeans.fitMiniBatch(x, k).inertia();
+	}
+}
@@ -0,0 +1,47 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.KNearest;
+import com.tinyml.structs.Mat;
+
+/**
+ * Exact k nearest neighbours of 1000 queries among 200k rows of 50 columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class KNearestBenchmark {
+
+	@Param({ "1", "10", "100" })
+	public int k;
+
+	private Mat x;
+	private Mat queries;
+
+	@Setup
+	public void setup() {
+		x = Mat.rand(200000, 50);
+		queries = Mat.rand(1000, 50);
+	}
+
+	@Benchmark
+	public int search() {
+		return KNearest.search(x, queries, k).id(0, 0);
+	}
+}
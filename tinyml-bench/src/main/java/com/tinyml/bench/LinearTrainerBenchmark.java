@@ -0,0 +1,57 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.LinearModel;
+import com.tinyml.structs.LinearTrainer;
+import com.tinyml.structs.Mat;
+import com.tinyml.structs.Vec;
+
+/**
+ * One epoch of logistic regression over 1M rows of 50 columns, by threads
+ * updating the weights Hogwild.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LinearTrainerBenchmark {
+
+	@Param({ "1", "2", "4" })
+	public int threads;
+
+	private Mat x;
+	private Vec y;
+
+	@Setup
+	public void setup() {
+		int m = 1000000;
+		x = Mat.rand(m, 50);
+		float[] labels = new float[m];
+		for (int i = 0; i < m; i++) {
+			labels[i] = (i % 3 == 0) ? 1f : 0f;
+		}
+		y = new Vec(labels);
+	}
+
+	@Benchmark
+	public float epoch() {
+		LinearTrainer t = new LinearTrainer(LinearModel.Loss.LOGISTIC, LinearTrainer.Optimizer.ADAM).epochs(1)
+				.threads(threads);
+		return t.fit(x, y).bias();
+	}
+}
@@ -0,0 +1,49 @@
+package com.tinyml.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Grid;
+import com.tinyml.structs.Loader;
+
+/**
+ * Parsing a CSV file into a grid, sequentially and in parallel byte ranges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+	@Param({ "iris", "adult", "synthetic:200000x10x5x100" })
+	public String dataset;
+
+	@Param({ "1", "4" })
+	public int parallelism;
+
+	private File file;
+
+	@Setup
+	public void setup() {
+		file = Datasets.file(dataset);
+	}
+
+	@Benchmark
+	public Grid csv() {
+		return Loader.csv(file, ',', parallelism);
+	}
+}
@@ -0,0 +1,92 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Mat;
+import com.tinyml.structs.Vec;
+
+/**
+ * Dense linear algebra on an m x n matrix, with a weight matrix of n x 16.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatBenchmark {
+
+	private static final int OUTPUTS = 16;
+
+	@Param({ "1000x100", "100000x50" })
+	public String shape;
+
+	private Mat x;
+	private Mat w;
+	private Vec b;
+	private Mat out;
+
+	@Setup
+	public void setup() {
+		String[] dims = shape.split("x");
+		int m = Integer.parseInt(dims[0]);
+		int n = Integer.parseInt(dims[1]);
+
+		x = Mat.rand(m, n);
+		w = Mat.rand(n, OUTPUTS);
+		b = Vec.rand(OUTPUTS);
+		out = new Mat(m, OUTPUTS);
+	}
+
+	@Benchmark
+	public Mat dot() {
+		return x.dot(w);
+	}
+
+	@Benchmark
+	public Mat dotInto() {
+		return x.dot(w, out);
+	}
+
+	@Benchmark
+	public Mat affine() {
+		return x.affine(w, b);
+	}
+
+	@Benchmark
+	public Mat affineInto() {
+		return x.affine(w, b, out);
+	}
+
+	@Benchmark
+	public Mat stdScale() {
+		return x.stdScale();
+	}
+
+	@Benchmark
+	public Mat transpDot() {
+		return x.transp().dot(x);
+	}
+
+	@Benchmark
+	public Mat gram() {
+		return x.gram();
+	}
+
+	@Benchmark
+	public Mat cov() {
+		return x.cov();
+	}
+}
@@ -0,0 +1,62 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.nd4j.linalg.eigen.Eigen;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Grid;
+import com.tinyml.structs.GridEncoder;
+import com.tinyml.structs.Loader;
+import com.tinyml.structs.Mat;
+import com.tinyml.structs.Pca;
+import com.tinyml.structs.Vec;
+
+/**
+ * The flow of the App: encode every column but the label, then take the
+ * eigenvalues of the covariance matrix. The streaming analysis encodes and
+ * accumulates the rows in batches instead of building the whole matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PcaBenchmark {
+
+	@Param({ "iris", "adult", "synthetic:200000x10x5x100" })
+	public String dataset;
+
+	private Grid grid;
+	private Grid features;
+
+	@Setup
+	public void setup() {
+		grid = Loader.csv(Datasets.file(dataset));
+		features = grid.selectCols(0, grid.cols() - 1);
+	}
+
+	@Benchmark
+	public Vec pca() {
+		Mat x = grid.selectCols(0, grid.cols() - 1).toMatrix(true);
+
+		Mat covar = x.transp().dot(x);
+		return Vec.wrap(Eigen.symmetricGeneralizedEigenvalues(covar.ptr()));
+	}
+
+	@Benchmark
+	public Vec streamingPca() {
+		return Pca.fit(features, new GridEncoder(features, true)).eigenvalues();
+	}
+}
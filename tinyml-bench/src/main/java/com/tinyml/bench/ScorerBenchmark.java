@@ -0,0 +1,67 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.AffineScorer;
+import com.tinyml.structs.Mat;
+import com.tinyml.structs.Vec;
+
+/**
+ * Scoring one row with an affine layer of n inputs and k outputs, through ND4J
+ * and through plain arrays. Sampled, to see the tail of the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScorerBenchmark {
+
+	@Param({ "100x1", "100x16" })
+	public String shape;
+
+	private Mat w;
+	private Vec b;
+	private Mat row;
+	private AffineScorer scorer;
+	private float[] x;
+	private float[] out;
+
+	@Setup
+	public void setup() {
+		String[] dims = shape.split("x");
+		int n = Integer.parseInt(dims[0]);
+		int k = Integer.parseInt(dims[1]);
+
+		w = Mat.rand(n, k);
+		b = Vec.rand(k);
+		row = Mat.rand(1, n);
+		scorer = new AffineScorer(w, b, AffineScorer.Activation.SIGMOID);
+		x = row.toFloatArray();
+		out = new float[k];
+	}
+
+	@Benchmark
+	public Mat affine() {
+		return row.affine(w, b);
+	}
+
+	@Benchmark
+	public float[] scorer() {
+		scorer.score(x, out);
+		return out;
+	}
+}
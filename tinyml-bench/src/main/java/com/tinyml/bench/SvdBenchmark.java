@@ -0,0 +1,55 @@
+package com.tinyml.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Mat;
+import com.tinyml.structs.Svd;
+import com.tinyml.structs.Vec;
+
+/**
+ * Top components of an m x n matrix, by random projection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class SvdBenchmark {
+
+	@Param({ "10000x500", "200000x1000" })
+	public String shape;
+
+	@Param({ "10", "50" })
+	public int k;
+
+	private Mat x;
+
+	@Setup
+	public void setup() {
+		String[] dims = shape.split("x");
+		x = Mat.rand(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+	}
+
+	@Benchmark
+	public Vec randomized() {
+		return Svd.randomized(x, k).values();
+	}
+
+	@Benchmark
+	public Vec randomizedCentered() {
+		return Svd.randomized(x, k, Svd.DEFAULT_OVERSAMPLE, Svd.DEFAULT_POWER_ITERS, true, 0L).values();
+	}
+}
@@ -0,0 +1,83 @@
+package com.tinyml.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinyml.structs.Grid;
+import com.tinyml.structs.WordCount;
+
+/**
+ * Looking up the one-hot index of words, as the encoding of a categorical
+ * column does once per row, and counting the words of a large column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordCountBenchmark {
+
+	private static final int LOOKUPS = 1 << 16;
+
+	private static final int ROWS = 1 << 22;
+
+	@Param({ "10", "1000", "100000" })
+	public int distinct;
+
+	private WordCount count;
+	private String[] words;
+	private Grid grid;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(42);
+
+		count = new WordCount();
+		for (int i = 0; i < distinct; i++) {
+			count.add("word" + i);
+		}
+
+		// equal but not the same strings, like the ones read from a file
+		words = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			words[i] = new String("word" + rnd.nextInt(distinct));
+		}
+		count.wordIdx(words[0]);
+
+		grid = new Grid();
+		for (int i = 0; i < ROWS; i++) {
+			grid.add(Arrays.asList("word" + rnd.nextInt(distinct)));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public long wordIdx() {
+		long sum = 0;
+		for (String w : words) {
+			sum += count.wordIdx(w);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public String[] countWords() {
+		return grid.countWords(0).top(10);
+	}
+}
@@ -1,10 +1,13 @@
 package com.tinyml;
 
+import java.io.File;
+
 import org.nd4j.linalg.eigen.Eigen;
 
 import com.tinyml.structs.Grid;
 import com.tinyml.structs.Loader;
 import com.tinyml.structs.Mat;
+import com.tinyml.structs.Snapshot;
 import com.tinyml.structs.Vec;
 
 /**
@@ -14,10 +17,10 @@ import com.tinyml.structs.Vec;
 public class App {
 	public static void main(String[] args) {
 
-		Grid g = Loader.csv("files/adult.data");
+		Grid g = load("files/adult.data");
 		Mat x = g.selectCols(0, 14).toMatrix(true);
 
-		Mat covar = x.transp().dot(x);
+		Mat covar = x.gram();
 		Mat eigen = covar.clone();
 
 		Vec eigval = Vec.wrap(Eigen.symmetricGeneralizedEigenvalues(eigen.ptr()));
@@ -31,4 +34,21 @@ public class App {
 		}
 
 	}
+
+	/**
+	 * Loads the CSV file, parsing it only the first time. Later runs open the
+	 * snapshot saved next to it.
+	 */
+	private static Grid load(String path) {
+		File csv = new File(path);
+		File snapshot = new File(path + ".grid");
+
+		if (snapshot.exists() && snapshot.lastModified() >= csv.lastModified()) {
+			return Snapshot.grid(snapshot);
+		}
+
+		Grid g = Loader.csv(csv);
+		Snapshot.write(g, snapshot);
+		return g;
+	}
 }
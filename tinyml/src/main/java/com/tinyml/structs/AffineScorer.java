@@ -0,0 +1,147 @@
+package com.tinyml.structs;
+
+/**
+ * Affine layer with an optional activation, scoring single rows without allocating.
+ */
+public class AffineScorer {
+
+	public enum Activation {
+		IDENTITY, RELU, SIGMOID, TANH, SOFTMAX
+	}
+
+	private final int n;
+	private final int k;
+	// row-major n x k
+	private final float[] weights;
+	private final float[] bias;
+	private final Activation activation;
+
+	public AffineScorer(Mat w, Vec b) {
+		this(w, b, Activation.IDENTITY);
+	}
+
+	/**
+	 * Creates the scorer of x w + b followed by the activation.
+	 */
+	public AffineScorer(Mat w, Vec b, Activation activation) {
+		if (w.cols() != b.length()) {
+			throw new IllegalArgumentException("Invalid vector dimension for addition broadcast. Expected " + w.cols()
+					+ ", but got " + b.length() + " instead.");
+		}
+		if (activation == null) {
+			throw new IllegalArgumentException("The activation parameter can not be null.");
+		}
+
+		this.n = w.rows();
+		this.k = w.cols();
+		this.weights = w.toFloatArray();
+		this.bias = b.toArray();
+		this.activation = activation;
+	}
+
+	public int inputs() {
+		return n;
+	}
+
+	public int outputs() {
+		return k;
+	}
+
+	public Activation activation() {
+		return activation;
+	}
+
+	public void score(float[] x, float[] out) {
+		score(x, 0, out, 0);
+	}
+
+	/**
+	 * Writes the outputs of the row that starts at x[xOffset] into out, from outOffset.
+	 */
+	public void score(float[] x, int xOffset, float[] out, int outOffset) {
+		if (xOffset < 0 || xOffset + n > x.length) {
+			throw new IllegalArgumentException(
+					"The input must hold " + n + " values from " + xOffset + ". Got: " + x.length + ".");
+		}
+		if (outOffset < 0 || outOffset + k > out.length) {
+			throw new IllegalArgumentException(
+					"The output must hold " + k + " values from " + outOffset + ". Got: " + out.length + ".");
+		}
+
+		if (k == 1) {
+			out[outOffset] = bias[0] + dot(weights, x, xOffset, n);
+		} else {
+			System.arraycopy(bias, 0, out, outOffset, k);
+			for (int i = 0; i < n; i++) {
+				float xi = x[xOffset + i];
+				int row = i * k;
+				for (int o = 0; o < k; o++) {
+					out[outOffset + o] += weights[row + o] * xi;
+				}
+			}
+		}
+		activate(out, outOffset);
+	}
+
+	private static float dot(float[] a, float[] b, int bOffset, int len) {
+		float s0 = 0f;
+		float s1 = 0f;
+		float s2 = 0f;
+		float s3 = 0f;
+
+		int i = 0;
+		for (; i + 3 < len; i += 4) {
+			s0 += a[i] * b[bOffset + i];
+			s1 += a[i + 1] * b[bOffset + i + 1];
+			s2 += a[i + 2] * b[bOffset + i + 2];
+			s3 += a[i + 3] * b[bOffset + i + 3];
+		}
+		for (; i < len; i++) {
+			s0 += a[i] * b[bOffset + i];
+		}
+
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private void activate(float[] out, int from) {
+		int to = from + k;
+
+		switch (activation) {
+		case IDENTITY:
+			break;
+		case RELU:
+			for (int o = from; o < to; o++) {
+				out[o] = Math.max(out[o], 0f);
+			}
+			break;
+		case SIGMOID:
+			for (int o = from; o < to; o++) {
+				out[o] = (float) (1.0 / (1.0 + Math.exp(-out[o])));
+			}
+			break;
+		case TANH:
+			for (int o = from; o < to; o++) {
+				out[o] = (float) Math.tanh(out[o]);
+			}
+			break;
+		case SOFTMAX:
+			// shifted by the maximum so the exponentials do not overflow
+			float max = Float.NEGATIVE_INFINITY;
+			for (int o = from; o < to; o++) {
+				max = Math.max(max, out[o]);
+			}
+			double sum = 0.0;
+			for (int o = from; o < to; o++) {
+				float e = (float) Math.exp(out[o] - max);
+				out[o] = e;
+				sum += e;
+			}
+			for (int o = from; o < to; o++) {
+				out[o] = (float) (out[o] / sum);
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unexpected activation: " + activation + ".");
+		}
+	}
+}
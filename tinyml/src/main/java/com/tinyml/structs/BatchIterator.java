@@ -0,0 +1,151 @@
+package com.tinyml.structs;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Mini-batches of the rows of a grid, encoded ahead by a background thread into reused matrices.
+ */
+public class BatchIterator implements Iterator<Mat>, AutoCloseable {
+
+	public static final int DEFAULT_BUFFERS = 3;
+
+	// marks the end of the batches in the ready queue
+	private static final Object END = new Object();
+
+	private final Grid grid;
+	private final GridEncoder encoder;
+	private final int batchSize;
+	private final int[] order;
+	private final int poolRows;
+
+	private final BlockingQueue<Mat> free;
+	private final BlockingQueue<Object> ready;
+	private final Thread producer;
+
+	private Object next;
+	private Mat current;
+	private boolean closed;
+
+	public BatchIterator(Grid grid, GridEncoder encoder, int batchSize) {
+		this(grid, encoder, batchSize, false, 0L, DEFAULT_BUFFERS);
+	}
+
+	/**
+	 * Creates the iterator over one epoch of the grid, with at least 2 buffers. Close it if it is not read to the end.
+	 */
+	public BatchIterator(Grid grid, GridEncoder encoder, int batchSize, boolean shuffle, long seed, int buffers) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batchSize parameter must be 1 or higher. Got: " + batchSize + ".");
+		}
+		if (buffers < 2) {
+			throw new IllegalArgumentException("The buffers parameter must be 2 or higher. Got: " + buffers + ".");
+		}
+
+		this.grid = grid;
+		this.encoder = encoder;
+		this.batchSize = batchSize;
+
+		order = new int[grid.rows()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		if (shuffle) {
+			Random rnd = new Random(seed);
+			for (int i = order.length - 1; i > 0; i--) {
+				int k = rnd.nextInt(i + 1);
+				int t = order[i];
+				order[i] = order[k];
+				order[k] = t;
+			}
+		}
+
+		poolRows = Math.min(batchSize, Math.max(1, order.length));
+		free = new ArrayBlockingQueue<>(buffers);
+		for (int b = 0; b < buffers; b++) {
+			free.add(new Mat(poolRows, encoder.cols()));
+		}
+		ready = new ArrayBlockingQueue<>(buffers + 1);
+
+		producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				produce();
+			}
+		}, "tinyml-batches");
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	private void produce() {
+		try {
+			for (int at = 0; at < order.length; at += batchSize) {
+				int len = Math.min(batchSize, order.length - at);
+
+				// the short last batch gets its own matrix
+				Mat buf = (len < poolRows) ? new Mat(len, encoder.cols()) : free.take();
+				encoder.encode(grid, order, at, at + len, buf);
+				ready.put(buf);
+			}
+			ready.put(END);
+		} catch (InterruptedException e) {
+			// closed
+		} catch (RuntimeException e) {
+			ready.offer(e);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			if (closed) {
+				return false;
+			}
+			try {
+				next = ready.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for a batch.", e);
+			}
+		}
+
+		if (next instanceof RuntimeException) {
+			throw new IllegalStateException("Could not encode a batch.", (RuntimeException) next);
+		}
+		return next != END;
+	}
+
+	/**
+	 * Returns the next batch, valid until the following call.
+	 */
+	@Override
+	public Mat next() {
+		if (hasNext() == false) {
+			throw new NoSuchElementException();
+		}
+
+		if (current != null && current.rows() == poolRows) {
+			free.offer(current);
+		}
+		current = (Mat) next;
+		next = null;
+		return current;
+	}
+
+	public int batches() {
+		return (order.length + batchSize - 1) / batchSize;
+	}
+
+	int row(int position) {
+		return order[position];
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		producer.interrupt();
+	}
+}
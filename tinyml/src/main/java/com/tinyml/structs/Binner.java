@@ -0,0 +1,286 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Maps the values of each grid column to at most 256 bins, bin 0 for the missing values.
+ */
+final class Binner {
+
+	static final int MAX_BINS = 256;
+
+	// values sampled to find the quantiles of a numeric column
+	private static final int SAMPLE_ROWS = 1 << 18;
+	// rows per task, a multiple of the chunk size
+	private static final int RANGE = 1 << 20;
+	private static final int BLOCK = 4096;
+
+	private final int cols;
+	// ascending upper bounds of the bins from 1, then infinities, for numeric columns
+	private final float[][] edges;
+	// bin of each word, for the other columns
+	private final StringIntMap[] words;
+	// bin of the words that have none, or 0
+	private final int[] other;
+	private final int[] bins;
+
+	private Binner(int cols) {
+		this.cols = cols;
+		edges = new float[cols][];
+		words = new StringIntMap[cols];
+		other = new int[cols];
+		bins = new int[cols];
+	}
+
+	/**
+	 * Fits the bins of all the columns of the grid.
+	 */
+	static Binner fit(Grid g) {
+		Binner b = new Binner(g.cols());
+		// the category columns are counted in one pass
+		WordCount[] counts = g.countWords();
+		for (int j = 0; j < g.cols(); j++) {
+			GridColumn c = g.column(j);
+			GridColumnInfo info = new GridColumnInfo(g, j);
+			if (info.isEmpty()) {
+				b.bins[j] = 1;
+			} else if (info.isNumeric()) {
+				float[] e = quantiles(c);
+				b.bins[j] = e.length + 2;
+				// padded so every value takes the same steps to find its bin
+				b.edges[j] = Arrays.copyOf(e, MAX_BINS - 1);
+				Arrays.fill(b.edges[j], e.length, MAX_BINS - 1, Float.POSITIVE_INFINITY);
+			} else {
+				b.fitWords(j, (counts[j] != null) ? counts[j] : g.countWords(j));
+			}
+		}
+		return b;
+	}
+
+	private static float[] quantiles(GridColumn c) {
+		int rows = c.size();
+		// numbers stored as words are parsed once per word
+		float[] words = (c.type() == GridColumn.Type.CATEGORY) ? wordValues(c) : null;
+		int step = Math.max(1, rows / SAMPLE_ROWS);
+		float[] sample = new float[Math.min(rows, SAMPLE_ROWS + 1)];
+		int len = 0;
+		for (int i = 0; i < rows && len < sample.length; i += step) {
+			if (c.isNull(i) == false) {
+				float v = (words != null) ? words[c.ints().get(i)] : c.getFloat(i);
+				if (Float.isNaN(v) == false) {
+					sample[len++] = v;
+				}
+			}
+		}
+		Arrays.sort(sample, 0, len);
+
+		int diff = 0;
+		for (int i = 0; i < len; i++) {
+			if (i == 0 || sample[i] != sample[i - 1]) {
+				diff++;
+			}
+		}
+		// one bin per value, the last one open
+		if (diff < MAX_BINS) {
+			float[] ans = new float[Math.max(0, diff - 1)];
+			for (int i = 0, k = 0; k < ans.length; i++) {
+				if (i == 0 || sample[i] != sample[i - 1]) {
+					ans[k++] = sample[i];
+				}
+			}
+			return ans;
+		}
+
+		// cut at quantiles of the sample
+		int n = MAX_BINS - 2;
+		float[] ans = new float[n];
+		int k = 0;
+		for (int q = 1; q <= n; q++) {
+			float e = sample[(int) ((long) q * len / (n + 1)) - 1];
+			if (k == 0 || e > ans[k - 1]) {
+				ans[k++] = e;
+			}
+		}
+		return Arrays.copyOf(ans, k);
+	}
+
+	// NaN for the words that are not numbers
+	private static float[] wordValues(GridColumn c) {
+		Vocabulary v = c.vocabulary();
+		float[] ans = new float[v.size()];
+		for (int code = 0; code < ans.length; code++) {
+			String w = v.word(code);
+			ans[code] = Numbers.isNumber(w) ? (float) Double.parseDouble(w) : Float.NaN;
+		}
+		return ans;
+	}
+
+	private void fitWords(int j, WordCount wc) {
+		int diff = wc.diff();
+		StringIntMap map = new StringIntMap(Math.min(diff, MAX_BINS));
+		if (diff < MAX_BINS) {
+			for (int i = 0; i < diff; i++) {
+				map.put(wc.word(i), i + 1, 0);
+			}
+			bins[j] = diff + 1;
+		} else {
+			// the most frequent words, in word order, then one bin for the rest
+			String[] top = wc.top(MAX_BINS - 2);
+			int[] idx = new int[top.length];
+			for (int i = 0; i < top.length; i++) {
+				idx[i] = wc.wordIdx(top[i]);
+			}
+			Arrays.sort(idx);
+			for (int i = 0; i < idx.length; i++) {
+				map.put(wc.word(idx[i]), i + 1, 0);
+			}
+			other[j] = MAX_BINS - 1;
+			bins[j] = MAX_BINS;
+		}
+		words[j] = map;
+	}
+
+	int cols() {
+		return cols;
+	}
+
+	/**
+	 * Number of bins of the column, with the bin of the missing values.
+	 */
+	int bins(int col) {
+		return bins[col];
+	}
+
+	boolean isNumeric(int col) {
+		return edges[col] != null;
+	}
+
+	/**
+	 * Returns the bins of the rows of the grid, a byte array per column.
+	 */
+	byte[][] bin(final Grid g) {
+		if (g.cols() > cols) {
+			throw new IllegalArgumentException("The grid has more columns than the bins. Expected " + cols + ", got "
+					+ g.cols() + ".");
+		}
+
+		final int rows = g.rows();
+		final byte[][] ans = new byte[cols][rows];
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int j = 0; j < Math.min(cols, g.cols()); j++) {
+			final int col = j;
+			// the codes of the words the column has, looked up once
+			final int[] codes = codeBins(g.column(j), j);
+			for (int from = 0; from < rows; from += RANGE) {
+				final int start = from;
+				final int end = Math.min(rows, from + RANGE);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						bin(g.column(col), col, codes, start, end, ans[col]);
+						return null;
+					}
+				});
+			}
+		}
+		Tasks.run(tasks);
+
+		return ans;
+	}
+
+	private int[] codeBins(GridColumn c, int j) {
+		if (c.type() != GridColumn.Type.CATEGORY || bins[j] == 1) {
+			return null;
+		}
+
+		if (edges[j] != null) {
+			float[] vals = wordValues(c);
+			int[] codes = new int[vals.length];
+			for (int code = 0; code < codes.length; code++) {
+				codes[code] = Float.isNaN(vals[code]) ? 0 : numeric(edges[j], vals[code]);
+			}
+			return codes;
+		}
+
+		Vocabulary v = c.vocabulary();
+		int[] codes = new int[v.size()];
+		for (int code = 0; code < codes.length; code++) {
+			codes[code] = words[j].get(v.word(code), other[j]);
+		}
+		return codes;
+	}
+
+	private void bin(GridColumn c, int j, int[] codes, int from, int to, byte[] out) {
+		Bitmap nulls = c.nullBits();
+		boolean some = c.nulls() > 0;
+		GridColumn.Type type = c.type();
+
+		if (type == GridColumn.Type.EMPTY || bins[j] == 1) {
+			return;
+		}
+
+		if (edges[j] != null && (type == GridColumn.Type.INTEGER || type == GridColumn.Type.FLOAT)) {
+			float[] e = edges[j];
+			float[] vals = new float[BLOCK];
+			int[] ints = (type == GridColumn.Type.INTEGER) ? new int[BLOCK] : null;
+			for (int at = from; at < to; at += BLOCK) {
+				int l = Math.min(BLOCK, to - at);
+				if (ints != null) {
+					c.ints().get(at, ints, 0, l);
+					for (int i = 0; i < l; i++) {
+						vals[i] = ints[i];
+					}
+				} else {
+					c.floats().get(at, vals, 0, l);
+				}
+				for (int i = 0; i < l; i++) {
+					if (some == false || nulls.get(at + i) == false) {
+						out[at + i] = (byte) numeric(e, vals[i]);
+					}
+				}
+			}
+			return;
+		}
+
+		if (codes != null) {
+			int[] buf = new int[BLOCK];
+			for (int at = from; at < to; at += BLOCK) {
+				int l = Math.min(BLOCK, to - at);
+				c.ints().get(at, buf, 0, l);
+				for (int i = 0; i < l; i++) {
+					if (some == false || nulls.get(at + i) == false) {
+						out[at + i] = (byte) codes[buf[i]];
+					}
+				}
+			}
+			return;
+		}
+
+		// a column stored with another type than the one the bins were fitted on
+		for (int i = from; i < to; i++) {
+			String val = c.get(i);
+			if (val == null) {
+				continue;
+			}
+			if (edges[j] != null) {
+				if (Numbers.isNumber(val)) {
+					out[i] = (byte) numeric(edges[j], Float.parseFloat(val.trim()));
+				}
+			} else {
+				out[i] = (byte) words[j].get(val, other[j]);
+			}
+		}
+	}
+
+	// branch-free search over a fixed range of 255 bounds
+	private static int numeric(float[] e, float v) {
+		int lo = 0;
+		for (int step = MAX_BINS / 2; step > 0; step >>>= 1) {
+			lo += (e[lo + step - 1] < v) ? step : 0;
+		}
+		return lo + 1;
+	}
+}
@@ -0,0 +1,58 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+
+/**
+ * Growable bit set used to flag rows of a column (nulls, integral floats).
+ */
+final class Bitmap {
+
+	private long[] words;
+
+	Bitmap() {
+		words = new long[1];
+	}
+
+	Bitmap(long[] words) {
+		this.words = words;
+	}
+
+	void set(int idx) {
+		int w = idx >>> 6;
+		if (w >= words.length) {
+			words = Arrays.copyOf(words, Math.max(w + 1, words.length * 2));
+		}
+		words[w] |= 1L << idx;
+	}
+
+	boolean get(int idx) {
+		int w = idx >>> 6;
+		if (w >= words.length) {
+			return false;
+		}
+		return (words[w] & (1L << idx)) != 0;
+	}
+
+	int cardinality() {
+		int total = 0;
+		for (long w : words) {
+			total += Long.bitCount(w);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the internal words. Bits beyond the last set bit may be missing.
+	 */
+	long[] words() {
+		return words;
+	}
+
+	long bytes() {
+		return 32L + words.length * 8L;
+	}
+
+	Bitmap copy() {
+		return new Bitmap(words.clone());
+	}
+}
@@ -0,0 +1,141 @@
+package com.tinyml.structs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.bytedeco.javacpp.FloatPointer;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Moves float data between NIO buffers and ND4J arrays.
+ */
+final class Buffers {
+
+	private Buffers() {
+
+	}
+
+	/**
+	 * Returns whether the floats of the buffer can be used by ND4J in place.
+	 */
+	static boolean canWrap(ByteBuffer buf) {
+		return buf.isDirect() && buf.order() == ByteOrder.nativeOrder();
+	}
+
+	/**
+	 * Creates an array over the floats of the direct buffer, which must stay reachable while it is used.
+	 */
+	static INDArray wrap(ByteBuffer buf, int[] shape) {
+		if (canWrap(buf) == false) {
+			throw new IllegalArgumentException("The buffer must be direct and in native byte order.");
+		}
+
+		int len = length(shape);
+		if (buf.remaining() < len * 4L) {
+			throw new IllegalArgumentException(
+					"The buffer is too small. Expected " + (len * 4L) + " bytes, but got " + buf.remaining() + ".");
+		}
+
+		// the backend loads the native libraries the pointer needs
+		Nd4j.getBackend();
+
+		FloatPointer ptr = new FloatPointer(buf.slice().order(buf.order()).asFloatBuffer());
+		DataBuffer data = Nd4j.createBuffer(ptr, len);
+		return Nd4j.create(data, shape);
+	}
+
+	/**
+	 * Returns whether the array is laid out in row-major order over the whole of
+	 * its memory.
+	 */
+	static boolean isContiguous(INDArray arr) {
+		return arr.isView() == false && arr.ordering() == 'c' && arr.offset() == 0
+				&& arr.data().length() == arr.length();
+	}
+
+	/**
+	 * Keeps the object reachable up to the call. A view of the memory of an
+	 * array is freed with the array, which the JIT can collect as soon as the
+	 * code no longer reads it, even while the view is in use.
+	 */
+	static void reachable(Object o) {
+		synchronized (o) {
+			// nothing, the lock needs the reference
+		}
+	}
+
+	/**
+	 * Returns the floats of the array in row-major order, a view valid while the array is reachable.
+	 */
+	static ByteBuffer view(INDArray arr) {
+		if (isContiguous(arr) == false) {
+			// a copy owned by the buffer, as the memory of a dup would be freed
+			// with the dup
+			float[] values = arr.dup('c').data().asFloat();
+			ByteBuffer buf = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder());
+			buf.asFloatBuffer().put(values);
+			return buf;
+		}
+
+		ByteBuffer buf = arr.data().asNio().order(ByteOrder.nativeOrder());
+		buf.limit(arr.length() * 4);
+		return buf;
+	}
+
+	/**
+	 * Creates a row-major array with a copy of the floats remaining in the
+	 * buffer, in one bulk copy. The position of the buffer is not changed.
+	 */
+	static INDArray copy(FloatBuffer src, int[] shape) {
+		int len = length(shape);
+		if (src.remaining() < len) {
+			throw new IllegalArgumentException(
+					"Not enough values. Expected " + len + ", but got " + src.remaining() + ".");
+		}
+
+		INDArray arr = Nd4j.createUninitialized(shape, 'c');
+		FloatBuffer dst = view(arr).asFloatBuffer();
+
+		FloatBuffer values = src.duplicate();
+		values.limit(values.position() + len);
+		dst.put(values);
+
+		return arr;
+	}
+
+	/**
+	 * Copies the floats of the array in row-major order into the buffer,
+	 * advancing its position.
+	 */
+	static void copy(INDArray arr, FloatBuffer dst) {
+		if (dst.remaining() < arr.length()) {
+			throw new IllegalArgumentException(
+					"The buffer is too small. Expected " + arr.length() + " floats, but got " + dst.remaining() + ".");
+		}
+		if (isContiguous(arr)) {
+			dst.put(view(arr).asFloatBuffer());
+			// the view is freed with the array, often a temporary of the caller
+			reachable(arr);
+		} else {
+			dst.put(arr.dup('c').data().asFloat());
+		}
+	}
+
+	private static int length(int[] shape) {
+		long len = 1;
+		for (int d : shape) {
+			if (d < 0) {
+				throw new IllegalArgumentException("The dimensions must be 0 or higher. Got: " + d + ".");
+			}
+			len *= d;
+		}
+
+		if (len > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many values: " + len + ".");
+		}
+		return (int) len;
+	}
+}
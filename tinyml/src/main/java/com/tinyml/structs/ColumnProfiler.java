@@ -0,0 +1,190 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Computes the statistics of the grid columns that do not keep them, in parallel row ranges.
+ */
+final class ColumnProfiler {
+
+	// rows per task, a multiple of the chunk size
+	private static final int RANGE = 1 << 20;
+
+	private static final int BLOCK = 4096;
+
+	private ColumnProfiler() {
+
+	}
+
+	static ColumnStats[] profile(Grid g) {
+		int rows = g.rows();
+		int cols = g.cols();
+
+		ColumnStats[] ans = new ColumnStats[cols];
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		List<List<ForkJoinTask<Part>>> tasks = new ArrayList<>();
+		for (int j = 0; j < cols; j++) {
+			final GridColumn c = g.column(j);
+			List<ForkJoinTask<Part>> parts = new ArrayList<>();
+			tasks.add(parts);
+
+			if (c.hasStats() || rows <= RANGE) {
+				continue;
+			}
+
+			for (int from = 0; from < rows; from += RANGE) {
+				final int start = from;
+				final int end = Math.min(rows, from + RANGE);
+				parts.add(pool.submit(new Callable<Part>() {
+					@Override
+					public Part call() {
+						return scan(c, start, end);
+					}
+				}));
+			}
+		}
+
+		for (int j = 0; j < cols; j++) {
+			GridColumn c = g.column(j);
+
+			if (tasks.get(j).isEmpty() == false) {
+				Part total = null;
+				for (ForkJoinTask<Part> task : tasks.get(j)) {
+					Part p = Tasks.join(task);
+					if (total == null) {
+						total = p;
+					} else {
+						total.merge(p);
+					}
+				}
+				c.setStats(total.finish(c));
+			}
+
+			// small columns are profiled here, when needed
+			ans[j] = c.stats();
+		}
+
+		return ans;
+	}
+
+	static ColumnStats profile(GridColumn c) {
+		return scan(c, 0, c.size()).finish(c);
+	}
+
+	// category columns count the codes, which are classified once the ranges are merged
+	private static class Part {
+
+		final ColumnStats stats = new ColumnStats();
+		int[] hist;
+
+		void merge(Part other) {
+			stats.merge(other.stats);
+			if (hist != null) {
+				for (int i = 0; i < hist.length; i++) {
+					hist[i] += other.hist[i];
+				}
+			}
+		}
+
+		ColumnStats finish(GridColumn c) {
+			if (hist == null) {
+				return stats;
+			}
+
+			Vocabulary v = c.vocabulary();
+			for (int code = 0; code < hist.length; code++) {
+				int times = hist[code];
+				if (times == 0) {
+					continue;
+				}
+
+				String word = v.word(code);
+				if (Numbers.isInteger(word)) {
+					stats.addNumber(Integer.parseInt(word), true, times);
+				} else if (Numbers.isNumber(word)) {
+					stats.addNumber(Double.parseDouble(word), false, times);
+				} else {
+					stats.addWords(times);
+				}
+			}
+			hist = null;
+
+			return stats;
+		}
+	}
+
+	private static Part scan(GridColumn c, int from, int to) {
+		Part p = new Part();
+		ColumnStats s = p.stats;
+
+		Bitmap nulls = c.nullBits();
+		boolean some = c.nulls() > 0;
+
+		switch (c.type()) {
+		case INTEGER: {
+			IntChunks ints = c.ints();
+			int[] buf = new int[BLOCK];
+			for (int at = from; at < to; at += BLOCK) {
+				int l = Math.min(BLOCK, to - at);
+				ints.get(at, buf, 0, l);
+				for (int i = 0; i < l; i++) {
+					if (some && nulls.get(at + i)) {
+						s.addMissing(1);
+					} else {
+						s.addNumber(buf[i], true);
+					}
+				}
+			}
+			break;
+		}
+		case FLOAT: {
+			FloatChunks floats = c.floats();
+			Bitmap integral = c.integralBits();
+			float[] buf = new float[BLOCK];
+			for (int at = from; at < to; at += BLOCK) {
+				int l = Math.min(BLOCK, to - at);
+				floats.get(at, buf, 0, l);
+				for (int i = 0; i < l; i++) {
+					if (some && nulls.get(at + i)) {
+						s.addMissing(1);
+					} else if (integral.get(at + i)) {
+						s.addNumber(buf[i], true);
+					} else {
+						// the value of the text the float was read from
+						s.addNumber(Double.parseDouble(Float.toString(buf[i])), false);
+					}
+				}
+			}
+			break;
+		}
+		case CATEGORY: {
+			IntChunks codes = c.ints();
+			int[] hist = new int[c.vocabulary().size()];
+			int[] buf = new int[BLOCK];
+			for (int at = from; at < to; at += BLOCK) {
+				int l = Math.min(BLOCK, to - at);
+				codes.get(at, buf, 0, l);
+				for (int i = 0; i < l; i++) {
+					if (some && nulls.get(at + i)) {
+						s.addMissing(1);
+					} else {
+						hist[buf[i]]++;
+					}
+				}
+			}
+			p.hist = hist;
+			break;
+		}
+		default:
+			s.addMissing(to - from);
+			break;
+		}
+
+		return p;
+	}
+}
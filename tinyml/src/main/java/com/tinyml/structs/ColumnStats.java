@@ -0,0 +1,171 @@
+package com.tinyml.structs;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Running statistics of the values of a column, which can be merged.
+ */
+public class ColumnStats {
+
+	private long count;
+	private long missing;
+	private long numbers;
+	private long integers;
+
+	private double min;
+	private double max;
+	private double sum;
+	private double mean;
+	private double m2;
+
+	public ColumnStats() {
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	public ColumnStats(ColumnStats other) {
+		count = other.count;
+		missing = other.missing;
+		numbers = other.numbers;
+		integers = other.integers;
+		min = other.min;
+		max = other.max;
+		sum = other.sum;
+		mean = other.mean;
+		m2 = other.m2;
+	}
+
+	void addMissing(long times) {
+		count += times;
+		missing += times;
+	}
+
+	void addWords(long times) {
+		count += times;
+	}
+
+	void addNumber(double x, boolean integer) {
+		count++;
+		numbers++;
+		if (integer) {
+			integers++;
+		}
+
+		min = Math.min(min, x);
+		max = Math.max(max, x);
+		sum += x;
+
+		// from:
+		// https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Online_algorithm
+		double delta = x - mean;
+		mean += delta / numbers;
+		double delta2 = x - mean;
+		m2 += delta * delta2;
+	}
+
+	void addNumber(double x, boolean integer, long times) {
+		if (times <= 0) {
+			return;
+		}
+
+		count += times;
+		if (integer) {
+			integers += times;
+		}
+
+		min = Math.min(min, x);
+		max = Math.max(max, x);
+		sum += x * times;
+
+		combine(times, x, 0.0);
+	}
+
+	/**
+	 * Adds the other summary to this one, as if its values had been added here.
+	 */
+	public void merge(ColumnStats other) {
+		count += other.count;
+		missing += other.missing;
+		integers += other.integers;
+
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		sum += other.sum;
+
+		combine(other.numbers, other.mean, other.m2);
+	}
+
+	private void combine(long nb, double meanb, double m2b) {
+		if (nb == 0) {
+			return;
+		}
+
+		// from:
+		// https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Parallel_algorithm
+		long na = numbers;
+		long n = na + nb;
+		double delta = meanb - mean;
+		mean += delta * nb / n;
+		m2 += m2b + delta * delta * ((double) na * nb / n);
+		numbers = n;
+	}
+
+	/**
+	 * Number of values, missing ones included.
+	 */
+	public long count() {
+		return count;
+	}
+
+	public long missing() {
+		return missing;
+	}
+
+	public long numbers() {
+		return numbers;
+	}
+
+	public long integers() {
+		return integers;
+	}
+
+	public long words() {
+		return count - numbers - missing;
+	}
+
+	/**
+	 * Smallest number, or positive infinity if there are none.
+	 */
+	public double min() {
+		return min;
+	}
+
+	/**
+	 * Largest number, or negative infinity if there are none.
+	 */
+	public double max() {
+		return max;
+	}
+
+	public double sum() {
+		return sum;
+	}
+
+	public double mean() {
+		return mean;
+	}
+
+	/**
+	 * Sample variance of the numbers, 0 with less than two.
+	 */
+	public double var() {
+		if (numbers >= 2) {
+			return m2 / (numbers - 1);
+		}
+		return 0.0;
+	}
+
+	public double stdev() {
+		return sqrt(var());
+	}
+}
@@ -0,0 +1,232 @@
+package com.tinyml.structs;
+
+import static org.bytedeco.javacpp.openblas.CblasRowMajor;
+import static org.bytedeco.javacpp.openblas.CblasTrans;
+import static org.bytedeco.javacpp.openblas.CblasUpper;
+import static org.bytedeco.javacpp.openblas.cblas_sgemv;
+import static org.bytedeco.javacpp.openblas.cblas_ssyrk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Scatter matrix of rows added in blocks, each with one symmetric rank-k update.
+ */
+public class Covariance {
+
+	// floats per block, which bounds the temporary copies
+	private static final int BLOCK_FLOATS = 1 << 20;
+	private static final int MIN_BLOCK_ROWS = 256;
+
+	private final int n;
+	private final boolean center;
+
+	private long count;
+	private final double[] mean;
+	// upper triangle, row-major
+	private final double[] scatter;
+
+	private float[] values;
+	private double[] blockMean;
+	private float[] blockGram;
+	private ByteBuffer rowsBuf;
+	private ByteBuffer gramBuf;
+	private ByteBuffer onesBuf;
+	private ByteBuffer sumsBuf;
+
+	public Covariance(int cols, boolean center) {
+		if (cols < 1) {
+			throw new IllegalArgumentException("The cols parameter must be 1 or higher. Got: " + cols + ".");
+		}
+		this.n = cols;
+		this.center = center;
+		this.mean = new double[cols];
+		this.scatter = new double[cols * cols];
+	}
+
+	public void add(Mat rows) {
+		if (rows.cols() != n) {
+			throw new IllegalArgumentException(
+					"The number of columns must be " + n + ". Got: " + rows.cols() + ".");
+		}
+
+		FloatBuffer data = rows.buffer().asFloatBuffer();
+		add(data, rows.rows());
+		Buffers.reachable(rows);
+	}
+
+	void add(FloatBuffer data, int m) {
+		if (data.remaining() < (long) m * n) {
+			throw new IllegalArgumentException(
+					"Not enough values. Expected " + ((long) m * n) + ", but got " + data.remaining() + ".");
+		}
+
+		int block = Math.max(MIN_BLOCK_ROWS, BLOCK_FLOATS / n);
+		int start = data.position();
+		for (int at = 0; at < m; at += block) {
+			int l = Math.min(block, m - at);
+
+			FloatBuffer rows = data.duplicate();
+			rows.position(start + at * n);
+			rows.limit(start + (at + l) * n);
+			addBlock(rows, l);
+		}
+	}
+
+	private void alloc(int block) {
+		if (values != null && values.length >= block * n) {
+			return;
+		}
+
+		// the backend loads the native libraries
+		Nd4j.getBackend();
+
+		values = new float[block * n];
+		blockMean = new double[n];
+		blockGram = new float[n * n];
+		rowsBuf = ByteBuffer.allocateDirect(block * n * 4).order(ByteOrder.nativeOrder());
+		gramBuf = ByteBuffer.allocateDirect(n * n * 4).order(ByteOrder.nativeOrder());
+		sumsBuf = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+
+		onesBuf = ByteBuffer.allocateDirect(block * 4).order(ByteOrder.nativeOrder());
+		FloatBuffer ones = onesBuf.asFloatBuffer();
+		for (int i = 0; i < block; i++) {
+			ones.put(i, 1.0f);
+		}
+	}
+
+	private void addBlock(FloatBuffer rows, int l) {
+		alloc(Math.max(MIN_BLOCK_ROWS, BLOCK_FLOATS / n));
+
+		int len = l * n;
+		double[] bm = blockMean;
+
+		FloatBuffer a;
+		if (center || rows.isDirect() == false || rows.order() != ByteOrder.nativeOrder()) {
+			rows.duplicate().get(values, 0, len);
+
+			for (int j = 0; j < n; j++) {
+				bm[j] = 0.0;
+			}
+			for (int i = 0, idx = 0; i < l; i++) {
+				for (int j = 0; j < n; j++, idx++) {
+					bm[j] += values[idx];
+				}
+			}
+			for (int j = 0; j < n; j++) {
+				bm[j] /= l;
+			}
+
+			if (center) {
+				for (int i = 0, idx = 0; i < l; i++) {
+					for (int j = 0; j < n; j++, idx++) {
+						values[idx] = (float) (values[idx] - bm[j]);
+					}
+				}
+			}
+
+			a = rowsBuf.asFloatBuffer();
+			a.put(values, 0, len);
+			a.flip();
+		} else {
+			// the rows are used in place, and their sums are the rows times ones
+			a = rows.slice();
+
+			FloatBuffer sums = sumsBuf.asFloatBuffer();
+			cblas_sgemv(CblasRowMajor, CblasTrans, l, n, 1.0f, a, n, onesBuf.asFloatBuffer(), 1, 0.0f, sums, 1);
+			for (int j = 0; j < n; j++) {
+				bm[j] = sums.get(j) / (double) l;
+			}
+		}
+
+		FloatBuffer c = gramBuf.asFloatBuffer();
+		cblas_ssyrk(CblasRowMajor, CblasUpper, CblasTrans, n, l, 1.0f, a, n, 0.0f, c, n);
+		c.get(blockGram);
+
+		combine(l, bm, blockGram, null);
+	}
+
+	private void combine(long nb, double[] meanb, float[] fscatter, double[] dscatter) {
+		long na = count;
+		long total = na + nb;
+		double w = center ? (double) na * nb / total : 0.0;
+
+		for (int i = 0; i < n; i++) {
+			double di = meanb[i] - mean[i];
+			int row = i * n;
+			for (int j = i; j < n; j++) {
+				double dj = meanb[j] - mean[j];
+				double sb = (fscatter != null) ? fscatter[row + j] : dscatter[row + j];
+				scatter[row + j] += sb + w * di * dj;
+			}
+		}
+
+		for (int j = 0; j < n; j++) {
+			mean[j] += (meanb[j] - mean[j]) * nb / total;
+		}
+		count = total;
+	}
+
+	public void merge(Covariance other) {
+		if (other.n != n || other.center != center) {
+			throw new IllegalArgumentException("Can only merge accumulators of the same columns and centering.");
+		}
+		if (other.count == 0) {
+			return;
+		}
+
+		combine(other.count, other.mean, null, other.scatter);
+	}
+
+	public int cols() {
+		return n;
+	}
+
+	public boolean isCentered() {
+		return center;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public Vec mean() {
+		return new Vec(mean);
+	}
+
+	/**
+	 * Returns the sum of the outer products of the rows, centered or not.
+	 */
+	public Mat scatter() {
+		return symmetric(1.0, false);
+	}
+
+	/**
+	 * Returns the sample covariance of the columns.
+	 */
+	public Mat cov() {
+		if (count < 2) {
+			throw new IllegalStateException("The covariance needs at least 2 rows. Got: " + count + ".");
+		}
+		return symmetric(1.0 / (count - 1), center == false);
+	}
+
+	private Mat symmetric(double scale, boolean uncenter) {
+		float[] full = new float[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = i; j < n; j++) {
+				double s = scatter[i * n + j];
+				if (uncenter) {
+					s -= count * mean[i] * mean[j];
+				}
+				float v = (float) (s * scale);
+				full[i * n + j] = v;
+				full[j * n + i] = v;
+			}
+		}
+		return new Mat(n, n, full);
+	}
+}
@@ -0,0 +1,428 @@
+package com.tinyml.structs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CSV tokenizer over the raw UTF-8 bytes of a file, writing into the columns of a {@link Grid}.
+ */
+class CsvReader {
+
+	private static final Logger log = LoggerFactory.getLogger(CsvReader.class);
+
+	private static final int BUFFER_SIZE = 1 << 22;
+
+	private static final int CACHE_SIZE = 1 << 12;
+	private static final int MAX_CACHED_LENGTH = 64;
+
+	private final byte delimiter;
+
+	private byte[] buf;
+
+	private int[] starts;
+	private int[] ends;
+	private String[] quoted;
+	private int fields;
+
+	private byte[] scratch;
+
+	// recently seen words, so repeated ones are not allocated again
+	private final byte[][] cacheKeys;
+	private final String[] cacheVals;
+
+	private long line;
+
+	CsvReader(char delimiter) {
+		this(delimiter, BUFFER_SIZE);
+	}
+
+	CsvReader(char delimiter, int bufferSize) {
+		if (delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+			throw new IllegalArgumentException(
+					"The delimiter must be an ASCII character other than a quote or a line break. Got: '"
+							+ delimiter + "'.");
+		}
+
+		this.delimiter = (byte) delimiter;
+		buf = new byte[bufferSize];
+		starts = new int[64];
+		ends = new int[64];
+		quoted = new String[64];
+		scratch = new byte[256];
+		cacheKeys = new byte[CACHE_SIZE][];
+		cacheVals = new String[CACHE_SIZE];
+	}
+
+	/**
+	 * Splits the file in about parts ranges starting on a record. Returns their offsets and the file size.
+	 */
+	static long[] split(final FileChannel ch, int parts, ForkJoinPool pool) throws IOException {
+		final long size = ch.size();
+		final long block = (size + parts - 1) / Math.max(parts, 1);
+
+		List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+		for (int k = 0; k < parts && k * block < size; k++) {
+			final long start = k * block;
+			final long end = Math.min(size, start + block);
+			tasks.add(pool.submit(new Callable<long[]>() {
+				@Override
+				public long[] call() throws IOException {
+					return scan(ch, start, end);
+				}
+			}));
+		}
+
+		List<Long> offsets = new ArrayList<>();
+		offsets.add(0L);
+
+		long quotes = 0;
+		for (int k = 0; k < tasks.size(); k++) {
+			long[] info = Tasks.join(tasks.get(k));
+			if (k > 0) {
+				long nl = (quotes % 2 == 0) ? info[1] : info[2];
+				if (nl >= 0 && nl + 1 < size) {
+					offsets.add(nl + 1);
+				}
+			}
+			quotes += info[0];
+		}
+		offsets.add(size);
+
+		long[] ans = new long[offsets.size()];
+		for (int i = 0; i < ans.length; i++) {
+			ans[i] = offsets.get(i);
+		}
+		return ans;
+	}
+
+	// the quotes in the range, and the first line break after an even and an odd number of them
+	private static long[] scan(FileChannel ch, long start, long end) throws IOException {
+		byte[] arr = new byte[1 << 16];
+		ByteBuffer bb = ByteBuffer.wrap(arr);
+
+		long quotes = 0;
+		long even = -1;
+		long odd = -1;
+
+		long pos = start;
+		while (pos < end) {
+			bb.clear();
+			bb.limit((int) Math.min(arr.length, end - pos));
+			int n = ch.read(bb, pos);
+			if (n <= 0) {
+				break;
+			}
+
+			for (int i = 0; i < n; i++) {
+				byte b = arr[i];
+				if (b == '"') {
+					quotes++;
+				} else if (b == '\n') {
+					if ((quotes & 1) == 0) {
+						if (even < 0) {
+							even = pos + i;
+						}
+					} else if (odd < 0) {
+						odd = pos + i;
+					}
+				}
+			}
+			pos += n;
+		}
+
+		return new long[] { quotes, even, odd };
+	}
+
+	/**
+	 * Reads the records of the byte range into the grid. Returns the number of records, empty rows included.
+	 */
+	long read(FileChannel ch, long start, long end, Grid g) throws IOException {
+		long records = 0;
+		long pos = start;
+		int limit = 0;
+		int at = 0;
+		boolean eof = false;
+
+		while (true) {
+			if (at >= limit && eof) {
+				break;
+			}
+
+			int next = (at < limit) ? parseRecord(at, limit, eof) : -1;
+			if (next >= 0) {
+				append(g);
+				records++;
+				at = next;
+				continue;
+			}
+
+			// the record is not complete, keep its bytes and read some more
+			int rest = limit - at;
+			if (rest >= buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			} else if (at > 0) {
+				System.arraycopy(buf, at, buf, 0, rest);
+			}
+			at = 0;
+			limit = rest;
+
+			int want = (int) Math.min(buf.length - limit, end - pos);
+			if (want <= 0) {
+				eof = true;
+				continue;
+			}
+
+			ByteBuffer bb = ByteBuffer.wrap(buf, limit, want);
+			int n = ch.read(bb, pos);
+			if (n < 0) {
+				eof = true;
+				continue;
+			}
+			pos += n;
+			limit += n;
+			if (pos >= end) {
+				eof = true;
+			}
+		}
+
+		return records;
+	}
+
+	// returns the position after the record, or -1 if it goes past limit
+	private int parseRecord(int pos, int limit, boolean eof) {
+		fields = 0;
+		long lines = 0;
+
+		while (true) {
+			int i = pos;
+
+			// a quote is only special as the first non blank of the field
+			while (i < limit && isBlank(buf[i])) {
+				i++;
+			}
+
+			if (i < limit && buf[i] == '"') {
+				int len = 0;
+				i++;
+				while (true) {
+					if (i >= limit) {
+						if (eof) {
+							throw new IllegalDataException(
+									"Unterminated quoted field at line " + (line + lines + 1) + ".");
+						}
+						return -1;
+					}
+
+					byte b = buf[i];
+					if (b == '"') {
+						if (i + 1 >= limit && eof == false) {
+							return -1;
+						}
+						if (i + 1 < limit && buf[i + 1] == '"') {
+							len = put(len, b);
+							i += 2;
+							continue;
+						}
+						i++;
+						break;
+					}
+
+					if (b == '\n') {
+						lines++;
+					}
+					len = put(len, b);
+					i++;
+				}
+
+				while (i < limit && isBlank(buf[i])) {
+					i++;
+				}
+
+				if (i < limit && buf[i] != delimiter && buf[i] != '\n') {
+					throw new IllegalDataException(
+							"Unexpected character after a quoted field at line " + (line + lines + 1) + ".");
+				}
+
+				field(i, i, new String(scratch, 0, len, StandardCharsets.UTF_8));
+			} else {
+				while (i < limit && buf[i] != delimiter && buf[i] != '\n') {
+					i++;
+				}
+				field(pos, i, null);
+			}
+
+			if (i >= limit) {
+				if (eof == false) {
+					return -1;
+				}
+				line += lines + 1;
+				return i;
+			}
+
+			if (buf[i] == '\n') {
+				line += lines + 1;
+				return i + 1;
+			}
+
+			pos = i + 1;
+		}
+	}
+
+	private static boolean isBlank(byte b) {
+		// same characters String.trim() removes, except the line break
+		return b >= 0 && b <= ' ' && b != '\n';
+	}
+
+	private int put(int len, byte b) {
+		if (len >= scratch.length) {
+			scratch = Arrays.copyOf(scratch, scratch.length * 2);
+		}
+		scratch[len] = b;
+		return len + 1;
+	}
+
+	private void field(int start, int end, String str) {
+		if (fields >= starts.length) {
+			starts = Arrays.copyOf(starts, starts.length * 2);
+			ends = Arrays.copyOf(ends, ends.length * 2);
+			quoted = Arrays.copyOf(quoted, quoted.length * 2);
+		}
+
+		starts[fields] = start;
+		ends[fields] = end;
+		quoted[fields] = str;
+		fields++;
+	}
+
+	private void append(Grid g) {
+		boolean empty = true;
+		for (int j = 0; j < fields; j++) {
+			if (trim(j)) {
+				empty = false;
+			}
+		}
+
+		if (empty) {
+			log.warn("Ignoring full empty row.");
+			return;
+		}
+
+		g.beginRow(fields);
+		for (int j = 0; j < fields; j++) {
+			GridColumn c = g.column(j);
+
+			if (quoted[j] != null) {
+				c.add(quoted[j]);
+				continue;
+			}
+
+			int s = starts[j];
+			int e = ends[j];
+			if (s >= e) {
+				c.addNull();
+				continue;
+			}
+
+			if (c.type() == GridColumn.Type.INTEGER) {
+				long val = Numbers.parseInt(buf, s, e);
+				if (val != Numbers.NOT_INT) {
+					c.addInteger((int) val);
+					continue;
+				}
+			}
+
+			c.add(word(s, e));
+		}
+		g.endRow(fields);
+	}
+
+	private boolean trim(int j) {
+		String str = quoted[j];
+		if (str != null) {
+			if (str.isEmpty()) {
+				quoted[j] = null;
+				starts[j] = ends[j];
+				return false;
+			}
+
+			String trimmed = str.trim();
+			if (trimmed.isEmpty()) {
+				log.warn("Adding a value full of spaces. Default to null. Col: " + (j + 1));
+				quoted[j] = null;
+				starts[j] = ends[j];
+				return false;
+			}
+
+			quoted[j] = trimmed;
+			return true;
+		}
+
+		int s = starts[j];
+		int e = ends[j];
+		if (s >= e) {
+			return false;
+		}
+
+		while (s < e && isBlank(buf[s])) {
+			s++;
+		}
+		while (e > s && isBlank(buf[e - 1])) {
+			e--;
+		}
+
+		if (s >= e) {
+			log.warn("Adding a value full of spaces. Default to null. Col: " + (j + 1));
+			starts[j] = e;
+			ends[j] = e;
+			return false;
+		}
+
+		starts[j] = s;
+		ends[j] = e;
+		return true;
+	}
+
+	private String word(int start, int end) {
+		int len = end - start;
+		if (len > MAX_CACHED_LENGTH) {
+			return new String(buf, start, len, StandardCharsets.UTF_8);
+		}
+
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + buf[i];
+		}
+		h ^= h >>> 16;
+		int slot = h & (CACHE_SIZE - 1);
+
+		byte[] key = cacheKeys[slot];
+		if (key != null && key.length == len) {
+			boolean same = true;
+			for (int i = 0; i < len; i++) {
+				if (key[i] != buf[start + i]) {
+					same = false;
+					break;
+				}
+			}
+			if (same) {
+				return cacheVals[slot];
+			}
+		}
+
+		String str = new String(buf, start, len, StandardCharsets.UTF_8);
+		cacheKeys[slot] = Arrays.copyOfRange(buf, start, end);
+		cacheVals[slot] = str;
+		return str;
+	}
+}
@@ -0,0 +1,135 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.tinyml.structs.LinearModel.Loss;
+
+/**
+ * Gradient boosted trees fitted by {@link GbdtTrainer}, stored as flat complete binary trees.
+ */
+public class GbdtModel {
+
+	// rows per task, and rows scored tree after tree so their bins stay in the cache
+	private static final int RANGE = 1 << 16;
+	private static final int BLOCK = 1024;
+
+	private final Loss loss;
+	private final Binner binner;
+	private final int trees;
+	private final int depth;
+	private final float base;
+	// per tree, the feature and the four words of the mask of each inner node
+	private final int[] features;
+	private final long[] masks;
+	// per tree, the values of its leaves
+	private final float[] leaves;
+	private final double[] seconds;
+	private final double[] losses;
+
+	GbdtModel(Loss loss, Binner binner, int trees, int depth, float base, int[] features, long[] masks,
+			float[] leaves, double[] seconds, double[] losses) {
+		this.loss = loss;
+		this.binner = binner;
+		this.trees = trees;
+		this.depth = depth;
+		this.base = base;
+		this.features = features;
+		this.masks = masks;
+		this.leaves = leaves;
+		this.seconds = seconds;
+		this.losses = losses;
+	}
+
+	public Loss loss() {
+		return loss;
+	}
+
+	public int trees() {
+		return trees;
+	}
+
+	public int depth() {
+		return depth;
+	}
+
+	/**
+	 * Number of columns of the grids the model scores.
+	 */
+	public int cols() {
+		return binner.cols();
+	}
+
+	/**
+	 * Wall time of the tree, in seconds.
+	 */
+	public double seconds(int tree) {
+		return seconds[tree];
+	}
+
+	/**
+	 * Mean training loss once the tree is added.
+	 */
+	public double loss(int tree) {
+		return losses[tree];
+	}
+
+	/**
+	 * Returns the score of each row: the value, or the probability of the positive class for logistic loss.
+	 */
+	public Vec predict(Grid g) {
+		final byte[][] bins = binner.bin(g);
+		final int rows = g.rows();
+		final float[] out = new float[rows];
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int from = 0; from < rows; from += RANGE) {
+			final int start = from;
+			final int end = Math.min(rows, from + RANGE);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int at = start; at < end; at += BLOCK) {
+						score(bins, at, Math.min(end, at + BLOCK), out);
+					}
+					return null;
+				}
+			});
+		}
+		Tasks.run(tasks);
+
+		if (loss == Loss.LOGISTIC) {
+			for (int i = 0; i < rows; i++) {
+				out[i] = LinearModel.sigmoid(out[i]);
+			}
+		}
+		return new Vec(out);
+	}
+
+	/**
+	 * Writes the raw scores of the rows from, to into out.
+	 */
+	void score(byte[][] bins, int from, int to, float[] out) {
+		int inner = (1 << depth) - 1;
+		for (int i = from; i < to; i++) {
+			out[i] = base;
+		}
+
+		for (int t = 0; t < trees; t++) {
+			int nodes = t * inner;
+			int leaf = t * (inner + 1) - inner;
+			for (int i = from; i < to; i++) {
+				int node = 0;
+				for (int d = 0; d < depth; d++) {
+					int at = nodes + node;
+					int b = bins[features[at]][i] & 0xff;
+					// 1 to go left, the shift only takes the low 6 bits of b
+					int left = (int) (masks[4 * at + (b >>> 6)] >>> b) & 1;
+					node = 2 * node + 2 - left;
+				}
+				out[i] += leaves[leaf + node];
+			}
+		}
+	}
+}
@@ -0,0 +1,586 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.tinyml.structs.LinearModel.Loss;
+
+/**
+ * Fits gradient boosted decision trees on the columns of a grid, with splits found on histograms of binned values.
+ */
+public class GbdtTrainer {
+
+	public static final int DEFAULT_TREES = 100;
+	public static final int DEFAULT_DEPTH = 6;
+	public static final float DEFAULT_LEARNING_RATE = 0.1f;
+	public static final int DEFAULT_MIN_ROWS = 20;
+	public static final float DEFAULT_L2 = 1f;
+
+	static final int MAX_DEPTH = 12;
+
+	// sum of the gradients, of the hessians and count of each bin of a column
+	private static final int STRIDE = 3 * Binner.MAX_BINS;
+	// columns per histogram task
+	private static final int COLS_PER_TASK = 4;
+	// rows per task, and the rows a node needs to run its columns in parallel
+	private static final int RANGE = 1 << 16;
+	private static final double MIN_HESSIAN = 1e-3;
+
+	private final Loss loss;
+
+	private int trees = DEFAULT_TREES;
+	private int depth = DEFAULT_DEPTH;
+	private float learningRate = DEFAULT_LEARNING_RATE;
+	private int minRows = DEFAULT_MIN_ROWS;
+	private float l2 = DEFAULT_L2;
+
+	public GbdtTrainer(Loss loss) {
+		if (loss == null) {
+			throw new IllegalArgumentException("The loss parameter can not be null.");
+		}
+		this.loss = loss;
+	}
+
+	public GbdtTrainer trees(int trees) {
+		if (trees < 1) {
+			throw new IllegalArgumentException("The trees parameter must be 1 or higher. Got: " + trees + ".");
+		}
+		this.trees = trees;
+		return this;
+	}
+
+	public GbdtTrainer depth(int depth) {
+		if (depth < 1 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException(
+					"The depth parameter must be between 1 and " + MAX_DEPTH + ". Got: " + depth + ".");
+		}
+		this.depth = depth;
+		return this;
+	}
+
+	public GbdtTrainer learningRate(float learningRate) {
+		if ((learningRate > 0f) == false) {
+			throw new IllegalArgumentException("The learningRate parameter must be positive. Got: " + learningRate
+					+ ".");
+		}
+		this.learningRate = learningRate;
+		return this;
+	}
+
+	/**
+	 * Fewest rows a leaf can have.
+	 */
+	public GbdtTrainer minRows(int minRows) {
+		if (minRows < 1) {
+			throw new IllegalArgumentException("The minRows parameter must be 1 or higher. Got: " + minRows + ".");
+		}
+		this.minRows = minRows;
+		return this;
+	}
+
+	/**
+	 * L2 regularization of the leaf values.
+	 */
+	public GbdtTrainer l2(float l2) {
+		if ((l2 >= 0f) == false) {
+			throw new IllegalArgumentException("The l2 parameter must be 0 or higher. Got: " + l2 + ".");
+		}
+		this.l2 = l2;
+		return this;
+	}
+
+	/**
+	 * Fits the trees on all the columns of the grid to the labels, one per row.
+	 */
+	public GbdtModel fit(Grid g, Vec y) {
+		int m = g.rows();
+		if (y.length() != m) {
+			throw new IllegalArgumentException("There must be one label per row. Expected " + m + ", got "
+					+ y.length() + ".");
+		}
+		float[] labels = y.toArray();
+		double sum = 0.0;
+		for (int i = 0; i < m; i++) {
+			float v = labels[i];
+			if (loss == Loss.LOGISTIC && (v >= 0f && v <= 1f) == false) {
+				throw new IllegalArgumentException(
+						"The labels of logistic loss must be between 0 and 1. Got: " + v + " at row " + i + ".");
+			}
+			if (Float.isNaN(v) || Float.isInfinite(v)) {
+				throw new IllegalArgumentException("The labels must be finite. Got: " + v + " at row " + i + ".");
+			}
+			sum += v;
+		}
+
+		float base = (m > 0) ? (float) (sum / m) : 0f;
+		if (loss == Loss.LOGISTIC) {
+			double p = Math.min(1.0 - 1e-6, Math.max(1e-6, base));
+			base = (float) Math.log(p / (1.0 - p));
+		}
+
+		Binner binner = Binner.fit(g);
+		Builder b = new Builder(binner, binner.bin(g), labels, base);
+
+		int inner = (1 << depth) - 1;
+		int[] features = new int[trees * inner];
+		long[] masks = new long[4 * trees * inner];
+		float[] leaves = new float[trees * (inner + 1)];
+		double[] seconds = new double[trees];
+		double[] losses = new double[trees];
+
+		b.gradients();
+		for (int t = 0; t < trees; t++) {
+			long start = System.nanoTime();
+			b.grow(t * inner, features, masks, t * (inner + 1), leaves);
+			losses[t] = b.gradients();
+			seconds[t] = (System.nanoTime() - start) / 1e9;
+		}
+
+		return new GbdtModel(loss, binner, trees, depth, base, features, masks, leaves, seconds, losses);
+	}
+
+	private static class Node {
+
+		// level and position in it
+		final int level;
+		final int pos;
+		final int begin;
+		final int end;
+		final double g;
+		final double h;
+		double[] hist;
+
+		// best split of each column, as a gain and a threshold or a count of bins
+		double[] gains;
+		int[] args;
+		int feature = -1;
+		final long[] mask = new long[4];
+
+		Node(int level, int pos, int begin, int end, double g, double h) {
+			this.level = level;
+			this.pos = pos;
+			this.begin = begin;
+			this.end = end;
+			this.g = g;
+			this.h = h;
+		}
+
+		int rows() {
+			return end - begin;
+		}
+
+		boolean left(int bin) {
+			return ((mask[bin >>> 6] >>> bin) & 1L) != 0;
+		}
+	}
+
+	private class Builder {
+
+		final Binner binner;
+		final byte[][] bins;
+		final int cols;
+		final int m;
+		final float[] labels;
+		final float[] pred;
+		final float[] grad;
+		final float[] hess;
+
+		// the rows of each node are together, and their gradients in the same order
+		final int[] rows;
+		final int[] tmp;
+		final float[] og;
+		final float[] oh;
+
+		Builder(Binner binner, byte[][] bins, float[] labels, float base) {
+			this.binner = binner;
+			this.bins = bins;
+			this.cols = binner.cols();
+			this.m = labels.length;
+			this.labels = labels;
+
+			pred = new float[m];
+			Arrays.fill(pred, base);
+			grad = new float[m];
+			hess = new float[m];
+			rows = new int[m];
+			tmp = new int[m];
+			og = new float[m];
+			oh = new float[m];
+		}
+
+		/**
+		 * Computes the gradients of the scores and returns the mean loss.
+		 */
+		double gradients() {
+			final int parts = (m + RANGE - 1) / RANGE;
+			final double[] sums = new double[parts];
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int p = 0; p < parts; p++) {
+				final int part = p;
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						double s = 0.0;
+						for (int i = part * RANGE; i < Math.min(m, (part + 1) * RANGE); i++) {
+							float z = pred[i];
+							float y = labels[i];
+							if (loss == Loss.LOGISTIC) {
+								float p = LinearModel.sigmoid(z);
+								grad[i] = p - y;
+								hess[i] = Math.max(p * (1f - p), 1e-16f);
+								s += Math.max(z, 0f) + Math.log1p(Math.exp(-Math.abs(z))) - y * z;
+							} else {
+								grad[i] = z - y;
+								hess[i] = 1f;
+								s += 0.5 * (z - y) * (z - y);
+							}
+						}
+						sums[part] = s;
+						return null;
+					}
+				});
+			}
+			Tasks.run(tasks);
+
+			double s = 0.0;
+			for (double part : sums) {
+				s += part;
+			}
+			return (m > 0) ? s / m : 0.0;
+		}
+
+		/**
+		 * Grows a tree on the gradients, writes it at the offsets and adds its
+		 * leaf values to the scores.
+		 */
+		void grow(int nodeOffset, int[] features, long[] masks, int leafOffset, float[] leaves) {
+			double g = 0.0;
+			double h = 0.0;
+			for (int i = 0; i < m; i++) {
+				rows[i] = i;
+				g += grad[i];
+				h += hess[i];
+			}
+			System.arraycopy(grad, 0, og, 0, m);
+			System.arraycopy(hess, 0, oh, 0, m);
+
+			Node root = new Node(0, 0, 0, m, g, h);
+			root.hist = new double[cols * STRIDE];
+			List<Node> level = new ArrayList<>();
+			level.add(root);
+			histograms(level, null);
+
+			for (int d = 0; d < depth && level.isEmpty() == false; d++) {
+				splits(level);
+
+				List<Node> parents = new ArrayList<>();
+				List<Node> children = new ArrayList<>();
+				for (Node n : level) {
+					if (n.feature < 0) {
+						leaf(n, leafOffset, leaves);
+						continue;
+					}
+
+					int at = nodeOffset + (1 << d) - 1 + n.pos;
+					features[at] = n.feature;
+					System.arraycopy(n.mask, 0, masks, 4 * at, 4);
+					parents.add(n);
+				}
+
+				partition(parents, children);
+				if (d == depth - 1) {
+					for (Node c : children) {
+						leaf(c, leafOffset, leaves);
+					}
+				} else {
+					histograms(children, parents);
+				}
+				level = children;
+			}
+		}
+
+		private void leaf(Node n, int leafOffset, float[] leaves) {
+			float value = (float) (-n.g / (n.h + l2)) * learningRate;
+			// the rows of a node that does not split go right down to the last level
+			int below = depth - n.level;
+			leaves[leafOffset + (n.pos << below) + (1 << below) - 1] = value;
+			for (int i = n.begin; i < n.end; i++) {
+				pred[rows[i]] += value;
+			}
+		}
+
+		// only the smaller child of each pair scans its rows, the other is the parent minus it
+		private void histograms(final List<Node> nodes, final List<Node> parents) {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int k = 0; k < nodes.size(); k += (parents == null) ? 1 : 2) {
+				final Node small;
+				final Node large;
+				final Node parent;
+				if (parents == null) {
+					small = nodes.get(k);
+					large = null;
+					parent = null;
+				} else {
+					Node a = nodes.get(k);
+					Node b = nodes.get(k + 1);
+					small = (a.rows() <= b.rows()) ? a : b;
+					large = (small == a) ? b : a;
+					parent = parents.get(k / 2);
+					small.hist = new double[cols * STRIDE];
+					large.hist = parent.hist;
+				}
+
+				// small nodes take all their columns in one task
+				int step = (small.rows() >= RANGE) ? COLS_PER_TASK : cols;
+				for (int f = 0; f < cols; f += step) {
+					final int from = f;
+					final int to = Math.min(cols, f + step);
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							for (int j = from; j < to; j++) {
+								scan(small, j);
+								if (large != null) {
+									// in place, the parent histograms are not needed any more
+									double[] lh = large.hist;
+									double[] sh = small.hist;
+									for (int k = j * STRIDE; k < (j + 1) * STRIDE; k++) {
+										lh[k] -= sh[k];
+									}
+								}
+							}
+							return null;
+						}
+					});
+				}
+			}
+			Tasks.run(tasks);
+		}
+
+		private void scan(Node n, int j) {
+			double[] hist = n.hist;
+			byte[] b = bins[j];
+			int base = j * STRIDE;
+			for (int i = n.begin; i < n.end; i++) {
+				int k = base + 3 * (b[rows[i]] & 0xff);
+				hist[k] += og[i];
+				hist[k + 1] += oh[i];
+				hist[k + 2] += 1.0;
+			}
+		}
+
+		private void splits(List<Node> nodes) {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (final Node n : nodes) {
+				n.gains = new double[cols];
+				n.args = new int[cols];
+				for (int f = 0; f < cols; f += COLS_PER_TASK) {
+					final int from = f;
+					final int to = Math.min(cols, f + COLS_PER_TASK);
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							long[] order = new long[Binner.MAX_BINS];
+							for (int j = from; j < to; j++) {
+								if (binner.isNumeric(j)) {
+									numeric(n, j);
+								} else {
+									category(n, j, order);
+								}
+							}
+							return null;
+						}
+					});
+				}
+			}
+			Tasks.run(tasks);
+
+			for (Node n : nodes) {
+				double best = 0.0;
+				for (int j = 0; j < cols; j++) {
+					if (n.gains[j] > best) {
+						best = n.gains[j];
+						n.feature = j;
+					}
+				}
+				if (n.feature >= 0) {
+					mask(n);
+				}
+				n.gains = null;
+				n.args = null;
+			}
+		}
+
+		// 0 when a side is too small
+		private double gain(Node n, double lg, double lh, double lc) {
+			double rc = n.rows() - lc;
+			double rh = n.h - lh;
+			if (lc < minRows || rc < minRows || lh < MIN_HESSIAN || rh < MIN_HESSIAN) {
+				return 0.0;
+			}
+			double rg = n.g - lg;
+			return lg * lg / (lh + l2) + rg * rg / (rh + l2) - n.g * n.g / (n.h + l2);
+		}
+
+		// the argument is twice the last bin on the left, plus 1 when the missing values go left
+		private void numeric(Node n, int j) {
+			double[] hist = n.hist;
+			int base = j * STRIDE;
+			double mg = hist[base];
+			double mh = hist[base + 1];
+			double mc = hist[base + 2];
+
+			double bestGain = 0.0;
+			int bestArg = -1;
+			if (mc > 0) {
+				double gain = gain(n, mg, mh, mc);
+				if (gain > bestGain) {
+					bestGain = gain;
+					bestArg = 1;
+				}
+			}
+
+			double lg = 0.0;
+			double lh = 0.0;
+			double lc = 0.0;
+			int bins = binner.bins(j);
+			for (int t = 1; t < bins - 1; t++) {
+				int k = base + 3 * t;
+				lg += hist[k];
+				lh += hist[k + 1];
+				lc += hist[k + 2];
+
+				double gain = gain(n, lg, lh, lc);
+				if (gain > bestGain) {
+					bestGain = gain;
+					bestArg = 2 * t;
+				}
+				if (mc > 0) {
+					gain = gain(n, lg + mg, lh + mh, lc + mc);
+					if (gain > bestGain) {
+						bestGain = gain;
+						bestArg = 2 * t + 1;
+					}
+				}
+			}
+
+			n.gains[j] = bestGain;
+			n.args[j] = bestArg;
+		}
+
+		// bins sorted by gradient ratio, the argument is the number of bins on the left
+		private void category(Node n, int j, long[] order) {
+			int len = sort(n, j, order);
+
+			double[] hist = n.hist;
+			double bestGain = 0.0;
+			int bestArg = -1;
+			double lg = 0.0;
+			double lh = 0.0;
+			double lc = 0.0;
+			for (int t = 0; t < len - 1; t++) {
+				int k = j * STRIDE + 3 * (int) order[t];
+				lg += hist[k];
+				lh += hist[k + 1];
+				lc += hist[k + 2];
+
+				double gain = gain(n, lg, lh, lc);
+				if (gain > bestGain) {
+					bestGain = gain;
+					bestArg = t + 1;
+				}
+			}
+
+			n.gains[j] = bestGain;
+			n.args[j] = bestArg;
+		}
+
+		// each entry is the ratio g / (h + l2) as an ordered int, then the bin
+		private int sort(Node n, int j, long[] order) {
+			double[] hist = n.hist;
+			int len = 0;
+			for (int bin = 0; bin < binner.bins(j); bin++) {
+				int k = j * STRIDE + 3 * bin;
+				if (hist[k + 2] > 0) {
+					int bits = Float.floatToIntBits((float) (hist[k] / (hist[k + 1] + l2)));
+					// negative floats order backwards as ints
+					bits ^= (bits >> 31) & 0x7fffffff;
+					order[len++] = ((long) bits << 32) | bin;
+				}
+			}
+			Arrays.sort(order, 0, len);
+			return len;
+		}
+
+		private void mask(Node n) {
+			int j = n.feature;
+			int arg = n.args[j];
+			if (binner.isNumeric(j)) {
+				for (int bin = 1; bin <= arg / 2; bin++) {
+					n.mask[bin >>> 6] |= 1L << bin;
+				}
+				if ((arg & 1) != 0) {
+					n.mask[0] |= 1L;
+				}
+			} else {
+				long[] order = new long[Binner.MAX_BINS];
+				sort(n, j, order);
+				for (int t = 0; t < arg; t++) {
+					int bin = (int) order[t];
+					n.mask[bin >>> 6] |= 1L << bin;
+				}
+			}
+		}
+
+		private void partition(final List<Node> parents, List<Node> children) {
+			final int[] lefts = new int[parents.size()];
+			final double[][] sums = new double[parents.size()][];
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int p = 0; p < parents.size(); p++) {
+				final int k = p;
+				final Node n = parents.get(p);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						byte[] b = bins[n.feature];
+						int l = n.begin;
+						int r = n.begin;
+						double lg = 0.0;
+						double lh = 0.0;
+						for (int i = n.begin; i < n.end; i++) {
+							int row = rows[i];
+							if (n.left(b[row] & 0xff)) {
+								rows[l++] = row;
+								lg += grad[row];
+								lh += hess[row];
+							} else {
+								tmp[r++] = row;
+							}
+						}
+						System.arraycopy(tmp, n.begin, rows, l, r - n.begin);
+
+						for (int i = n.begin; i < n.end; i++) {
+							og[i] = grad[rows[i]];
+							oh[i] = hess[rows[i]];
+						}
+						lefts[k] = l;
+						sums[k] = new double[] { lg, lh };
+						return null;
+					}
+				});
+			}
+			Tasks.run(tasks);
+
+			for (int p = 0; p < parents.size(); p++) {
+				Node n = parents.get(p);
+				int l = lefts[p];
+				double lg = sums[p][0];
+				double lh = sums[p][1];
+				children.add(new Node(n.level + 1, 2 * n.pos, n.begin, l, lg, lh));
+				children.add(new Node(n.level + 1, 2 * n.pos + 1, l, n.end, n.g - lg, n.h - lh));
+			}
+		}
+	}
+}
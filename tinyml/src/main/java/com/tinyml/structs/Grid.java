@@ -16,18 +16,51 @@ public class Grid {
 	private static final int MAX_PRINT_ROWS = 300;
 	private static final int MAX_PRINT_COLS = 300;
 
-	private final List<String[]> grid;
+	private final List<GridColumn> columns;
 
 	private int rows;
 	private int cols;
 
 	public Grid() {
-		grid = new ArrayList<String[]>();
+		columns = new ArrayList<GridColumn>();
+	}
+
+	/**
+	 * Creates a grid over already built columns of the given number of rows.
+	 */
+	Grid(List<GridColumn> columns, int rows) {
+		this.columns = new ArrayList<GridColumn>(columns);
+		this.rows = rows;
+		this.cols = columns.size();
 	}
 
 	private void quickAdd(String[] row) {
-		grid.add(row);
-		cols = Math.max(cols, row.length);
+		beginRow(row.length);
+		for (int j = 0; j < row.length; j++) {
+			columns.get(j).add(row[j]);
+		}
+		endRow(row.length);
+	}
+
+	/**
+	 * Starts a row of len values, adding the columns it needs. The caller must
+	 * add exactly one value to each of the first len columns and then call
+	 * {@link #endRow(int)}.
+	 */
+	void beginRow(int len) {
+		for (int j = cols; j < len; j++) {
+			// rows added before this column existed are missing
+			GridColumn c = new GridColumn();
+			c.addNulls(rows);
+			columns.add(c);
+		}
+		cols = columns.size();
+	}
+
+	void endRow(int len) {
+		for (int j = len; j < cols; j++) {
+			columns.get(j).addNull();
+		}
 		rows++;
 	}
 
@@ -69,6 +102,25 @@ public class Grid {
 		quickAdd(record);
 	}
 
+	/**
+	 * Appends all the rows of the other grid, in order.
+	 */
+	public void addAll(Grid other) {
+		if (other == null) {
+			throw new IllegalArgumentException("The other parameter can not be null.");
+		}
+
+		int l = other.cols;
+		beginRow(l);
+		for (int j = 0; j < l; j++) {
+			columns.get(j).addAll(other.columns.get(j));
+		}
+		for (int j = l; j < cols; j++) {
+			columns.get(j).addNulls(other.rows);
+		}
+		rows += other.rows;
+	}
+
 	public int rows() {
 		return rows;
 	}
@@ -100,13 +152,30 @@ public class Grid {
 					"The col paramter is out of range. Got: " + row + ", cols: " + cols + ".");
 		}
 
-		String[] arr = grid.get(row);
+		return columns.get(col).get(row);
+	}
 
-		if (col < arr.length) {
-			return arr[col];
+	/**
+	 * Returns the typed storage of the column.
+	 */
+	public GridColumn column(int col) {
+		if (col < 0 || col >= cols) {
+			throw new IndexOutOfBoundsException(
+					"The col paramter is out of range. Got: " + col + ", cols: " + cols + ".");
 		}
 
-		return null;
+		return columns.get(col);
+	}
+
+	/**
+	 * Approximate heap footprint of the stored values, in bytes.
+	 */
+	public long bytes() {
+		long total = 0;
+		for (GridColumn c : columns) {
+			total += c.bytes();
+		}
+		return total;
 	}
 
 	public Grid selectCols(int start, int end) {
@@ -128,14 +197,11 @@ public class Grid {
 
 		Grid ans = new Grid();
 
-		for (int i = 0; i < rows; i++) {
-			String[] row = new String[l];
-
-			for (int j = 0; j < l; j++) {
-				row[j] = get(i, start + j);
-			}
-			ans.quickAdd(row);
+		for (int j = 0; j < l; j++) {
+			ans.columns.add(columns.get(start + j).copy());
 		}
+		ans.rows = rows;
+		ans.cols = l;
 
 		return ans;
 	}
@@ -144,114 +210,63 @@ public class Grid {
 		return new GridInfo(this);
 	}
 
+	/**
+	 * Counts the words of the column, nulls left out. Large grids are counted
+	 * in row ranges in parallel.
+	 */
 	public WordCount countWords(int col) {
-
-		WordCount wc = new WordCount();
-		for (int i = 0; i < rows; i++) {
-			wc.add(get(i, col));
-		}
-
-		return wc;
-	}
-
-	public Mat toMatrix() {
-		return toMatrix(false);
+		return WordCounter.count(this, new int[] { col })[0];
 	}
 
-	public Mat toMatrix(boolean stdScale) {
-
-		GridInfo gi = info();
-
-		Mat[] matrices = new Mat[cols];
-
+	/**
+	 * Counts the words of all the category columns in one pass. The counts of
+	 * the other columns are null.
+	 */
+	public WordCount[] countWords() {
 		int n = 0;
-		for (int i = 0; i < cols; i++) {
-			matrices[i] = toMatrix(gi.info(i));
-			n += matrices[i].cols();
+		for (int j = 0; j < cols; j++) {
+			if (columns.get(j).type() == GridColumn.Type.CATEGORY) {
+				n++;
+			}
 		}
 
-		Mat ans = new Mat(rows, n);
-
-		for (int i = 0; i < rows; i++) {
-
-			int j = 0;
-			for (int c = 0; c < matrices.length; c++) {
-				Mat crt = matrices[c];
-				for (int d = 0; d < crt.cols(); d++) {
-
-					float val = crt.get(i, d);
-
-					if (stdScale && gi.isNumeric(c)) {
-
-						if (gi.isBinary(c)) {
-							ans.set(i, j + d, val);
-						} else if (rows >= 2) {
-							float std = (float) gi.stdev(c);
-
-							float avg = (float) gi.avg(c);
-							float nval = (val - avg) / std;
-							ans.set(i, j + d, nval);
-
-						} else {
-							ans.set(i, j + d, val);
-						}
-
-					} else {
-
-						ans.set(i, j + d, val);
-					}
-
-				}
-				j += crt.cols();
+		int[] idx = new int[n];
+		n = 0;
+		for (int j = 0; j < cols; j++) {
+			if (columns.get(j).type() == GridColumn.Type.CATEGORY) {
+				idx[n++] = j;
 			}
 		}
 
+		WordCount[] counts = WordCounter.count(this, idx);
+		WordCount[] ans = new WordCount[cols];
+		for (int k = 0; k < idx.length; k++) {
+			ans[idx[k]] = counts[k];
+		}
 		return ans;
 	}
 
-	private Mat toMatrix(GridColumnInfo info) {
-
-		int col = info.col();
-		int m = info.count();
-
-		Mat a;
-		if (info.isNumeric()) {
-
-			if (info.hasMissing()) {
-				a = new Mat(m, 2);
-			} else {
-				a = new Mat(m, 1);
-			}
-
-			for (int i = 0; i < m; i++) {
-				String str = get(i, col);
-				if (str == null) {
-					a.set(i, 1, 1); // put it in the second col
-				} else {
-					a.set(i, 0, parse(str));
-				}
-			}
-		} else {
-			WordCount count = countWords(col);
-
-			int n = count.diff();
-			a = new Mat(m, n);
-
-			for (int i = 0; i < m; i++) {
-				String str = get(i, col);
-				int dest = count.wordIdx(str);
-				if (dest == -1) {
-					throw new IllegalArgumentException("Could not find word '" + str + "' in the word cound.");
-				}
-				a.set(i, dest, 1);
-			}
-		}
+	public Mat toMatrix() {
+		return toMatrix(false);
+	}
 
-		return a;
+	/**
+	 * Returns the design matrix of the grid. Numeric columns keep their values,
+	 * plus a column flagging the missing ones if there are any, and the other
+	 * columns are one-hot encoded in sorted word order. With stdScale the
+	 * numeric columns that are not binary are standardized.
+	 */
+	public Mat toMatrix(boolean stdScale) {
+		return new GridEncoder(this, stdScale).encode(this);
 	}
 
-	private static float parse(String val) {
-		return Float.parseFloat(val);
+	/**
+	 * Returns the design matrix of the grid with the one-hot columns kept
+	 * sparse, so they take memory for their ones only. The columns are the
+	 * ones of {@link #toMatrix(boolean)}.
+	 */
+	public SplitMat toSplitMatrix(boolean stdScale) {
+		return new GridEncoder(this, stdScale).encodeSplit(this);
 	}
 
 	public void print() {
@@ -0,0 +1,489 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+
+/**
+ * Typed storage of one {@link Grid} column, with the type inferred from the values.
+ */
+public class GridColumn {
+
+	public enum Type {
+		EMPTY, INTEGER, FLOAT, CATEGORY
+	}
+
+	// floats keep integers exactly only up to 2^24
+	private static final int MAX_FLOAT_INT = 1 << 24;
+
+	private static final byte WORD = 0;
+	private static final byte INT = 1;
+	private static final byte NUMBER = 2;
+
+	private Type type;
+	private int size;
+
+	private final Bitmap nulls;
+
+	// INTEGER values or CATEGORY codes
+	private IntChunks ints;
+
+	private FloatChunks floats;
+	private Bitmap integral;
+
+	private Vocabulary vocab;
+
+	// null when they have to be computed
+	private ColumnStats stats;
+
+	private byte[] kinds;
+	private double[] values;
+	private int known;
+
+	GridColumn() {
+		type = Type.EMPTY;
+		nulls = new Bitmap();
+		stats = new ColumnStats();
+	}
+
+	private GridColumn(GridColumn other) {
+		type = other.type;
+		size = other.size;
+		nulls = other.nulls.copy();
+		ints = (other.ints == null) ? null : other.ints.copy();
+		floats = (other.floats == null) ? null : other.floats.copy();
+		integral = (other.integral == null) ? null : other.integral.copy();
+		vocab = (other.vocab == null) ? null : other.vocab.copy();
+		stats = (other.stats == null) ? null : new ColumnStats(other.stats);
+	}
+
+	GridColumn(Type type, int size, Bitmap nulls, IntChunks ints, FloatChunks floats, Bitmap integral,
+			Vocabulary vocab) {
+		this.type = type;
+		this.size = size;
+		this.nulls = nulls;
+		this.ints = ints;
+		this.floats = floats;
+		this.integral = integral;
+		this.vocab = vocab;
+	}
+
+	void addNull() {
+		if (stats != null) {
+			stats.addMissing(1);
+		}
+
+		nulls.set(size);
+		switch (type) {
+		case INTEGER:
+		case CATEGORY:
+			ints.add(0);
+			break;
+		case FLOAT:
+			floats.add(0);
+			break;
+		default:
+			break;
+		}
+		size++;
+	}
+
+	void addNulls(int count) {
+		for (int i = 0; i < count; i++) {
+			addNull();
+		}
+	}
+
+	/**
+	 * Appends a value. The value must be already trimmed, and null for missing.
+	 */
+	void add(String val) {
+		if (val == null) {
+			addNull();
+			return;
+		}
+
+		if (type == Type.CATEGORY) {
+			addWord(val);
+			return;
+		}
+
+		long i = Numbers.parseInt(val);
+		if (i != Numbers.NOT_INT) {
+			addInt(val, (int) i);
+			return;
+		}
+
+		float f = Numbers.parseFloat(val);
+		if (Float.isNaN(f) == false) {
+			addFloat(val, f);
+			return;
+		}
+
+		toCategory();
+		addWord(val);
+	}
+
+	void addInteger(int i) {
+		if (type != Type.INTEGER) {
+			throw new IllegalStateException("The column is not an integer column. Type: " + type + ".");
+		}
+		ints.add(i);
+		size++;
+		track(i, true);
+	}
+
+	void addAll(GridColumn other) {
+		int l = other.size;
+
+		if (other.type == Type.EMPTY) {
+			addNulls(l);
+			return;
+		}
+
+		if (stats != null && other.stats == null) {
+			other.stats();
+		}
+
+		if (type == Type.EMPTY && other.nulls() < l) {
+			if (other.type == Type.INTEGER) {
+				toInteger();
+			} else if (other.type == Type.FLOAT) {
+				toFloat();
+			} else {
+				toCategory();
+			}
+		}
+
+		if (type != other.type) {
+			for (int i = 0; i < l; i++) {
+				add(other.get(i));
+			}
+			return;
+		}
+
+		for (int i = 0; i < l; i++) {
+			if (other.nulls.get(i)) {
+				nulls.set(size + i);
+			}
+		}
+
+		if (type == Type.INTEGER) {
+			ints.addAll(other.ints);
+		} else if (type == Type.FLOAT) {
+			floats.addAll(other.floats);
+			for (int i = 0; i < l; i++) {
+				if (other.integral.get(i)) {
+					integral.set(size + i);
+				}
+			}
+		} else {
+			int[] map = new int[other.vocab.size()];
+			for (int c = 0; c < map.length; c++) {
+				map[c] = vocab.add(other.vocab.word(c));
+			}
+			for (int i = 0; i < l; i++) {
+				ints.add(other.nulls.get(i) ? 0 : map[other.ints.get(i)]);
+			}
+		}
+
+		size += l;
+
+		if (stats != null) {
+			stats.merge(other.stats);
+		}
+	}
+
+	private void addInt(String val, int i) {
+		if (type == Type.EMPTY) {
+			toInteger();
+		}
+
+		if (type == Type.INTEGER) {
+			ints.add(i);
+			size++;
+			track(i, true);
+			return;
+		}
+
+		if (Math.abs((long) i) <= MAX_FLOAT_INT) {
+			integral.set(size);
+			floats.add(i);
+			size++;
+			track(i, true);
+			return;
+		}
+
+		toCategory();
+		addWord(val);
+	}
+
+	private void addFloat(String val, float f) {
+		if (type == Type.EMPTY || type == Type.INTEGER) {
+			toFloat();
+		}
+
+		if (type == Type.FLOAT) {
+			floats.add(f);
+			size++;
+			// the value of the text, not of the widened float
+			track(Double.parseDouble(val), false);
+			return;
+		}
+
+		addWord(val);
+	}
+
+	private void addWord(String val) {
+		int code = vocab.add(val);
+		ints.add(code);
+		size++;
+
+		if (stats == null) {
+			return;
+		}
+
+		classify(code);
+		if (kinds[code] == WORD) {
+			stats.addWords(1);
+		} else {
+			stats.addNumber(values[code], kinds[code] == INT);
+		}
+	}
+
+	private void track(double x, boolean integer) {
+		if (stats != null) {
+			stats.addNumber(x, integer);
+		}
+	}
+
+	private void classify(int code) {
+		if (code < known) {
+			return;
+		}
+
+		if (kinds == null || code >= kinds.length) {
+			int len = Math.max(code + 1, (kinds == null) ? 16 : kinds.length * 2);
+			kinds = (kinds == null) ? new byte[len] : Arrays.copyOf(kinds, len);
+			values = (values == null) ? new double[len] : Arrays.copyOf(values, len);
+		}
+
+		for (; known <= code; known++) {
+			String word = vocab.word(known);
+			if (Numbers.isInteger(word)) {
+				kinds[known] = INT;
+				values[known] = Integer.parseInt(word);
+			} else if (Numbers.isNumber(word)) {
+				kinds[known] = NUMBER;
+				values[known] = Double.parseDouble(word);
+			} else {
+				kinds[known] = WORD;
+			}
+		}
+	}
+
+	private void toInteger() {
+		ints = new IntChunks();
+		for (int i = 0; i < size; i++) {
+			ints.add(0);
+		}
+		type = Type.INTEGER;
+	}
+
+	private void toFloat() {
+		floats = new FloatChunks();
+		integral = new Bitmap();
+
+		if (type == Type.INTEGER) {
+			for (int i = 0; i < size; i++) {
+				if (Math.abs((long) ints.get(i)) > MAX_FLOAT_INT) {
+					floats = null;
+					integral = null;
+					toCategory();
+					return;
+				}
+			}
+
+			for (int i = 0; i < size; i++) {
+				floats.add(ints.get(i));
+				if (nulls.get(i) == false) {
+					integral.set(i);
+				}
+			}
+			ints = null;
+		} else {
+			for (int i = 0; i < size; i++) {
+				floats.add(0);
+			}
+		}
+
+		type = Type.FLOAT;
+	}
+
+	private void toCategory() {
+		if (type == Type.CATEGORY) {
+			return;
+		}
+
+		IntChunks codes = new IntChunks();
+		vocab = new Vocabulary();
+		for (int i = 0; i < size; i++) {
+			if (nulls.get(i)) {
+				codes.add(0);
+			} else {
+				codes.add(vocab.add(get(i)));
+			}
+		}
+
+		ints = codes;
+		floats = null;
+		integral = null;
+		type = Type.CATEGORY;
+	}
+
+	private void check(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException(
+					"The row paramter is out of range. Got: " + row + ", rows: " + size + ".");
+		}
+	}
+
+	public Type type() {
+		return type;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int nulls() {
+		return nulls.cardinality();
+	}
+
+	public boolean isNull(int row) {
+		check(row);
+		return nulls.get(row);
+	}
+
+	/**
+	 * Returns the value as text, exactly as it was added.
+	 */
+	public String get(int row) {
+		check(row);
+
+		if (nulls.get(row)) {
+			return null;
+		}
+
+		switch (type) {
+		case INTEGER:
+			return Integer.toString(ints.get(row));
+		case FLOAT:
+			float f = floats.get(row);
+			if (integral.get(row)) {
+				return Integer.toString((int) f);
+			}
+			return Float.toString(f);
+		case CATEGORY:
+			return vocab.word(ints.get(row));
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the value of a numeric column. Nulls read as 0.
+	 */
+	public float getFloat(int row) {
+		check(row);
+
+		if (type == Type.FLOAT) {
+			return floats.get(row);
+		}
+		if (type == Type.INTEGER) {
+			return ints.get(row);
+		}
+		throw new IllegalStateException("The column is not numeric. Type: " + type + ".");
+	}
+
+	/**
+	 * Returns the value of an {@link Type#INTEGER} column. Nulls read as 0.
+	 */
+	public int getInt(int row) {
+		check(row);
+
+		if (type == Type.INTEGER) {
+			return ints.get(row);
+		}
+		throw new IllegalStateException("The column is not an integer column. Type: " + type + ".");
+	}
+
+	/**
+	 * Returns the dictionary code of a {@link Type#CATEGORY} column. Nulls read as 0.
+	 */
+	public int code(int row) {
+		check(row);
+
+		if (type == Type.CATEGORY) {
+			return ints.get(row);
+		}
+		throw new IllegalStateException("The column is not a category column. Type: " + type + ".");
+	}
+
+	public ColumnStats stats() {
+		if (stats == null) {
+			stats = ColumnProfiler.profile(this);
+		}
+		return new ColumnStats(stats);
+	}
+
+	boolean hasStats() {
+		return stats != null;
+	}
+
+	void setStats(ColumnStats stats) {
+		this.stats = stats;
+	}
+
+	public Vocabulary vocabulary() {
+		return vocab;
+	}
+
+	/**
+	 * Approximate heap footprint of the column, in bytes.
+	 */
+	public long bytes() {
+		long total = 32L + nulls.bytes();
+		if (ints != null) {
+			total += ints.bytes();
+		}
+		if (floats != null) {
+			total += floats.bytes();
+		}
+		if (integral != null) {
+			total += integral.bytes();
+		}
+		if (vocab != null) {
+			total += vocab.bytes();
+		}
+		return total;
+	}
+
+	Bitmap nullBits() {
+		return nulls;
+	}
+
+	Bitmap integralBits() {
+		return integral;
+	}
+
+	IntChunks ints() {
+		return ints;
+	}
+
+	FloatChunks floats() {
+		return floats;
+	}
+
+	GridColumn copy() {
+		return new GridColumn(this);
+	}
+}
@@ -17,60 +17,36 @@ public class GridColumnInfo {
 	private double var;
 	private double std;
 
+	private final ColumnStats stats;
+
 	public GridColumnInfo(Grid g, int col) {
+		this(col, g.column(col).stats());
+	}
+
+	GridColumnInfo(int col, ColumnStats stats) {
 		this.col = col;
-		this.count = g.rows();
-
-		int n = 0;
-		double mean = 0.0;
-		double m2 = 0.0;
-		for (int i = 0; i < count; i++) {
-
-			String val = g.get(i, col);
-
-			if (val == null) {
-				missing++;
-			} else {
-				double parsed = 0.0;
-				boolean isNum = false;
-				if (isInteger(val)) {
-					isNum = true;
-					numbers++;
-					integers++;
-					parsed = parseInt(val);
-
-				} else if (isNumber(val)) {
-					isNum = true;
-					numbers++;
-					parsed = parseNumber(val);
-				}
-
-				if (isNum) {
-					max = Math.max(max, parsed);
-					min = Math.min(min, parsed);
-
-					sum += parsed;
-
-					// from:
-					// https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Online_algorithm
-					double x = parsed;
-					n += 1;
-					double delta = x - mean;
-					mean += delta / n;
-					double delta2 = x - mean;
-					m2 += delta * delta2;
-
-				}
-			}
-		}
+		this.count = (int) stats.count();
 
-		if (numbers >= 2) {
-			var = m2 / (n - 1);
-			std = sqrt(var);
-		} else {
-			var = 0.0;
-			std = sqrt(var);
-		}
+		numbers = (int) stats.numbers();
+		integers = (int) stats.integers();
+		missing = (int) stats.missing();
+
+		// both start from 0, so a column of positive numbers has a min of 0
+		max = Math.max(0.0, stats.max());
+		min = Math.min(0.0, stats.min());
+
+		sum = stats.sum();
+		var = stats.var();
+		std = sqrt(var);
+
+		this.stats = stats;
+	}
+
+	/**
+	 * Returns the statistics this info was built from.
+	 */
+	public ColumnStats stats() {
+		return new ColumnStats(stats);
 	}
 
 	public int col() {
@@ -143,34 +119,4 @@ public class GridColumnInfo {
 	public boolean isBinary() {
 		return isInteger() && max == 1.0 && min == 0.0;
 	}
-
-	private boolean isNumber(String val) {
-		try {
-			Double.parseDouble(val);
-			return true;
-		} catch (Exception ex) {
-
-		}
-
-		return false;
-	}
-
-	private int parseInt(String val) {
-		return Integer.parseInt(val);
-	}
-
-	private double parseNumber(String val) {
-		return Double.parseDouble(val);
-	}
-
-	private boolean isInteger(String val) {
-		try {
-			Integer.parseInt(val);
-			return true;
-		} catch (Exception ex) {
-
-		}
-
-		return false;
-	}
 }
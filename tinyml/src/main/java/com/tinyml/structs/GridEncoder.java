@@ -0,0 +1,725 @@
+package com.tinyml.structs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Encodes grids into design matrices with a layout fitted once.
+ */
+public class GridEncoder {
+
+	// floats per block, so the block stays in the cache
+	private static final int BLOCK_FLOATS = 1 << 18;
+
+	private static final byte[] MAGIC = "TMLENC01".getBytes(StandardCharsets.US_ASCII);
+
+	private static class Layout {
+
+		int offset;
+		int width;
+		boolean numeric;
+
+		// matrix column of each word of a one-hot column, relative to offset
+		StringIntMap words;
+		String[] sorted;
+
+		boolean scale;
+		float avg;
+		float std;
+
+		float scale(float val) {
+			if (scale) {
+				return (val - avg) / std;
+			}
+			return val;
+		}
+	}
+
+	private final Layout[] layouts;
+	private final int n;
+
+	public GridEncoder(Grid g, boolean stdScale) {
+		this(g.info(), words(g, null, false), g.rows(), stdScale);
+	}
+
+	private GridEncoder(GridInfo gi, List<Set<String>> words, long rows, boolean stdScale) {
+		layouts = new Layout[gi.cols()];
+
+		int offset = 0;
+		for (int j = 0; j < layouts.length; j++) {
+			Layout l = layout(gi, j, words.get(j), stdScale && rows >= 2);
+			l.offset = offset;
+			offset += l.width;
+			layouts[j] = l;
+		}
+		n = offset;
+	}
+
+	/**
+	 * Fits the encoder on chunks with the same columns, keeping one chunk at a time.
+	 */
+	public static GridEncoder fit(Iterable<Grid> chunks, boolean stdScale) {
+		GridInfo info = null;
+		List<Set<String>> words = new ArrayList<>();
+		long rows = 0;
+
+		for (Grid chunk : chunks) {
+			GridInfo ci = chunk.info();
+			if (info == null) {
+				info = ci;
+			} else {
+				if (ci.cols() != info.cols()) {
+					throw new IllegalArgumentException("The chunks must have the same columns. Expected " + info.cols()
+							+ ", got " + ci.cols() + ".");
+				}
+				info = info.merge(ci);
+			}
+
+			words(chunk, words, true);
+			rows += chunk.rows();
+		}
+
+		if (info == null) {
+			throw new IllegalArgumentException("There are no chunks to fit on.");
+		}
+		return new GridEncoder(info, words, rows, stdScale);
+	}
+
+	// the texts of numeric chunks are kept in case the column holds words in another chunk
+	private static List<Set<String>> words(Grid g, List<Set<String>> sets, boolean numbers) {
+		if (sets == null) {
+			sets = new ArrayList<>();
+		}
+		while (sets.size() < g.cols()) {
+			sets.add(new HashSet<String>());
+		}
+
+		for (int j = 0; j < g.cols(); j++) {
+			GridColumn c = g.column(j);
+			if (c.type() == GridColumn.Type.CATEGORY) {
+				Vocabulary v = c.vocabulary();
+				Set<String> set = sets.get(j);
+				for (int code = 0; code < v.size(); code++) {
+					set.add(v.word(code));
+				}
+			} else if (c.type() != GridColumn.Type.EMPTY && numbers) {
+				Set<String> set = sets.get(j);
+				for (int i = 0; i < c.size(); i++) {
+					if (c.isNull(i) == false) {
+						set.add(c.get(i));
+					}
+				}
+			}
+		}
+
+		return sets;
+	}
+
+	private static Layout layout(GridInfo gi, int col, Set<String> words, boolean stdScale) {
+		GridColumnInfo info = gi.info(col);
+
+		Layout l = new Layout();
+		l.numeric = info.isNumeric();
+
+		// binary columns are kept as 0 and 1
+		if (stdScale && gi.isNumeric(col) && gi.isBinary(col) == false) {
+			l.scale = true;
+			l.avg = (float) gi.avg(col);
+			l.std = (float) gi.stdev(col);
+		}
+
+		if (l.numeric) {
+			l.width = info.hasMissing() ? 2 : 1;
+			return l;
+		}
+
+		// a column that is not numeric nor a category has no values at all
+		String[] sorted = words.toArray(new String[words.size()]);
+		Arrays.sort(sorted);
+
+		l.width = sorted.length;
+		index(l, sorted);
+
+		return l;
+	}
+
+	private static void index(Layout l, String[] sorted) {
+		l.sorted = sorted;
+		l.words = new StringIntMap(sorted.length);
+		for (int i = 0; i < sorted.length; i++) {
+			l.words.put(sorted[i], i, -1);
+		}
+	}
+
+	private GridEncoder(Layout[] layouts) {
+		this.layouts = layouts;
+		int offset = 0;
+		for (Layout l : layouts) {
+			offset += l.width;
+		}
+		n = offset;
+	}
+
+	/**
+	 * Writes the fitted layout, which {@link #read(DataInput)} gives back.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.write(MAGIC);
+		out.writeInt(layouts.length);
+		for (Layout l : layouts) {
+			out.writeBoolean(l.numeric);
+			out.writeBoolean(l.scale);
+			out.writeFloat(l.avg);
+			out.writeFloat(l.std);
+			if (l.numeric) {
+				out.writeInt(l.width);
+			} else {
+				out.writeInt(l.sorted.length);
+				for (String word : l.sorted) {
+					out.writeUTF(word);
+				}
+			}
+		}
+	}
+
+	public static GridEncoder read(DataInput in) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (Arrays.equals(magic, MAGIC) == false) {
+			throw new IllegalDataException("The data is not a fitted GridEncoder.");
+		}
+
+		int cols = in.readInt();
+		if (cols < 0) {
+			throw new IllegalDataException("Invalid number of columns: " + cols + ".");
+		}
+
+		Layout[] layouts = new Layout[cols];
+		int offset = 0;
+		for (int j = 0; j < cols; j++) {
+			Layout l = new Layout();
+			l.numeric = in.readBoolean();
+			l.scale = in.readBoolean();
+			l.avg = in.readFloat();
+			l.std = in.readFloat();
+
+			int width = in.readInt();
+			if (width < 0 || (l.numeric && width > 2)) {
+				throw new IllegalDataException("Invalid width " + width + " of column " + j + ".");
+			}
+			l.width = width;
+			if (l.numeric == false) {
+				String[] sorted = new String[width];
+				for (int i = 0; i < width; i++) {
+					sorted[i] = in.readUTF();
+				}
+				index(l, sorted);
+			}
+
+			l.offset = offset;
+			offset += width;
+			layouts[j] = l;
+		}
+
+		return new GridEncoder(layouts);
+	}
+
+	public void save(File f) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)))) {
+			write(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static GridEncoder load(File f) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+			return read(in);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int cols() {
+		return n;
+	}
+
+	public Mat encode(Grid g) {
+		return encode(g, 0, g.rows());
+	}
+
+	public Vec encode(List<String> row) {
+		float[] out = new float[n];
+		encode(row.toArray(new String[row.size()]), out, 0);
+		return new Vec(out);
+	}
+
+	/**
+	 * Encodes a single row of text values into out, from the offset, without building a grid.
+	 */
+	public void encode(String[] row, float[] out, int offset) {
+		if (row.length > layouts.length) {
+			throw new IllegalArgumentException("The row has more values than the encoder has columns. Expected "
+					+ layouts.length + ", got " + row.length + ".");
+		}
+		if (offset < 0 || offset + n > out.length) {
+			throw new IllegalArgumentException(
+					"The output must hold " + n + " values from " + offset + ". Got: " + out.length + ".");
+		}
+
+		for (int j = 0; j < layouts.length; j++) {
+			Layout l = layouts[j];
+			if (l.width == 0) {
+				continue;
+			}
+
+			String val = (j < row.length) ? row[j] : null;
+			if (val != null) {
+				val = val.trim();
+				if (val.isEmpty()) {
+					val = null;
+				}
+			}
+
+			float zero = l.scale(0f);
+			int at = offset + l.offset;
+			if (l.numeric) {
+				if (val == null) {
+					out[at] = zero;
+					if (l.width == 2) {
+						out[at + 1] = l.scale(1f);
+					}
+					continue;
+				}
+				if (Numbers.isNumber(val) == false) {
+					throw new IllegalArgumentException(
+							"Could not encode word '" + val + "' of the numeric column " + j + ".");
+				}
+				out[at] = l.scale(Float.parseFloat(val));
+				if (l.width == 2) {
+					out[at + 1] = zero;
+				}
+			} else {
+				for (int k = 0; k < l.width; k++) {
+					out[at + k] = zero;
+				}
+				int hot = (val == null) ? -1 : l.words.get(val, -1);
+				if (hot >= 0) {
+					out[at + hot] = l.scale(1f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encodes the rows from the first, inclusive, to the last, exclusive.
+	 */
+	public Mat encode(Grid g, int from, int to) {
+		check(g, from, to);
+
+		int[] offsets = new int[layouts.length];
+		for (int j = 0; j < layouts.length; j++) {
+			offsets[j] = layouts[j].offset;
+		}
+		return dense(g, from, to, offsets, n);
+	}
+
+	public SplitMat encodeSplit(Grid g) {
+		return encodeSplit(g, 0, g.rows());
+	}
+
+	/**
+	 * Encodes the rows from the first, inclusive, to the last, exclusive, with the one-hot columns kept sparse.
+	 */
+	public SplitMat encodeSplit(Grid g, int from, int to) {
+		check(g, from, to);
+
+		int[] offsets = new int[layouts.length];
+		int[] denseCols = new int[n];
+		int[] sparseCols = new int[n];
+		int nd = 0;
+		int ns = 0;
+		for (int j = 0; j < layouts.length; j++) {
+			Layout l = layouts[j];
+			if (isSparse(l)) {
+				offsets[j] = -1;
+				for (int d = 0; d < l.width; d++) {
+					sparseCols[ns++] = l.offset + d;
+				}
+			} else {
+				offsets[j] = nd;
+				for (int d = 0; d < l.width; d++) {
+					denseCols[nd++] = l.offset + d;
+				}
+			}
+		}
+
+		Mat dense = dense(g, from, to, offsets, nd);
+		SparseMat sparse = sparse(g, from, to, ns);
+		return new SplitMat(dense, sparse, Arrays.copyOf(denseCols, nd), Arrays.copyOf(sparseCols, ns));
+	}
+
+	// a scaled one-hot column has numbers among its values
+	private static boolean isSparse(Layout l) {
+		return l.numeric == false && l.scale == false;
+	}
+
+	private void check(Grid g, int from, int to) {
+		if (g.cols() > layouts.length) {
+			throw new IllegalArgumentException("The grid has more columns than the encoder. Expected " + layouts.length
+					+ ", got " + g.cols() + ".");
+		}
+		if (from < 0 || to > g.rows() || from > to) {
+			throw new IndexOutOfBoundsException(
+					"Invalid row range " + from + " to " + to + " for a grid of " + g.rows() + " rows.");
+		}
+	}
+
+	private Mat dense(Grid g, int from, int to, int[] offsets, int width) {
+		int rows = to - from;
+		if (rows == 0 || width == 0) {
+			return new Mat(rows, width);
+		}
+
+		// a new row-major array, so the view is its memory and not a copy
+		INDArray arr = Nd4j.createUninitialized(new int[] { rows, width }, 'c');
+		fill(g, null, from, to, offsets, width, Buffers.view(arr).asFloatBuffer());
+
+		return new Mat(arr, null);
+	}
+
+	private void fill(Grid g, int[] index, int from, int to, int[] offsets, int width, FloatBuffer out) {
+		Block b = new Block(g, Math.max(1, BLOCK_FLOATS / width), width);
+		b.index = index;
+		for (int at = from; at < to; at += b.rows) {
+			int len = Math.min(b.rows, to - at);
+			for (int j = 0; j < layouts.length; j++) {
+				if (offsets[j] >= 0) {
+					b.encode(j, offsets[j], at, len);
+				}
+			}
+			out.put(b.buf, 0, len * width);
+		}
+	}
+
+	/**
+	 * Encodes the grid rows index[from] to index[to - 1] into the first rows of out and returns it.
+	 */
+	public Mat encode(Grid g, int[] index, int from, int to, Mat out) {
+		if (g.cols() > layouts.length) {
+			throw new IllegalArgumentException("The grid has more columns than the encoder. Expected " + layouts.length
+					+ ", got " + g.cols() + ".");
+		}
+		if (from < 0 || to > index.length || from > to) {
+			throw new IndexOutOfBoundsException(
+					"Invalid range " + from + " to " + to + " for an index of " + index.length + " rows.");
+		}
+		for (int i = from; i < to; i++) {
+			if (index[i] < 0 || index[i] >= g.rows()) {
+				throw new IndexOutOfBoundsException(
+						"The row " + index[i] + " is out of range. The grid has " + g.rows() + " rows.");
+			}
+		}
+		if (out.cols() != n || out.rows() < to - from) {
+			throw new IllegalArgumentException("The output must be at least " + (to - from) + "x" + n + ". Got: "
+					+ out.rows() + "x" + out.cols() + ".");
+		}
+		if (to == from || n == 0) {
+			return out;
+		}
+
+		int[] offsets = new int[layouts.length];
+		for (int j = 0; j < layouts.length; j++) {
+			offsets[j] = layouts[j].offset;
+		}
+
+		// a row-major output is its memory, anything else is copied back
+		ByteBuffer view = Buffers.view(out.ptr());
+		fill(g, index, from, to, offsets, n, view.asFloatBuffer());
+		if (Buffers.isContiguous(out.ptr()) == false) {
+			out.ptr().assign(Mat.wrap(view, out.rows(), n).ptr());
+		}
+		return out;
+	}
+
+	private SparseMat sparse(Grid g, int from, int to, int width) {
+		int rows = to - from;
+
+		int[] base = new int[layouts.length];
+		int count = 0;
+		for (int j = 0, at = 0; j < layouts.length; j++) {
+			if (isSparse(layouts[j])) {
+				base[j] = at;
+				at += layouts[j].width;
+				count++;
+			} else {
+				base[j] = -1;
+			}
+		}
+
+		int[] ptr = new int[rows + 1];
+		int[] cols = new int[rows * count];
+
+		Block b = new Block(g, Math.max(1, BLOCK_FLOATS / Math.max(1, count)), 0);
+		int p = 0;
+		for (int at = from; at < to; at += b.rows) {
+			int len = Math.min(b.rows, to - at);
+			for (int i = 0; i < len; i++) {
+				b.nonzero[i] = 0;
+			}
+
+			// the columns go in layout order, so each row stays sorted
+			for (int j = 0; j < layouts.length; j++) {
+				if (base[j] < 0 || layouts[j].width == 0) {
+					continue;
+				}
+				b.hot(j, at, len);
+				for (int i = 0; i < len; i++) {
+					if (b.hot[i] >= 0) {
+						cols[(at - from + i) * count + b.nonzero[i]++] = base[j] + b.hot[i];
+					}
+				}
+			}
+
+			for (int i = 0; i < len; i++) {
+				int row = (at - from + i) * count;
+				for (int k = 0; k < b.nonzero[i]; k++) {
+					cols[p++] = cols[row + k];
+				}
+				ptr[at - from + i + 1] = p;
+			}
+		}
+
+		float[] vals = new float[p];
+		Arrays.fill(vals, 1f);
+		return new SparseMat(rows, width, ptr, Arrays.copyOf(cols, p), vals);
+	}
+
+	private class Block {
+
+		final int rows;
+		final int n;
+		final float[] buf;
+		final int[] ints;
+		final float[] floats;
+		// position of the one in each row of a one-hot column, or -1
+		final int[] hot;
+		final int[] nonzero;
+
+		// grid rows of the block rows, or null when they are the same
+		int[] index;
+
+		final GridColumn[] columns = new GridColumn[layouts.length];
+		// numeric value of each code of a numeric category column
+		final float[][] values = new float[layouts.length][];
+		// matrix column of each code of a one-hot column, or -1
+		final int[][] dest = new int[layouts.length][];
+
+		Block(Grid g, int rows, int n) {
+			this.rows = rows;
+			this.n = n;
+			buf = new float[rows * n];
+			ints = new int[rows];
+			floats = new float[rows];
+			hot = new int[rows];
+			nonzero = new int[rows];
+
+			for (int j = 0; j < layouts.length; j++) {
+				prepare(j, (j < g.cols()) ? g.column(j) : null);
+			}
+		}
+
+		private void prepare(int j, GridColumn c) {
+			Layout l = layouts[j];
+			columns[j] = c;
+			if (c == null || c.type() != GridColumn.Type.CATEGORY) {
+				return;
+			}
+
+			Vocabulary v = c.vocabulary();
+			if (l.numeric) {
+				float[] vals = new float[v.size()];
+				for (int code = 0; code < vals.length; code++) {
+					String word = v.word(code);
+					if (Numbers.isNumber(word) == false) {
+						throw new IllegalArgumentException(
+								"Could not encode word '" + word + "' of the numeric column " + j + ".");
+					}
+					vals[code] = Float.parseFloat(word);
+				}
+				values[j] = vals;
+			} else {
+				int[] d = new int[v.size()];
+				for (int code = 0; code < d.length; code++) {
+					d[code] = l.words.get(v.word(code), -1);
+				}
+				dest[j] = d;
+			}
+		}
+
+		private int row(int at, int i) {
+			return (index == null) ? at + i : index[at + i];
+		}
+
+		private void readInts(IntChunks src, int at, int len) {
+			if (index == null) {
+				src.get(at, ints, 0, len);
+			} else {
+				for (int i = 0; i < len; i++) {
+					ints[i] = src.get(index[at + i]);
+				}
+			}
+		}
+
+		private void readFloats(FloatChunks src, int at, int len) {
+			if (index == null) {
+				src.get(at, floats, 0, len);
+			} else {
+				for (int i = 0; i < len; i++) {
+					floats[i] = src.get(index[at + i]);
+				}
+			}
+		}
+
+		void encode(int j, int offset, int at, int len) {
+			Layout l = layouts[j];
+			if (l.width == 0) {
+				return;
+			}
+
+			GridColumn c = columns[j];
+			if (c == null || c.type() == GridColumn.Type.EMPTY) {
+				missing(l, offset, len);
+			} else if (l.numeric) {
+				numeric(j, c, l, offset, at, len);
+			} else {
+				oneHot(j, l, offset, at, len);
+			}
+		}
+
+		private void missing(Layout l, int offset, int len) {
+			float zero = l.scale(0f);
+			float one = l.scale(1f);
+
+			int idx = offset;
+			for (int i = 0; i < len; i++, idx += n) {
+				for (int d = 0; d < l.width; d++) {
+					buf[idx + d] = zero;
+				}
+				if (l.numeric && l.width == 2) {
+					buf[idx + 1] = one;
+				}
+			}
+		}
+
+		private void numeric(int j, GridColumn c, Layout l, int offset, int at, int len) {
+			switch (c.type()) {
+			case INTEGER:
+				readInts(c.ints(), at, len);
+				for (int i = 0; i < len; i++) {
+					floats[i] = ints[i];
+				}
+				break;
+			case FLOAT:
+				readFloats(c.floats(), at, len);
+				break;
+			case CATEGORY:
+				readInts(c.ints(), at, len);
+				for (int i = 0; i < len; i++) {
+					floats[i] = values[j][ints[i]];
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unexpected numeric column type: " + c.type() + ".");
+			}
+
+			Bitmap nulls = c.nullBits();
+			boolean some = c.nulls() > 0;
+
+			float zero = l.scale(0f);
+			float one = l.scale(1f);
+
+			int idx = offset;
+			if (l.width == 1) {
+				// a missing value the encoder has no flag for reads as 0
+				for (int i = 0; i < len; i++, idx += n) {
+					buf[idx] = (some && nulls.get(row(at, i))) ? zero : l.scale(floats[i]);
+				}
+			} else {
+				for (int i = 0; i < len; i++, idx += n) {
+					if (some && nulls.get(row(at, i))) {
+						buf[idx] = zero;
+						buf[idx + 1] = one;
+					} else {
+						buf[idx] = l.scale(floats[i]);
+						buf[idx + 1] = zero;
+					}
+				}
+			}
+		}
+
+		private void oneHot(int j, Layout l, int offset, int at, int len) {
+			hot(j, at, len);
+
+			float zero = l.scale(0f);
+			float one = l.scale(1f);
+
+			int idx = offset;
+			for (int i = 0; i < len; i++, idx += n) {
+				for (int k = 0; k < l.width; k++) {
+					buf[idx + k] = zero;
+				}
+				if (hot[i] >= 0) {
+					buf[idx + hot[i]] = one;
+				}
+			}
+		}
+
+		void hot(int j, int at, int len) {
+			GridColumn c = columns[j];
+			if (c == null || c.type() == GridColumn.Type.EMPTY) {
+				Arrays.fill(hot, 0, len, -1);
+				return;
+			}
+
+			Layout l = layouts[j];
+			Bitmap nulls = c.nullBits();
+			boolean some = c.nulls() > 0;
+
+			int[] d = dest[j];
+			if (d != null) {
+				readInts(c.ints(), at, len);
+			}
+
+			for (int i = 0; i < len; i++) {
+				if (some && nulls.get(row(at, i))) {
+					hot[i] = -1;
+				} else if (d != null) {
+					hot[i] = d[ints[i]];
+				} else {
+					// numbers in a column of words are looked up by their text
+					hot[i] = l.words.get(c.get(row(at, i)), -1);
+				}
+			}
+		}
+	}
+}
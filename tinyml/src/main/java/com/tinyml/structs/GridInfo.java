@@ -5,12 +5,35 @@ public class GridInfo {
 	private final GridColumnInfo[] cols;
 
 	public GridInfo(Grid g) {
+		this(ColumnProfiler.profile(g));
+	}
+
+	private GridInfo(ColumnStats[] stats) {
 
-		cols = new GridColumnInfo[g.cols()];
+		cols = new GridColumnInfo[stats.length];
 
 		for (int i = 0; i < cols.length; i++) {
-			cols[i] = new GridColumnInfo(g, i);
+			cols[i] = new GridColumnInfo(i, stats[i]);
+		}
+	}
+
+	/**
+	 * Combines the info of two grids with the same columns, such as separate
+	 * shards of a dataset, into the info of all their rows together.
+	 */
+	public GridInfo merge(GridInfo other) {
+		if (other.cols.length != cols.length) {
+			throw new IllegalArgumentException("The number of columns must be the same. This " + cols.length
+					+ ", other " + other.cols.length + ".");
+		}
+
+		ColumnStats[] stats = new ColumnStats[cols.length];
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] = cols[i].stats();
+			stats[i].merge(other.cols[i].stats());
 		}
+
+		return new GridInfo(stats);
 	}
 
 	public int cols() {
@@ -0,0 +1,372 @@
+package com.tinyml.structs;
+
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Encodes grids into a fixed number of columns with the hashing trick.
+ */
+public class HashingEncoder {
+
+	public enum Kind {
+		// numbers by value and other words by hash
+		AUTO,
+		// numbers by value, words are missing
+		NUMBER,
+		// all by hash of their text
+		WORD
+	}
+
+	// floats per block, so the block stays in the cache
+	private static final int BLOCK_FLOATS = 1 << 18;
+
+	private final int width;
+	private final boolean signed;
+	private final int seed;
+	// all AUTO when null
+	private final Kind[] kinds;
+
+	public HashingEncoder(int width) {
+		this(width, false, 0);
+	}
+
+	public HashingEncoder(int width, boolean signed, int seed) {
+		this(width, signed, seed, null);
+	}
+
+	public HashingEncoder(int width, boolean signed, int seed, Kind[] kinds) {
+		if (width < 1) {
+			throw new IllegalArgumentException("The width parameter must be 1 or higher. Got: " + width + ".");
+		}
+		if (kinds != null) {
+			for (int j = 0; j < kinds.length; j++) {
+				if (kinds[j] == null) {
+					throw new IllegalArgumentException("The kinds can not be null. Got null at column " + j + ".");
+				}
+			}
+		}
+		this.width = width;
+		this.signed = signed;
+		this.seed = seed;
+		this.kinds = (kinds == null) ? null : kinds.clone();
+	}
+
+	public int cols() {
+		return width;
+	}
+
+	public boolean isSigned() {
+		return signed;
+	}
+
+	/**
+	 * 32-bit MurmurHash3 of the bytes.
+	 */
+	static int murmur3(byte[] data, int seed) {
+		final int c1 = 0xcc9e2d51;
+		final int c2 = 0x1b873593;
+
+		int h = seed;
+		int len = data.length;
+		int blocks = len & ~3;
+
+		for (int i = 0; i < blocks; i += 4) {
+			int k = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16)
+					| (data[i + 3] << 24);
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+
+			h ^= k;
+			h = Integer.rotateLeft(h, 13);
+			h = h * 5 + 0xe6546b64;
+		}
+
+		// the last 1 to 3 bytes, the first of them in the low bits
+		int tail = len & 3;
+		if (tail > 0) {
+			int k = 0;
+			for (int i = tail - 1; i >= 0; i--) {
+				k = (k << 8) | (data[blocks + i] & 0xff);
+			}
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			h ^= k;
+		}
+
+		h ^= len;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	private int hash(int col, String word) {
+		// the column index goes into the seed, so equal words of two columns differ
+		int s = seed ^ (col * 0x9E3779B9);
+		byte[] bytes = (word == null) ? new byte[0] : word.getBytes(StandardCharsets.UTF_8);
+		return murmur3(bytes, s);
+	}
+
+	// the output column plus one, negated when the value is subtracted
+	private int slot(int h) {
+		int idx = (h & 0x7fffffff) % width + 1;
+		return (signed && (h & 0x80000000) != 0) ? -idx : idx;
+	}
+
+	public Mat encode(Grid g) {
+		return encode(g, 0, g.rows());
+	}
+
+	/**
+	 * Encodes the rows from the first, inclusive, to the last, exclusive.
+	 */
+	public Mat encode(Grid g, int from, int to) {
+		check(g, from, to);
+
+		int rows = to - from;
+		if (rows == 0) {
+			return new Mat(0, width);
+		}
+
+		// a new row-major array, so the view is its memory and not a copy
+		INDArray arr = Nd4j.createUninitialized(new int[] { rows, width }, 'c');
+		FloatBuffer out = Buffers.view(arr).asFloatBuffer();
+
+		Block b = new Block(g, Math.max(1, BLOCK_FLOATS / width));
+		float[] buf = new float[b.rows * width];
+
+		for (int at = from; at < to; at += b.rows) {
+			int len = Math.min(b.rows, to - at);
+			Arrays.fill(buf, 0, len * width, 0f);
+
+			for (int j = 0; j < g.cols(); j++) {
+				b.slots(j, at, len);
+				for (int i = 0; i < len; i++) {
+					int s = b.slots[i];
+					if (s > 0) {
+						buf[i * width + s - 1] += b.vals[i];
+					} else if (s < 0) {
+						buf[i * width - s - 1] -= b.vals[i];
+					}
+				}
+			}
+			out.put(buf, 0, len * width);
+		}
+
+		return new Mat(arr, null);
+	}
+
+	public SparseMat encodeSparse(Grid g) {
+		return encodeSparse(g, 0, g.rows());
+	}
+
+	/**
+	 * Encodes the rows from the first, inclusive, to the last, exclusive, into a sparse matrix.
+	 */
+	public SparseMat encodeSparse(Grid g, int from, int to) {
+		check(g, from, to);
+
+		int rows = to - from;
+		int c = g.cols();
+
+		// the values of each row, one per grid column, before sorting and merging
+		int[] cols = new int[rows * c];
+		float[] vals = new float[rows * c];
+		int[] counts = new int[rows];
+
+		Block b = new Block(g, Math.max(1, BLOCK_FLOATS / Math.max(1, c)));
+		for (int at = from; at < to; at += b.rows) {
+			int len = Math.min(b.rows, to - at);
+			for (int j = 0; j < c; j++) {
+				b.slots(j, at, len);
+				for (int i = 0; i < len; i++) {
+					int s = b.slots[i];
+					if (s != 0) {
+						int p = (at - from + i) * c + counts[at - from + i]++;
+						cols[p] = Math.abs(s) - 1;
+						vals[p] = (s > 0) ? b.vals[i] : -b.vals[i];
+					}
+				}
+			}
+		}
+
+		int[] ptr = new int[rows + 1];
+		int p = 0;
+		for (int i = 0; i < rows; i++) {
+			int start = i * c;
+			int end = start + counts[i];
+			sort(cols, vals, start, end);
+
+			// the rows are compacted in place, they never move forward
+			int first = p;
+			for (int q = start; q < end; q++) {
+				if (p > first && cols[p - 1] == cols[q]) {
+					vals[p - 1] += vals[q];
+				} else {
+					cols[p] = cols[q];
+					vals[p] = vals[q];
+					p++;
+				}
+			}
+
+			// collisions can cancel out, and zeros are not stored
+			int kept = first;
+			for (int q = first; q < p; q++) {
+				if (vals[q] != 0f) {
+					cols[kept] = cols[q];
+					vals[kept] = vals[q];
+					kept++;
+				}
+			}
+			p = kept;
+			ptr[i + 1] = p;
+		}
+
+		return new SparseMat(rows, width, ptr, Arrays.copyOf(cols, p), Arrays.copyOf(vals, p));
+	}
+
+	// insertion sort, rows are short
+	private static void sort(int[] cols, float[] vals, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int col = cols[i];
+			float val = vals[i];
+			int k = i - 1;
+			while (k >= from && cols[k] > col) {
+				cols[k + 1] = cols[k];
+				vals[k + 1] = vals[k];
+				k--;
+			}
+			cols[k + 1] = col;
+			vals[k + 1] = val;
+		}
+	}
+
+	private void check(Grid g, int from, int to) {
+		if (from < 0 || to > g.rows() || from > to) {
+			throw new IndexOutOfBoundsException(
+					"Invalid row range " + from + " to " + to + " for a grid of " + g.rows() + " rows.");
+		}
+		if (kinds != null && g.cols() > kinds.length) {
+			throw new IllegalArgumentException("The grid has more columns than the kinds. Expected " + kinds.length
+					+ ", got " + g.cols() + ".");
+		}
+	}
+
+	private Kind kind(int col) {
+		return (kinds == null) ? Kind.AUTO : kinds[col];
+	}
+
+	private class Block {
+
+		final int rows;
+		final int[] ints;
+		// output slot and value of each row of the current column
+		final int[] slots;
+		final float[] vals;
+
+		final GridColumn[] columns;
+		// slot and value of each code of a categorical column
+		final int[][] codeSlots;
+		final float[][] codeVals;
+		// slot of the numbers of each column
+		final int[] numericSlot;
+
+		Block(Grid g, int rows) {
+			this.rows = rows;
+			ints = new int[rows];
+			slots = new int[rows];
+			vals = new float[rows];
+
+			int c = g.cols();
+			columns = new GridColumn[c];
+			codeSlots = new int[c][];
+			codeVals = new float[c][];
+			numericSlot = new int[c];
+			for (int j = 0; j < c; j++) {
+				GridColumn col = g.column(j);
+				columns[j] = col;
+				numericSlot[j] = slot(hash(j, null));
+				if (col.type() == GridColumn.Type.CATEGORY) {
+					words(j, col.vocabulary());
+				}
+			}
+		}
+
+		private void words(int j, Vocabulary v) {
+			Kind kind = kind(j);
+			int[] s = new int[v.size()];
+			float[] vs = new float[v.size()];
+			for (int code = 0; code < s.length; code++) {
+				String w = v.word(code);
+				if (kind != Kind.WORD && Numbers.isNumber(w)) {
+					s[code] = numericSlot[j];
+					vs[code] = (float) Double.parseDouble(w);
+				} else if (kind != Kind.NUMBER) {
+					s[code] = slot(hash(j, w));
+					vs[code] = 1f;
+				}
+			}
+			codeSlots[j] = s;
+			codeVals[j] = vs;
+		}
+
+		void slots(int j, int at, int len) {
+			GridColumn c = columns[j];
+			Bitmap nulls = c.nullBits();
+			boolean some = c.nulls() > 0;
+
+			switch (c.type()) {
+			case EMPTY:
+				Arrays.fill(slots, 0, len, 0);
+				return;
+			case CATEGORY:
+				c.ints().get(at, ints, 0, len);
+				int[] s = codeSlots[j];
+				float[] vs = codeVals[j];
+				for (int i = 0; i < len; i++) {
+					slots[i] = s[ints[i]];
+					vals[i] = vs[ints[i]];
+				}
+				break;
+			case INTEGER:
+			case FLOAT:
+				if (kind(j) == Kind.WORD) {
+					// numbers are only stored as such when their text can be given back
+					for (int i = 0; i < len; i++) {
+						String w = c.get(at + i);
+						slots[i] = (w == null) ? 0 : slot(hash(j, w));
+						vals[i] = 1f;
+					}
+				} else if (c.type() == GridColumn.Type.INTEGER) {
+					c.ints().get(at, ints, 0, len);
+					for (int i = 0; i < len; i++) {
+						vals[i] = ints[i];
+					}
+					Arrays.fill(slots, 0, len, numericSlot[j]);
+				} else {
+					c.floats().get(at, vals, 0, len);
+					Arrays.fill(slots, 0, len, numericSlot[j]);
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unexpected column type: " + c.type() + ".");
+			}
+
+			if (some) {
+				for (int i = 0; i < len; i++) {
+					if (nulls.get(at + i)) {
+						slots[i] = 0;
+					}
+				}
+			}
+		}
+	}
+}
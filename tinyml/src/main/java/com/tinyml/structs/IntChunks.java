@@ -0,0 +1,173 @@
+package com.tinyml.structs;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only int storage in fixed size chunks, possibly mapped from a file.
+ */
+final class IntChunks {
+
+	static final int BITS = 16;
+	static final int SIZE = 1 << BITS;
+	static final int MASK = SIZE - 1;
+
+	private static final int INITIAL = 16;
+
+	private int[][] chunks;
+	private IntBuffer[] mapped;
+	private int size;
+
+	IntChunks() {
+		chunks = new int[1][];
+	}
+
+	private IntChunks(int[][] chunks, int size) {
+		this.chunks = chunks;
+		this.size = size;
+	}
+
+	IntChunks(IntBuffer[] mapped, int size) {
+		this.mapped = mapped;
+		this.size = size;
+	}
+
+	private void unmap() {
+		if (mapped == null) {
+			return;
+		}
+
+		chunks = new int[Math.max(1, mapped.length)][];
+		for (int c = 0; c < mapped.length; c++) {
+			IntBuffer src = mapped[c].duplicate();
+			src.clear();
+			int[] chunk = new int[src.remaining()];
+			src.get(chunk);
+			chunks[c] = chunk;
+		}
+		mapped = null;
+	}
+
+	void add(int val) {
+		unmap();
+
+		int c = size >>> BITS;
+		int o = size & MASK;
+
+		if (c >= chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+
+		int[] chunk = chunks[c];
+		if (chunk == null) {
+			chunk = new int[INITIAL];
+			chunks[c] = chunk;
+		} else if (o >= chunk.length) {
+			chunk = Arrays.copyOf(chunk, Math.min(SIZE, chunk.length * 2));
+			chunks[c] = chunk;
+		}
+
+		chunk[o] = val;
+		size++;
+	}
+
+	void addAll(IntChunks other) {
+		unmap();
+
+		int done = 0;
+		while (done < other.size) {
+			int from = done & MASK;
+			int l = Math.min(other.size - done, SIZE - from);
+
+			int c = size >>> BITS;
+			int o = size & MASK;
+			l = Math.min(l, SIZE - o);
+
+			if (c >= chunks.length) {
+				chunks = Arrays.copyOf(chunks, Math.max(c + 1, chunks.length * 2));
+			}
+			int[] chunk = chunks[c];
+			if (chunk == null) {
+				chunk = new int[Math.max(INITIAL, o + l)];
+				chunks[c] = chunk;
+			} else if (o + l > chunk.length) {
+				chunk = Arrays.copyOf(chunk, Math.min(SIZE, Math.max(o + l, chunk.length * 2)));
+				chunks[c] = chunk;
+			}
+
+			other.get(done, chunk, o, l);
+			size += l;
+			done += l;
+		}
+	}
+
+	int get(int idx) {
+		if (mapped != null) {
+			return mapped[idx >>> BITS].get(idx & MASK);
+		}
+		return chunks[idx >>> BITS][idx & MASK];
+	}
+
+	void get(int from, int[] dst, int off, int len) {
+		while (len > 0) {
+			int c = from >>> BITS;
+			int o = from & MASK;
+			int l = Math.min(len, SIZE - o);
+
+			if (mapped != null) {
+				IntBuffer src = mapped[c].duplicate();
+				src.position(o);
+				src.get(dst, off, l);
+			} else {
+				System.arraycopy(chunks[c], o, dst, off, l);
+			}
+
+			from += l;
+			off += l;
+			len -= l;
+		}
+	}
+
+	void set(int idx, int val) {
+		unmap();
+		chunks[idx >>> BITS][idx & MASK] = val;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isMapped() {
+		return mapped != null;
+	}
+
+	// mapped views are not counted
+	long bytes() {
+		if (mapped != null) {
+			return 16L + mapped.length * 64L;
+		}
+
+		long total = 16L + chunks.length * 8L;
+		for (int[] chunk : chunks) {
+			if (chunk != null) {
+				total += 16L + chunk.length * 4L;
+			}
+		}
+		return total;
+	}
+
+	IntChunks copy() {
+		if (mapped != null) {
+			// the views are read-only, so they can be shared
+			return new IntChunks(mapped, size);
+		}
+
+		int[][] arr = new int[chunks.length][];
+		for (int i = 0; i < arr.length; i++) {
+			if (chunks[i] != null) {
+				arr[i] = chunks[i].clone();
+			}
+		}
+		return new IntChunks(arr, size);
+	}
+}
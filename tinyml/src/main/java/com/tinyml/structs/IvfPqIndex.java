@@ -0,0 +1,483 @@
+package com.tinyml.structs;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Approximate nearest neighbours of the rows of a matrix, by an inverted file with product quantization.
+ */
+public class IvfPqIndex {
+
+	public enum Metric {
+		L2, COSINE
+	}
+
+	public static final int DEFAULT_PROBES = 8;
+
+	// codes per subspace, so a code is a byte
+	static final int MAX_CODES = 256;
+
+	// rows the codebooks are trained on, and the k-means iterations they take
+	private static final int TRAIN_ROWS = 1 << 16;
+	private static final int TRAIN_ITERS = 25;
+
+	// rows the list centroids are fitted on, per list
+	private static final int ROWS_PER_LIST = 64;
+
+	private static final int RANGE = 1 << 14;
+	private static final int QUERIES = 64;
+	// queries from which the distances to the lists go through a product
+	private static final int GEMM_QUERIES = 8;
+
+	final Metric metric;
+	final int m;
+	final int n;
+	final int lists;
+	final int subspaces;
+	final int codes;
+
+	// lists x n, row-major
+	final float[] centroids;
+	// subspace s holds codes x width(s) values from codes * start(s)
+	final float[] codebooks;
+	// the rows of list l are at [offsets[l], offsets[l + 1])
+	final int[] offsets;
+	// row of each position, and the code of each position in subspaces bytes
+	final IntBuffer ids;
+	final ByteBuffer rowCodes;
+
+	// |b|^2 + 2 c.b for each list, subspace and code
+	private final float[] centroidNorms;
+	private final float[] precomputed;
+
+	IvfPqIndex(Metric metric, int m, int n, int lists, int subspaces, int codes, float[] centroids,
+			float[] codebooks, int[] offsets, IntBuffer ids, ByteBuffer rowCodes) {
+		this.metric = metric;
+		this.m = m;
+		this.n = n;
+		this.lists = lists;
+		this.subspaces = subspaces;
+		this.codes = codes;
+		this.centroids = centroids;
+		this.codebooks = codebooks;
+		this.offsets = offsets;
+		this.ids = ids;
+		this.rowCodes = rowCodes;
+
+		centroidNorms = new float[lists];
+		for (int l = 0; l < lists; l++) {
+			centroidNorms[l] = dot(centroids, l * n, centroids, l * n, n);
+		}
+
+		int size = subspaces * codes;
+		precomputed = new float[lists * size];
+		for (int s = 0, t = 0; s < subspaces; s++) {
+			int from = start(s, subspaces, n);
+			int w = start(s + 1, subspaces, n) - from;
+			for (int c = 0, p = codes * from; c < codes; c++, t++, p += w) {
+				float norm = dot(codebooks, p, codebooks, p, w);
+				for (int l = 0; l < lists; l++) {
+					precomputed[l * size + t] = norm + 2f * dot(centroids, l * n + from, codebooks, p, w);
+				}
+			}
+		}
+	}
+
+	private static float dot(float[] a, int aOffset, float[] b, int bOffset, int len) {
+		float s0 = 0f;
+		float s1 = 0f;
+		int f = 0;
+		for (; f + 1 < len; f += 2) {
+			s0 += a[aOffset + f] * b[bOffset + f];
+			s1 += a[aOffset + f + 1] * b[bOffset + f + 1];
+		}
+		if (f < len) {
+			s0 += a[aOffset + f] * b[bOffset + f];
+		}
+		return s0 + s1;
+	}
+
+	/**
+	 * Builds the index with about the square root of the rows as lists and a subspace per 4 columns.
+	 */
+	public static IvfPqIndex build(Mat x, Metric metric) {
+		int lists = Math.max(1, (int) Math.sqrt(x.rows()));
+		int subspaces = Math.max(1, x.cols() / 4);
+		return build(x, metric, lists, subspaces, 0L);
+	}
+
+	public static IvfPqIndex build(Mat x, Metric metric, int lists, int subspaces, long seed) {
+		final int m = x.rows();
+		final int n = x.cols();
+		if (lists < 1 || lists > m) {
+			throw new IllegalArgumentException("The lists parameter must be between 1 and " + m + ". Got: " + lists
+					+ ".");
+		}
+		if (subspaces < 1 || subspaces > n) {
+			throw new IllegalArgumentException("The subspaces parameter must be between 1 and " + n + ". Got: "
+					+ subspaces + ".");
+		}
+		if (metric == null) {
+			throw new IllegalArgumentException("The metric parameter can not be null.");
+		}
+
+		final Mat data = (metric == Metric.COSINE) ? unitRows(x) : x;
+		final FloatBuffer values = data.buffer().asFloatBuffer();
+
+		int batches = Math.max(KMeans.DEFAULT_BATCHES,
+				(int) ((long) lists * ROWS_PER_LIST / KMeans.DEFAULT_BATCH_SIZE));
+		KMeans coarse = KMeans.fitMiniBatch(data, lists, KMeans.DEFAULT_BATCH_SIZE, batches, seed);
+		final float[] centroids = coarse.centroids().toFloatArray();
+		int[] labels = coarse.labels();
+
+		final int[] offsets = new int[lists + 1];
+		for (int label : labels) {
+			offsets[label + 1]++;
+		}
+		for (int l = 0; l < lists; l++) {
+			offsets[l + 1] += offsets[l];
+		}
+		final int[] ids = new int[m];
+		int[] next = new int[lists];
+		System.arraycopy(offsets, 0, next, 0, lists);
+		for (int i = 0; i < m; i++) {
+			ids[next[labels[i]]++] = i;
+		}
+		labels = null;
+
+		// the codebooks, fitted on the residuals of a sample of the rows
+		final int codes = Math.min(MAX_CODES, m);
+		final float[] codebooks = new float[codes * n];
+		int size = Math.min(m, TRAIN_ROWS);
+		Random rnd = new Random(seed);
+		float[] sample = new float[size * n];
+		float[] row = new float[n];
+		for (int i = 0; i < size; i++) {
+			int p = (size == m) ? i : rnd.nextInt(m);
+			residual(values, ids[p], centroids, list(offsets, p), n, row);
+			System.arraycopy(row, 0, sample, i * n, n);
+		}
+		// the samples of the subspaces are too small to split, so they run side by side
+		final int subs = subspaces;
+		final int rows = size;
+		final float[] train = sample;
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int s = 0; s < subspaces; s++) {
+			final int sub = s;
+			final long subSeed = seed + s;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					int from = start(sub, subs, n);
+					int w = start(sub + 1, subs, n) - from;
+					float[] vals = new float[rows * w];
+					for (int i = 0; i < rows; i++) {
+						System.arraycopy(train, i * n + from, vals, i * w, w);
+					}
+					float[] cb = KMeans.fit(new Mat(rows, w, vals), codes, TRAIN_ITERS, subSeed).centroids()
+							.toFloatArray();
+					System.arraycopy(cb, 0, codebooks, codes * from, codes * w);
+					return null;
+				}
+			});
+		}
+		Tasks.run(tasks);
+
+		// the codes of all the rows, in list order
+		final byte[] rowCodes = new byte[m * subspaces];
+		tasks.clear();
+		for (int at = 0; at < m; at += RANGE) {
+			final int start = at;
+			final int end = Math.min(m, at + RANGE);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					float[] r = new float[n];
+					int l = list(offsets, start);
+					for (int p = start; p < end; p++) {
+						while (offsets[l + 1] <= p) {
+							l++;
+						}
+						residual(values, ids[p], centroids, l, n, r);
+						for (int s = 0; s < subs; s++) {
+							rowCodes[p * subs + s] = (byte) nearestCode(r, codebooks, codes, s, subs, n);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		Tasks.run(tasks);
+		Buffers.reachable(data);
+
+		return new IvfPqIndex(metric, m, n, lists, subspaces, codes, centroids, codebooks, offsets,
+				IntBuffer.wrap(ids), ByteBuffer.wrap(rowCodes));
+	}
+
+	private static Mat unitRows(Mat x) {
+		int m = x.rows();
+		int n = x.cols();
+		Mat ans = new Mat(m, n);
+		FloatBuffer src = x.buffer().asFloatBuffer();
+		FloatBuffer dst = ans.buffer().asFloatBuffer();
+
+		float[] row = new float[n];
+		for (int i = 0; i < m; i++) {
+			src.get(row, 0, n);
+			unit(row, 0, n);
+			dst.put(row, 0, n);
+		}
+		Buffers.reachable(x);
+		return ans;
+	}
+
+	static void unit(float[] vals, int offset, int len) {
+		double s = 0.0;
+		for (int f = offset; f < offset + len; f++) {
+			s += vals[f] * vals[f];
+		}
+		if (s > 0.0) {
+			float inv = (float) (1.0 / Math.sqrt(s));
+			for (int f = offset; f < offset + len; f++) {
+				vals[f] *= inv;
+			}
+		}
+	}
+
+	static int start(int s, int subspaces, int n) {
+		return (int) ((long) s * n / subspaces);
+	}
+
+	private static int list(int[] offsets, int p) {
+		int lo = 0;
+		int hi = offsets.length - 2;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (offsets[mid] <= p) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	private static void residual(FloatBuffer values, int i, float[] centroids, int l, int n, float[] out) {
+		for (int f = 0; f < n; f++) {
+			out[f] = values.get(i * n + f) - centroids[l * n + f];
+		}
+	}
+
+	private static int nearestCode(float[] r, float[] codebooks, int codes, int s, int subspaces, int n) {
+		int from = start(s, subspaces, n);
+		int w = start(s + 1, subspaces, n) - from;
+
+		int best = 0;
+		float min = Float.POSITIVE_INFINITY;
+		for (int c = 0, p = codes * from; c < codes; c++, p += w) {
+			float d = KMeans.dist(r, from, codebooks, p, w);
+			if (d < min) {
+				min = d;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	public Metric metric() {
+		return metric;
+	}
+
+	public int rows() {
+		return m;
+	}
+
+	public int cols() {
+		return n;
+	}
+
+	public int lists() {
+		return lists;
+	}
+
+	public int subspaces() {
+		return subspaces;
+	}
+
+	public Neighbors query(Vec q, int k) {
+		return query(q, k, DEFAULT_PROBES);
+	}
+
+	public Neighbors query(Vec q, int k, int probes) {
+		if (q.length() != n) {
+			throw new IllegalArgumentException("The query must have " + n + " values. Got: " + q.length() + ".");
+		}
+		// read as an array, a matrix of one row costs more than the search
+		return query(q.toArray(), 1, k, probes);
+	}
+
+	/**
+	 * Finds the k nearest rows of each query in the given number of nearest lists.
+	 */
+	public Neighbors query(Mat queries, int k, int probes) {
+		if (queries.cols() != n) {
+			throw new IllegalArgumentException("The queries must have " + n + " columns. Got: " + queries.cols()
+					+ ".");
+		}
+		return query(queries.toFloatArray(), queries.rows(), k, probes);
+	}
+
+	private Neighbors query(final float[] qs, final int nq, final int k, int probes) {
+		if (k < 1) {
+			throw new IllegalArgumentException("The k parameter must be 1 or higher. Got: " + k + ".");
+		}
+		if (probes < 1) {
+			throw new IllegalArgumentException("The probes parameter must be 1 or higher. Got: " + probes + ".");
+		}
+
+		final int np = Math.min(probes, lists);
+		if (metric == Metric.COSINE) {
+			for (int q = 0; q < nq; q++) {
+				unit(qs, q * n, n);
+			}
+		}
+		final Mat transp = (nq >= GEMM_QUERIES) ? new Mat(lists, n, centroids).transp() : null;
+		final Neighbors ans = new Neighbors(nq, k);
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int at = 0; at < nq; at += QUERIES) {
+			final int start = at;
+			final int end = Math.min(nq, at + QUERIES);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					// the distances to all the lists in one product, when there are enough queries
+					int len = end - start;
+					float[] dots;
+					if (len >= GEMM_QUERIES) {
+						float[] block = new float[len * n];
+						System.arraycopy(qs, start * n, block, 0, block.length);
+						dots = new Mat(len, n, block).dot(transp).toFloatArray();
+					} else {
+						dots = new float[len * lists];
+						for (int q = 0; q < len; q++) {
+							for (int l = 0; l < lists; l++) {
+								dots[q * lists + l] = dot(qs, (start + q) * n, centroids, l * n, n);
+							}
+						}
+					}
+
+					Search s = new Search(k, np);
+					for (int q = start; q < end; q++) {
+						s.run(qs, q, dots, (q - start) * lists, ans);
+					}
+					return null;
+				}
+			});
+		}
+		Tasks.run(tasks);
+
+		return ans;
+	}
+
+	// |q - c - b|^2 is |q - c|^2, plus |b|^2 + 2 c.b of the list, minus 2 q.b of the query
+	private class Search {
+
+		final TopK near;
+		final TopK lists;
+		final int[] probe;
+		final float[] probeDist;
+		final float[] q;
+		// -2 q.b and the distance to each code, per subspace
+		final float[] query;
+		final float[] table;
+		byte[] buf = new byte[0];
+
+		Search(int k, int probes) {
+			near = new TopK(k);
+			lists = new TopK(probes);
+			probe = new int[probes];
+			probeDist = new float[probes];
+			q = new float[n];
+			query = new float[subspaces * codes];
+			table = new float[subspaces * codes];
+		}
+
+		void run(float[] qs, int at, float[] dots, int dotsOffset, Neighbors out) {
+			System.arraycopy(qs, at * n, q, 0, n);
+
+			float qn = 0f;
+			for (float v : q) {
+				qn += v * v;
+			}
+			for (int l = 0; l < IvfPqIndex.this.lists; l++) {
+				lists.offer(qn - 2f * dots[dotsOffset + l] + centroidNorms[l], l);
+			}
+			lists.drain(probe, probeDist, 0);
+
+			for (int s = 0, t = 0; s < subspaces; s++) {
+				int from = start(s, subspaces, n);
+				int w = start(s + 1, subspaces, n) - from;
+				for (int c = 0, p = codes * from; c < codes; c++, t++, p += w) {
+					query[t] = -2f * dot(q, from, codebooks, p, w);
+				}
+			}
+
+			for (int i = 0; i < probe.length; i++) {
+				scan(probe[i], probeDist[i]);
+			}
+
+			int[] ids = out.ids();
+			float[] dist = out.distances();
+			int from = at * out.k();
+			near.drain(ids, dist, from);
+			for (int i = from; i < from + out.k(); i++) {
+				// rounding can take a distance under 0, and |a - b|^2 = 2 - 2 cos for unit rows
+				dist[i] = Math.max(dist[i], 0f);
+				if (metric == Metric.COSINE) {
+					dist[i] *= 0.5f;
+				}
+			}
+		}
+
+		private void scan(int l, float base) {
+			int pre = l * table.length;
+			for (int t = 0; t < table.length; t++) {
+				table[t] = precomputed[pre + t] + query[t];
+			}
+
+			// the codes of the list are read at once, mapped or not
+			int first = offsets[l];
+			int len = (offsets[l + 1] - first) * subspaces;
+			if (buf.length < len) {
+				buf = new byte[Math.max(len, 2 * buf.length)];
+			}
+			ByteBuffer src = rowCodes.duplicate();
+			src.position(first * subspaces);
+			src.get(buf, 0, len);
+
+			for (int at = 0, p = first; at < len; p++) {
+				float d0 = base;
+				float d1 = 0f;
+				int s = 0;
+				for (; s + 1 < subspaces; s += 2, at += 2) {
+					d0 += table[s * codes + (buf[at] & 0xff)];
+					d1 += table[(s + 1) * codes + (buf[at + 1] & 0xff)];
+				}
+				if (s < subspaces) {
+					d0 += table[s * codes + (buf[at++] & 0xff)];
+				}
+
+				float d = d0 + d1;
+				if (d < near.bound()) {
+					near.offer(d, ids.get(p));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,600 @@
+package com.tinyml.structs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * k-means clustering of the rows of a matrix, with Hamerly bounds or mini-batches.
+ */
+public class KMeans {
+
+	public static final int DEFAULT_MAX_ITERS = 100;
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int DEFAULT_BATCHES = 100;
+
+	private static final int RANGE = 1 << 16;
+
+	// distances per block of rows, and the bounds on the rows per block
+	private static final int BLOCK_FLOATS = 1 << 18;
+	private static final int MIN_BLOCK = 16;
+	private static final int MAX_BLOCK = 4096;
+
+	// k-means++ seeds from at least this many rows, or this many per centroid
+	private static final int SEED_ROWS = 10000;
+	private static final int SEED_ROWS_PER_CENTROID = 32;
+
+	private final int k;
+	private final int n;
+	// k x n, row-major
+	private final float[] centroids;
+	private final int[] labels;
+	private final double inertia;
+	private final int iterations;
+
+	private KMeans(int k, int n, float[] centroids, int[] labels, double inertia, int iterations) {
+		this.k = k;
+		this.n = n;
+		this.centroids = centroids;
+		this.labels = labels;
+		this.inertia = inertia;
+		this.iterations = iterations;
+	}
+
+	public static KMeans fit(Mat x, int k) {
+		return fit(x, k, DEFAULT_MAX_ITERS, 0L);
+	}
+
+	/**
+	 * Clusters the rows with Lloyd iterations, until no row changes cluster or after maxIters.
+	 */
+	public static KMeans fit(Mat x, int k, int maxIters, long seed) {
+		check(x, k);
+		if (maxIters < 1) {
+			throw new IllegalArgumentException("The maxIters parameter must be 1 or higher. Got: " + maxIters + ".");
+		}
+
+		final Data data = new Data(x);
+		final int m = data.m;
+		final int n = data.n;
+		final Random rnd = new Random(seed);
+
+		final float[] c = seed(data, k, rnd);
+		final int[] labels = new int[m];
+		// bounds on the distance to the centroid of the row, and to the others
+		final float[] upper = new float[m];
+		final float[] lower = new float[m];
+		Arrays.fill(upper, Float.POSITIVE_INFINITY);
+
+		final float[] shift = new float[k];
+		final ConcurrentLinkedQueue<Scratch> pool = new ConcurrentLinkedQueue<>();
+
+		int it = 0;
+		while (it < maxIters) {
+			it++;
+
+			// the bounds of all the rows move by the shifts of the last iteration
+			int far = 0;
+			float farShift = 0f;
+			float nextShift = 0f;
+			for (int j = 0; j < k; j++) {
+				if (shift[j] > farShift) {
+					nextShift = farShift;
+					farShift = shift[j];
+					far = j;
+				} else if (shift[j] > nextShift) {
+					nextShift = shift[j];
+				}
+			}
+
+			final Centers cs = new Centers(c, k, n);
+			final int farthest = far;
+			final float maxShift = farShift;
+			final float secondShift = nextShift;
+
+			List<Callable<Part>> tasks = new ArrayList<>();
+			for (int from = 0; from < m; from += RANGE) {
+				final int start = from;
+				final int end = Math.min(m, from + RANGE);
+				tasks.add(new Callable<Part>() {
+					@Override
+					public Part call() {
+						Scratch s = scratch(pool, k, n);
+						Part p = new Part(k, n);
+						FloatBuffer rows = data.values.duplicate();
+						for (int i = start; i < end; i++) {
+							int a = labels[i];
+							upper[i] += shift[a];
+							lower[i] -= (a == farthest) ? secondShift : maxShift;
+
+							rows.position(i * n);
+							rows.get(s.row, 0, n);
+
+							float bound = Math.max(cs.half[a], lower[i]);
+							if (upper[i] > bound) {
+								upper[i] = (float) Math.sqrt(cs.dist(s.row, a));
+							}
+							if (upper[i] > bound) {
+								s.add(i, s.row);
+								if (s.len == s.rows) {
+									s.assign(cs, labels, upper, lower, p);
+								}
+							} else {
+								p.add(a, s.row, 0);
+							}
+						}
+						s.assign(cs, labels, upper, lower, p);
+						pool.offer(s);
+						return p;
+					}
+				});
+			}
+
+			Part total = merge(Tasks.run(tasks), k, n);
+			for (int j = 0; j < k; j++) {
+				// an empty cluster keeps its centroid
+				if (total.counts[j] == 0) {
+					shift[j] = 0f;
+					continue;
+				}
+
+				double d = 0.0;
+				for (int f = 0, p = j * n; f < n; f++, p++) {
+					float v = (float) (total.sums[p] / total.counts[j]);
+					d += (v - c[p]) * (v - c[p]);
+					c[p] = v;
+				}
+				shift[j] = (float) Math.sqrt(d);
+			}
+
+			if (total.changed == 0) {
+				break;
+			}
+		}
+
+		return new KMeans(k, n, c, labels, inertia(data, c, k, labels), it);
+	}
+
+	public static KMeans fitMiniBatch(Mat x, int k) {
+		return fitMiniBatch(x, k, DEFAULT_BATCH_SIZE, DEFAULT_BATCHES, 0L);
+	}
+
+	/**
+	 * Clusters the rows with mini-batch k-means.
+	 */
+	public static KMeans fitMiniBatch(Mat x, int k, int batchSize, int batches, long seed) {
+		check(x, k);
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batchSize parameter must be 1 or higher. Got: " + batchSize + ".");
+		}
+		if (batches < 1) {
+			throw new IllegalArgumentException("The batches parameter must be 1 or higher. Got: " + batches + ".");
+		}
+
+		Data data = new Data(x);
+		int m = data.m;
+		int n = data.n;
+		Random rnd = new Random(seed);
+
+		float[] c = seed(data, k, rnd);
+		int[] counts = new int[k];
+
+		Scratch s = new Scratch(k, n);
+		FloatBuffer rows = data.values.duplicate();
+		int[] idx = new int[batchSize];
+		int[] nearest = new int[batchSize];
+		for (int b = 0; b < batches; b++) {
+			Centers cs = new Centers(c, k, n);
+			for (int i = 0; i < batchSize; i++) {
+				idx[i] = rnd.nextInt(m);
+			}
+
+			// all the batch is assigned to the centroids from before it
+			for (int at = 0; at < batchSize; at += s.rows) {
+				int len = Math.min(s.rows, batchSize - at);
+				for (int i = 0; i < len; i++) {
+					rows.position(idx[at + i] * n);
+					rows.get(s.row, 0, n);
+					s.add(at + i, s.row);
+				}
+				s.nearest(cs, nearest, null, null);
+			}
+
+			for (int i = 0; i < batchSize; i++) {
+				int j = nearest[i];
+				float eta = 1f / ++counts[j];
+				rows.position(idx[i] * n);
+				rows.get(s.row, 0, n);
+				for (int f = 0, p = j * n; f < n; f++, p++) {
+					c[p] += eta * (s.row[f] - c[p]);
+				}
+			}
+		}
+
+		int[] labels = predict(data, c, k);
+		return new KMeans(k, n, c, labels, inertia(data, c, k, labels), batches);
+	}
+
+	private static void check(Mat x, int k) {
+		if (k < 1 || k > x.rows()) {
+			throw new IllegalArgumentException("The k parameter must be between 1 and " + x.rows() + ". Got: " + k
+					+ ".");
+		}
+	}
+
+	public int k() {
+		return k;
+	}
+
+	public Mat centroids() {
+		return new Mat(k, n, centroids);
+	}
+
+	public int[] labels() {
+		return labels.clone();
+	}
+
+	/**
+	 * Sum of the squared distances of the rows to their centroids.
+	 */
+	public double inertia() {
+		return inertia;
+	}
+
+	public int iterations() {
+		return iterations;
+	}
+
+	public int[] predict(Mat x) {
+		if (x.cols() != n) {
+			throw new IllegalArgumentException(
+					"The rows must have " + n + " columns. Got: " + x.cols() + ".");
+		}
+		return predict(new Data(x), centroids, k);
+	}
+
+	private static int[] predict(final Data data, float[] c, final int k) {
+		final int m = data.m;
+		final int n = data.n;
+		final Centers cs = new Centers(c, k, n);
+		final int[] labels = new int[m];
+		final ConcurrentLinkedQueue<Scratch> pool = new ConcurrentLinkedQueue<>();
+
+		List<Callable<Part>> tasks = new ArrayList<>();
+		for (int from = 0; from < m; from += RANGE) {
+			final int start = from;
+			final int end = Math.min(m, from + RANGE);
+			tasks.add(new Callable<Part>() {
+				@Override
+				public Part call() {
+					Scratch s = scratch(pool, k, n);
+					FloatBuffer rows = data.values.duplicate();
+					for (int i = start; i < end; i++) {
+						rows.position(i * n);
+						rows.get(s.row, 0, n);
+						s.add(i, s.row);
+						if (s.len == s.rows) {
+							s.nearest(cs, labels, null, null);
+						}
+					}
+					s.nearest(cs, labels, null, null);
+					pool.offer(s);
+					return null;
+				}
+			});
+		}
+		Tasks.run(tasks);
+		Buffers.reachable(data);
+
+		return labels;
+	}
+
+	private static double inertia(final Data data, float[] c, int k, final int[] labels) {
+		final int n = data.n;
+		final Centers cs = new Centers(c, k, n);
+
+		List<Callable<Double>> tasks = new ArrayList<>();
+		for (int from = 0; from < data.m; from += RANGE) {
+			final int start = from;
+			final int end = Math.min(data.m, from + RANGE);
+			tasks.add(new Callable<Double>() {
+				@Override
+				public Double call() {
+					float[] row = new float[n];
+					FloatBuffer rows = data.values.duplicate();
+					double sum = 0.0;
+					for (int i = start; i < end; i++) {
+						rows.position(i * n);
+						rows.get(row, 0, n);
+						sum += cs.dist(row, labels[i]);
+					}
+					return sum;
+				}
+			});
+		}
+
+		double ans = 0.0;
+		List<Double> parts = Tasks.run(tasks);
+		Buffers.reachable(data);
+		for (double part : parts) {
+			ans += part;
+		}
+		return ans;
+	}
+
+	// k-means++ on a sample of the rows
+	private static float[] seed(Data data, int k, Random rnd) {
+		int m = data.m;
+		int n = data.n;
+		int size = (int) Math.min(m, Math.max(SEED_ROWS, (long) k * SEED_ROWS_PER_CENTROID));
+
+		float[] sample = new float[size * n];
+		FloatBuffer rows = data.values.duplicate();
+		for (int i = 0; i < size; i++) {
+			rows.position(((size == m) ? i : rnd.nextInt(m)) * n);
+			rows.get(sample, i * n, n);
+		}
+
+		float[] c = new float[k * n];
+		double[] d2 = new double[size];
+		Arrays.fill(d2, Double.POSITIVE_INFINITY);
+
+		int pick = rnd.nextInt(size);
+		for (int j = 0; j < k; j++) {
+			System.arraycopy(sample, pick * n, c, j * n, n);
+
+			double total = 0.0;
+			for (int i = 0; i < size; i++) {
+				d2[i] = Math.min(d2[i], dist(sample, i * n, c, j * n, n));
+				total += d2[i];
+			}
+
+			// all the rows are on centroids when the total is 0
+			pick = rnd.nextInt(size);
+			double r = rnd.nextDouble() * total;
+			for (int i = 0; i < size && total > 0.0; i++) {
+				r -= d2[i];
+				if (r < 0.0 && d2[i] > 0.0) {
+					pick = i;
+					break;
+				}
+			}
+		}
+
+		return c;
+	}
+
+	static float dist(float[] a, int aOffset, float[] b, int bOffset, int n) {
+		float s0 = 0f;
+		float s1 = 0f;
+		float s2 = 0f;
+		float s3 = 0f;
+
+		int f = 0;
+		for (; f + 3 < n; f += 4) {
+			float d0 = a[aOffset + f] - b[bOffset + f];
+			float d1 = a[aOffset + f + 1] - b[bOffset + f + 1];
+			float d2 = a[aOffset + f + 2] - b[bOffset + f + 2];
+			float d3 = a[aOffset + f + 3] - b[bOffset + f + 3];
+			s0 += d0 * d0;
+			s1 += d1 * d1;
+			s2 += d2 * d2;
+			s3 += d3 * d3;
+		}
+		for (; f < n; f++) {
+			float d0 = a[aOffset + f] - b[bOffset + f];
+			s0 += d0 * d0;
+		}
+
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private static Part merge(List<Part> parts, int k, int n) {
+		Part total = new Part(k, n);
+		for (Part p : parts) {
+			for (int i = 0; i < total.sums.length; i++) {
+				total.sums[i] += p.sums[i];
+			}
+			for (int j = 0; j < k; j++) {
+				total.counts[j] += p.counts[j];
+			}
+			total.changed += p.changed;
+		}
+		return total;
+	}
+
+	private static Scratch scratch(ConcurrentLinkedQueue<Scratch> pool, int k, int n) {
+		Scratch s = pool.poll();
+		return (s != null) ? s : new Scratch(k, n);
+	}
+
+	private static class Data {
+
+		// the values are a view of its memory, valid while it is reachable
+		final Mat x;
+		final FloatBuffer values;
+		final int m;
+		final int n;
+
+		Data(Mat x) {
+			this.x = x;
+			m = x.rows();
+			n = x.cols();
+			values = x.buffer().asFloatBuffer();
+		}
+	}
+
+	private static class Centers {
+
+		final float[] c;
+		final int k;
+		final int n;
+		final float[] norms;
+		final Mat transp;
+		final float[] half;
+
+		Centers(float[] c, int k, int n) {
+			this.c = c;
+			this.k = k;
+			this.n = n;
+
+			norms = new float[k];
+			for (int j = 0; j < k; j++) {
+				double s = 0.0;
+				for (int f = 0, p = j * n; f < n; f++, p++) {
+					s += c[p] * c[p];
+				}
+				norms[j] = (float) s;
+			}
+
+			Mat cm = new Mat(k, n, c);
+			transp = cm.transp();
+
+			// a row nearer than half of that to its centroid can not be nearer to another
+			half = new float[k];
+			Arrays.fill(half, Float.MAX_VALUE);
+			float[] dots = cm.dot(transp).toFloatArray();
+			for (int a = 0; a < k; a++) {
+				for (int b = a + 1; b < k; b++) {
+					float d = 0.5f * (float) Math.sqrt(Math.max(0f, norms[a] + norms[b] - 2f * dots[a * k + b]));
+					half[a] = Math.min(half[a], d);
+					half[b] = Math.min(half[b], d);
+				}
+			}
+		}
+
+		float dist(float[] row, int j) {
+			return KMeans.dist(row, 0, c, j * n, n);
+		}
+	}
+
+	private static class Part {
+
+		final int n;
+		final double[] sums;
+		final int[] counts;
+		int changed;
+
+		Part(int k, int n) {
+			this.n = n;
+			sums = new double[k * n];
+			counts = new int[k];
+		}
+
+		void add(int j, float[] row, int offset) {
+			for (int f = 0, p = j * n; f < n; f++, p++) {
+				sums[p] += row[offset + f];
+			}
+			counts[j]++;
+		}
+	}
+
+	// the distances of a block of rows to all the centroids are one product, |x|^2 - 2 x.c + |c|^2
+	private static class Scratch {
+
+		final int k;
+		final int n;
+		final int rows;
+
+		final float[] row;
+		final int[] idx;
+		final float[] xs;
+		int len;
+		// labels of the rows before they are assigned
+		final int[] old;
+
+		final FloatBuffer block;
+		final Mat blockMat;
+		final float[] dots;
+		final FloatBuffer out;
+		final Mat outMat;
+
+		Scratch(int k, int n) {
+			this.k = k;
+			this.n = n;
+			rows = Math.max(MIN_BLOCK, Math.min(MAX_BLOCK, BLOCK_FLOATS / Math.max(k, n)));
+
+			row = new float[n];
+			idx = new int[rows];
+			old = new int[rows];
+			xs = new float[rows * n];
+			dots = new float[rows * k];
+
+			ByteBuffer b = ByteBuffer.allocateDirect(rows * n * 4).order(ByteOrder.nativeOrder());
+			block = b.asFloatBuffer();
+			blockMat = Mat.wrap(b, rows, n);
+			ByteBuffer o = ByteBuffer.allocateDirect(rows * k * 4).order(ByteOrder.nativeOrder());
+			out = o.asFloatBuffer();
+			outMat = Mat.wrap(o, rows, k);
+		}
+
+		void add(int i, float[] values) {
+			idx[len] = i;
+			System.arraycopy(values, 0, xs, len * n, n);
+			len++;
+		}
+
+		void nearest(Centers cs, int[] labels, float[] dist, float[] second) {
+			if (len == 0) {
+				return;
+			}
+
+			block.clear();
+			block.put(xs, 0, len * n);
+			blockMat.dot(cs.transp, outMat);
+			out.clear();
+			out.get(dots, 0, len * k);
+
+			float[] norms = cs.norms;
+			for (int r = 0; r < len; r++) {
+				// |x|^2 is the same for all the centroids, and added last
+				int best = 0;
+				float d1 = Float.POSITIVE_INFINITY;
+				float d2 = Float.POSITIVE_INFINITY;
+				for (int j = 0, p = r * k; j < k; j++, p++) {
+					float d = norms[j] - 2f * dots[p];
+					if (d < d1) {
+						d2 = d1;
+						d1 = d;
+						best = j;
+					} else if (d < d2) {
+						d2 = d;
+					}
+				}
+				labels[idx[r]] = best;
+
+				if (dist != null) {
+					float xn = 0f;
+					for (int f = 0, p = r * n; f < n; f++, p++) {
+						xn += xs[p] * xs[p];
+					}
+					dist[idx[r]] = (float) Math.sqrt(Math.max(0f, xn + d1));
+					second[idx[r]] = (float) Math.sqrt(Math.max(0f, xn + d2));
+				}
+			}
+			len = 0;
+		}
+
+		void assign(Centers cs, int[] labels, float[] upper, float[] lower, Part p) {
+			int count = len;
+			for (int r = 0; r < count; r++) {
+				old[r] = labels[idx[r]];
+			}
+
+			nearest(cs, labels, upper, lower);
+			for (int r = 0; r < count; r++) {
+				int j = labels[idx[r]];
+				if (j != old[r]) {
+					p.changed++;
+				}
+				p.add(j, xs, r * n);
+			}
+		}
+	}
+}
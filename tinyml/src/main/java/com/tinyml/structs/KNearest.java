@@ -0,0 +1,202 @@
+package com.tinyml.structs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import com.tinyml.structs.IvfPqIndex.Metric;
+
+/**
+ * Exact k nearest neighbours, by brute force in tiles of one matrix product each.
+ */
+public final class KNearest {
+
+	// queries and reference rows of a tile, whose distances fit in about a megabyte
+	static final int QUERY_BLOCK = 256;
+	static final int ROW_BLOCK = 1024;
+
+	private KNearest() {
+
+	}
+
+	public static Neighbors search(Mat x, Mat queries, int k) {
+		return search(x, queries, k, Metric.L2);
+	}
+
+	/**
+	 * Finds the k rows of x nearest to each row of the queries, nearest first.
+	 */
+	public static Neighbors search(Mat x, Mat queries, int k, Metric metric) {
+		return search(x, queries, k, metric, QUERY_BLOCK, ROW_BLOCK);
+	}
+
+	static Neighbors search(Mat x, Mat queries, final int k, final Metric metric, int queryBlock, int rowBlock) {
+		if (queries.cols() != x.cols()) {
+			throw new IllegalArgumentException("The queries must have " + x.cols() + " columns. Got: "
+					+ queries.cols() + ".");
+		}
+		if (k < 1) {
+			throw new IllegalArgumentException("The k parameter must be 1 or higher. Got: " + k + ".");
+		}
+		if (metric == null) {
+			throw new IllegalArgumentException("The metric parameter can not be null.");
+		}
+
+		final int m = x.rows();
+		final int nq = queries.rows();
+		final int n = x.cols();
+		final Neighbors ans = new Neighbors(nq, k);
+		if (nq == 0) {
+			return ans;
+		}
+
+		final FloatBuffer rows = x.buffer().asFloatBuffer();
+		final FloatBuffer qs = queries.buffer().asFloatBuffer();
+		final int qb = Math.min(queryBlock, nq);
+		final int rb = Math.max(1, Math.min(rowBlock, m));
+		final int blocks = (nq + qb - 1) / qb;
+
+		// one task per thread, each with its own tiles, taking every workers-th block
+		final int workers = Math.min(blocks, ForkJoinPool.commonPool().getParallelism());
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int w = 0; w < workers; w++) {
+			final int first = w;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Tiles t = new Tiles(n, qb, rb, k, metric);
+					for (int b = first; b < blocks; b += workers) {
+						int from = b * qb;
+						t.search(qs.duplicate(), from, Math.min(nq, from + qb), rows.duplicate(), m, ans);
+					}
+					return null;
+				}
+			});
+		}
+		Tasks.run(tasks);
+		Buffers.reachable(x);
+		Buffers.reachable(queries);
+
+		return ans;
+	}
+
+	private static class Tiles {
+
+		final int n;
+		final int qb;
+		final int rb;
+		final Metric metric;
+
+		final float[] qs;
+		final float[] qNorms;
+		final float[] rs;
+		final float[] rNorms;
+		final float[] dots;
+		final TopK[] near;
+
+		final FloatBuffer qBuf;
+		final Mat qMat;
+		final FloatBuffer rBuf;
+		final Mat rTransp;
+		final FloatBuffer out;
+		final Mat outMat;
+
+		Tiles(int n, int qb, int rb, int k, Metric metric) {
+			this.n = n;
+			this.qb = qb;
+			this.rb = rb;
+			this.metric = metric;
+
+			qs = new float[qb * n];
+			qNorms = new float[qb];
+			rs = new float[rb * n];
+			rNorms = new float[rb];
+			dots = new float[qb * rb];
+			near = new TopK[qb];
+			for (int q = 0; q < qb; q++) {
+				near[q] = new TopK(k);
+			}
+
+			ByteBuffer b = ByteBuffer.allocateDirect(qb * n * 4).order(ByteOrder.nativeOrder());
+			qBuf = b.asFloatBuffer();
+			qMat = Mat.wrap(b, qb, n);
+			ByteBuffer r = ByteBuffer.allocateDirect(rb * n * 4).order(ByteOrder.nativeOrder());
+			rBuf = r.asFloatBuffer();
+			rTransp = Mat.wrap(r, rb, n).transp();
+			ByteBuffer o = ByteBuffer.allocateDirect(qb * rb * 4).order(ByteOrder.nativeOrder());
+			out = o.asFloatBuffer();
+			outMat = Mat.wrap(o, qb, rb);
+		}
+
+		void search(FloatBuffer queries, int from, int to, FloatBuffer rows, int m, Neighbors ans) {
+			int len = to - from;
+			// the rows after the last query are zeros, and their distances are not read
+			queries.position(from * n);
+			queries.get(qs, 0, len * n);
+			Arrays.fill(qs, len * n, qs.length, 0f);
+			norms(qs, len, qNorms);
+			qBuf.clear();
+			qBuf.put(qs);
+
+			rows.position(0);
+			for (int at = 0; at < m; at += rb) {
+				int l = Math.min(rb, m - at);
+				rows.get(rs, 0, l * n);
+				Arrays.fill(rs, l * n, rs.length, 0f);
+				norms(rs, l, rNorms);
+				rBuf.clear();
+				rBuf.put(rs);
+
+				qMat.dot(rTransp, outMat);
+				out.clear();
+				out.get(dots);
+
+				// |q|^2 is the same for all the rows of a query, so it is added at the end
+				for (int q = 0; q < len; q++) {
+					TopK h = near[q];
+					float bound = h.bound();
+					for (int r = 0, p = q * rb; r < l; r++, p++) {
+						float d = rNorms[r] - 2f * dots[p];
+						if (d < bound) {
+							h.offer(d, at + r);
+							bound = h.bound();
+						}
+					}
+				}
+			}
+
+			int k = ans.k();
+			int[] ids = ans.ids();
+			float[] dist = ans.distances();
+			for (int q = 0; q < len; q++) {
+				int start = (from + q) * k;
+				near[q].drain(ids, dist, start);
+				for (int i = start; i < start + k; i++) {
+					// rounding can take it under 0
+					dist[i] = Math.max(dist[i] + qNorms[q], 0f);
+					if (metric == Metric.COSINE) {
+						dist[i] *= 0.5f;
+					}
+				}
+			}
+		}
+
+		private void norms(float[] vals, int len, float[] out) {
+			for (int i = 0, p = 0; i < len; i++, p += n) {
+				if (metric == Metric.COSINE) {
+					IvfPqIndex.unit(vals, p, n);
+				}
+				float s = 0f;
+				for (int f = p; f < p + n; f++) {
+					s += vals[f] * vals[f];
+				}
+				out[i] = s;
+			}
+		}
+	}
+}
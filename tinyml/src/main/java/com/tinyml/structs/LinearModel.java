@@ -0,0 +1,93 @@
+package com.tinyml.structs;
+
+/**
+ * Linear or logistic regression fitted by {@link LinearTrainer}.
+ */
+public class LinearModel {
+
+	public enum Loss {
+		// linear regression, scores are x.w + b
+		SQUARED,
+		// logistic regression, scores are the probability sigmoid(x.w + b)
+		LOGISTIC
+	}
+
+	private final Loss loss;
+	private final float[] weights;
+	private final float bias;
+	private final double[] seconds;
+	private final double[] losses;
+
+	LinearModel(Loss loss, float[] weights, float bias, double[] seconds, double[] losses) {
+		this.loss = loss;
+		this.weights = weights;
+		this.bias = bias;
+		this.seconds = seconds;
+		this.losses = losses;
+	}
+
+	public Loss loss() {
+		return loss;
+	}
+
+	public int cols() {
+		return weights.length;
+	}
+
+	public Vec weights() {
+		return new Vec(weights.clone());
+	}
+
+	public float bias() {
+		return bias;
+	}
+
+	/**
+	 * Returns the score of each row, a probability for logistic regression.
+	 */
+	public Vec predict(Mat x) {
+		if (x.cols() != weights.length) {
+			throw new IllegalArgumentException(
+					"The rows must have " + weights.length + " columns. Got: " + x.cols() + ".");
+		}
+
+		float[] z = x.affine(new Mat(weights.length, 1, weights), new Vec(new float[] { bias })).toFloatArray();
+		if (loss == Loss.LOGISTIC) {
+			for (int i = 0; i < z.length; i++) {
+				z[i] = sigmoid(z[i]);
+			}
+		}
+		return new Vec(z);
+	}
+
+	/**
+	 * Returns a scorer of single rows with the weights of the model.
+	 */
+	public AffineScorer scorer() {
+		AffineScorer.Activation a = (loss == Loss.LOGISTIC) ? AffineScorer.Activation.SIGMOID
+				: AffineScorer.Activation.IDENTITY;
+		return new AffineScorer(new Mat(weights.length, 1, weights), new Vec(new float[] { bias }), a);
+	}
+
+	public int epochs() {
+		return seconds.length;
+	}
+
+	/**
+	 * Wall time of the epoch, in seconds.
+	 */
+	public double seconds(int epoch) {
+		return seconds[epoch];
+	}
+
+	/**
+	 * Mean loss of the rows of the epoch before their steps, without the regularization.
+	 */
+	public double loss(int epoch) {
+		return losses[epoch];
+	}
+
+	static float sigmoid(float z) {
+		return (float) (1.0 / (1.0 + Math.exp(-z)));
+	}
+}
@@ -0,0 +1,379 @@
+package com.tinyml.structs;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.tinyml.structs.LinearModel.Loss;
+
+/**
+ * Fits linear and logistic regression by mini-batch gradient descent, Hogwild with several threads.
+ */
+public class LinearTrainer {
+
+	public enum Optimizer {
+		SGD, ADAM
+	}
+
+	public static final int DEFAULT_EPOCHS = 10;
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	public static final float DEFAULT_LEARNING_RATE = 0.01f;
+
+	private static final float BETA1 = 0.9f;
+	private static final float BETA2 = 0.999f;
+	private static final float EPSILON = 1e-8f;
+
+	private final Loss loss;
+	private final Optimizer optimizer;
+
+	private float learningRate = DEFAULT_LEARNING_RATE;
+	private float l1;
+	private float l2;
+	private int epochs = DEFAULT_EPOCHS;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int threads = 1;
+	private long seed;
+
+	public LinearTrainer(Loss loss, Optimizer optimizer) {
+		if (loss == null) {
+			throw new IllegalArgumentException("The loss parameter can not be null.");
+		}
+		if (optimizer == null) {
+			throw new IllegalArgumentException("The optimizer parameter can not be null.");
+		}
+
+		this.loss = loss;
+		this.optimizer = optimizer;
+	}
+
+	public LinearTrainer learningRate(float learningRate) {
+		if ((learningRate > 0f) == false) {
+			throw new IllegalArgumentException("The learningRate parameter must be positive. Got: " + learningRate
+					+ ".");
+		}
+		this.learningRate = learningRate;
+		return this;
+	}
+
+	public LinearTrainer l1(float l1) {
+		if ((l1 >= 0f) == false) {
+			throw new IllegalArgumentException("The l1 parameter must be 0 or higher. Got: " + l1 + ".");
+		}
+		this.l1 = l1;
+		return this;
+	}
+
+	public LinearTrainer l2(float l2) {
+		if ((l2 >= 0f) == false) {
+			throw new IllegalArgumentException("The l2 parameter must be 0 or higher. Got: " + l2 + ".");
+		}
+		this.l2 = l2;
+		return this;
+	}
+
+	public LinearTrainer epochs(int epochs) {
+		if (epochs < 1) {
+			throw new IllegalArgumentException("The epochs parameter must be 1 or higher. Got: " + epochs + ".");
+		}
+		this.epochs = epochs;
+		return this;
+	}
+
+	public LinearTrainer batchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batchSize parameter must be 1 or higher. Got: " + batchSize + ".");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Number of threads updating the weights without locks. One thread is deterministic for a seed.
+	 */
+	public LinearTrainer threads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The threads parameter must be 1 or higher. Got: " + threads + ".");
+		}
+		this.threads = threads;
+		return this;
+	}
+
+	public LinearTrainer seed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Fits the model of the rows of x to the labels, which are between 0 and 1 for logistic regression.
+	 */
+	public LinearModel fit(Mat x, Vec y) {
+		final int m = x.rows();
+		final int n = x.cols();
+		final float[] labels = labels(y, m);
+		final FloatBuffer values = x.buffer().asFloatBuffer();
+
+		final Weights w = new Weights(n);
+		final Worker[] workers = workers(w, n, batchSize);
+		final int[] order = new int[m];
+		for (int i = 0; i < m; i++) {
+			order[i] = i;
+		}
+		Random rnd = new Random(seed);
+
+		double[] seconds = new double[epochs];
+		double[] losses = new double[epochs];
+		for (int e = 0; e < epochs; e++) {
+			long start = System.nanoTime();
+			for (int i = m - 1; i > 0; i--) {
+				int k = rnd.nextInt(i + 1);
+				int t = order[i];
+				order[i] = order[k];
+				order[k] = t;
+			}
+
+				List<Callable<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < workers.length; t++) {
+				final Worker wk = workers[t];
+				final int from = (int) ((long) t * m / workers.length);
+				final int to = (int) ((long) (t + 1) * m / workers.length);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						FloatBuffer rows = values.duplicate();
+						for (int at = from; at < to; at += batchSize) {
+							int len = Math.min(batchSize, to - at);
+							for (int i = 0; i < len; i++) {
+								int r = order[at + i];
+								rows.position(r * n);
+								rows.get(wk.xs, i * n, n);
+								wk.ys[i] = labels[r];
+							}
+							wk.step(len);
+						}
+						return null;
+					}
+				});
+			}
+			Tasks.run(tasks);
+
+			seconds[e] = (System.nanoTime() - start) / 1e9;
+			losses[e] = total(workers, m);
+		}
+		Buffers.reachable(x);
+
+		return new LinearModel(loss, Arrays.copyOf(w.w, n), w.w[n], seconds, losses);
+	}
+
+	/**
+	 * Fits the model of the rows of the grid, encoded in shuffled batches, to the labels.
+	 */
+	public LinearModel fit(Grid g, GridEncoder enc, Vec y) {
+		final int m = g.rows();
+		final int n = enc.cols();
+		final float[] labels = labels(y, m);
+
+		final Weights w = new Weights(n);
+		final Worker[] workers = workers(w, n, batchSize);
+
+		double[] seconds = new double[epochs];
+		double[] losses = new double[epochs];
+		for (int e = 0; e < epochs; e++) {
+			long start = System.nanoTime();
+
+			int block = batchSize * workers.length;
+			try (BatchIterator it = new BatchIterator(g, enc, block, true, seed + e,
+					BatchIterator.DEFAULT_BUFFERS)) {
+				int first = 0;
+				while (it.hasNext()) {
+					Mat batch = it.next();
+					final int len = batch.rows();
+					final int at = first;
+					final FloatBuffer values = batch.buffer().asFloatBuffer();
+
+					List<Callable<Void>> tasks = new ArrayList<>();
+					for (int t = 0; t * batchSize < len; t++) {
+						final Worker wk = workers[t];
+						final int from = t * batchSize;
+						final int l = Math.min(batchSize, len - from);
+						tasks.add(new Callable<Void>() {
+							@Override
+							public Void call() {
+								FloatBuffer rows = values.duplicate();
+								rows.position(from * n);
+								rows.get(wk.xs, 0, l * n);
+								for (int i = 0; i < l; i++) {
+									wk.ys[i] = labels[it.row(at + from + i)];
+								}
+								wk.step(l);
+								return null;
+							}
+						});
+					}
+					Tasks.run(tasks);
+					Buffers.reachable(batch);
+					first += len;
+				}
+			}
+
+			seconds[e] = (System.nanoTime() - start) / 1e9;
+			losses[e] = total(workers, m);
+		}
+
+		return new LinearModel(loss, Arrays.copyOf(w.w, n), w.w[n], seconds, losses);
+	}
+
+	private float[] labels(Vec y, int m) {
+		if (y.length() != m) {
+			throw new IllegalArgumentException("There must be one label per row. Expected " + m + ", got "
+					+ y.length() + ".");
+		}
+
+		float[] labels = y.toArray();
+		for (int i = 0; i < m; i++) {
+			float v = labels[i];
+			if (loss == Loss.LOGISTIC && (v >= 0f && v <= 1f) == false) {
+				throw new IllegalArgumentException(
+						"The labels of logistic regression must be between 0 and 1. Got: " + v + " at row " + i + ".");
+			}
+			if (Float.isNaN(v) || Float.isInfinite(v)) {
+				throw new IllegalArgumentException("The labels must be finite. Got: " + v + " at row " + i + ".");
+			}
+		}
+		return labels;
+	}
+
+	private Worker[] workers(Weights w, int n, int batch) {
+		Worker[] workers = new Worker[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Worker(w, n, batch);
+		}
+		return workers;
+	}
+
+	private static double total(Worker[] workers, int m) {
+		double sum = 0.0;
+		for (Worker wk : workers) {
+			sum += wk.loss;
+			wk.loss = 0.0;
+		}
+		return (m > 0) ? sum / m : 0.0;
+	}
+
+	// the bias is last
+	private class Weights {
+
+		final float[] w;
+		final float[] m1;
+		final float[] m2;
+		final AtomicLong steps = new AtomicLong();
+
+		Weights(int n) {
+			w = new float[n + 1];
+			m1 = (optimizer == Optimizer.ADAM) ? new float[n + 1] : null;
+			m2 = (optimizer == Optimizer.ADAM) ? new float[n + 1] : null;
+		}
+	}
+
+	private class Worker {
+
+		final Weights shared;
+		final int n;
+		final float[] xs;
+		final float[] ys;
+		final float[] grad;
+		double loss;
+
+		Worker(Weights shared, int n, int batch) {
+			this.shared = shared;
+			this.n = n;
+			xs = new float[batch * n];
+			ys = new float[batch];
+			grad = new float[n + 1];
+		}
+
+		void step(int len) {
+			float[] w = shared.w;
+			Arrays.fill(grad, 0f);
+
+			double sum = 0.0;
+			for (int i = 0, off = 0; i < len; i++, off += n) {
+				float z = w[n] + dot(w, xs, off, n);
+				float y = ys[i];
+				float g;
+				if (LinearTrainer.this.loss == Loss.LOGISTIC) {
+					g = LinearModel.sigmoid(z) - y;
+					// log(1 + e^z) - y z, written so the exponential can not overflow
+					sum += Math.max(z, 0f) + Math.log1p(Math.exp(-Math.abs(z))) - y * z;
+				} else {
+					g = z - y;
+					sum += 0.5 * g * g;
+				}
+
+				for (int j = 0; j < n; j++) {
+					grad[j] += g * xs[off + j];
+				}
+				grad[n] += g;
+			}
+			loss += sum;
+
+			float inv = 1f / len;
+			float rate = learningRate;
+			float c1 = 1f;
+			float c2 = 1f;
+			if (optimizer == Optimizer.ADAM) {
+				// the moments are shared, so their bias is corrected with the steps of all threads
+				long steps = shared.steps.incrementAndGet();
+				c1 = (float) (1.0 - Math.pow(BETA1, steps));
+				c2 = (float) (1.0 - Math.pow(BETA2, steps));
+			}
+			float shrink = rate * l1;
+
+			for (int j = 0; j <= n; j++) {
+				float g = grad[j] * inv;
+				if (j < n) {
+					g += l2 * w[j];
+				}
+
+				float v;
+				if (optimizer == Optimizer.ADAM) {
+					float[] m1 = shared.m1;
+					float[] m2 = shared.m2;
+					m1[j] = BETA1 * m1[j] + (1f - BETA1) * g;
+					m2[j] = BETA2 * m2[j] + (1f - BETA2) * g * g;
+					v = w[j] - rate * (m1[j] / c1) / ((float) Math.sqrt(m2[j] / c2) + EPSILON);
+				} else {
+					v = w[j] - rate * g;
+				}
+
+				if (j < n && shrink > 0f) {
+					v = (v > shrink) ? v - shrink : (v < -shrink) ? v + shrink : 0f;
+				}
+				w[j] = v;
+			}
+		}
+	}
+
+	private static float dot(float[] a, float[] b, int bOffset, int len) {
+		float s0 = 0f;
+		float s1 = 0f;
+		float s2 = 0f;
+		float s3 = 0f;
+
+		int i = 0;
+		for (; i + 3 < len; i += 4) {
+			s0 += a[i] * b[bOffset + i];
+			s1 += a[i + 1] * b[bOffset + i + 1];
+			s2 += a[i + 2] * b[bOffset + i + 2];
+			s3 += a[i + 3] * b[bOffset + i + 3];
+		}
+		for (; i < len; i++) {
+			s0 += a[i] * b[bOffset + i];
+		}
+
+		return (s0 + s1) + (s2 + s3);
+	}
+}
@@ -2,36 +2,172 @@ package com.tinyml.structs;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import org.datavec.api.records.Record;
-import org.datavec.api.records.reader.RecordReader;
-import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
-import org.datavec.api.split.FileSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Loader {
 
+	private static final Logger log = LoggerFactory.getLogger(Loader.class);
+
+	static final long MIN_PARALLEL_BYTES = 1 << 20;
+	private static final long MIN_RANGE_BYTES = 1 << 18;
+
 	public static Grid csv(String path) {
 		return csv(new File(path));
 	}
 
 	public static Grid csv(File f) {
+		return csv(f, ',');
+	}
+
+	public static Grid csv(String path, char delimiter) {
+		return csv(new File(path), delimiter);
+	}
+
+	public static Grid csv(File f, char delimiter) {
 
-		try (RecordReader rr = new CSVRecordReader(0, ',')) {
+		CsvReader reader = new CsvReader(delimiter);
 
-			rr.initialize(new FileSplit(f));
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+
+			long start = System.nanoTime();
+			long size = ch.size();
 
 			Grid g = new Grid();
-			while (rr.hasNext()) {
-				Record row = rr.nextRecord();
+			reader.read(ch, 0, size, g);
+
+			report(f, g, size, System.nanoTime() - start);
+
+			return g;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Loads the file splitting it in byte ranges that are parsed in parallel by
+	 * up to parallelism threads. The rows keep the order they have in the file.
+	 */
+	public static Grid csv(File f, char delimiter, int parallelism) {
+		return csv(f, delimiter, parallelism, MIN_PARALLEL_BYTES, MIN_RANGE_BYTES);
+	}
+
+	static Grid csv(File f, final char delimiter, int parallelism, long minBytes, long rangeBytes) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be 1 or higher. Got: " + parallelism + ".");
+		}
+
+		if (parallelism == 1 || f.length() < minBytes) {
+			return csv(f, delimiter);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try (final FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
 
-				g.add(row);
+			long start = System.nanoTime();
+
+			// a few ranges per thread, so a slow range does not hold the rest
+			int parts = (int) Math.min(parallelism * 4L, ch.size() / Math.max(rangeBytes, 1) + 1);
+			long[] offsets = CsvReader.split(ch, parts, pool);
+
+			List<ForkJoinTask<Grid>> tasks = new ArrayList<>();
+			for (int k = 0; k + 1 < offsets.length; k++) {
+				final long from = offsets[k];
+				final long to = offsets[k + 1];
+				tasks.add(pool.submit(new Callable<Grid>() {
+					@Override
+					public Grid call() throws IOException {
+						Grid part = new Grid();
+						new CsvReader(delimiter).read(ch, from, to, part);
+						return part;
+					}
+				}));
+			}
+
+			Grid g = new Grid();
+			for (ForkJoinTask<Grid> task : tasks) {
+				g.addAll(Tasks.join(task));
 			}
 
+			report(f, g, ch.size(), System.nanoTime() - start);
+
 			return g;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
-		} catch (InterruptedException e) {
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	public static Grid csv(String path, char delimiter, int parallelism) {
+		return csv(new File(path), delimiter, parallelism);
+	}
+
+	/**
+	 * Splits the file in byte ranges of about chunkBytes that end on row
+	 * boundaries, and returns the grids of the ranges in file order. Each range
+	 * is parsed only when the iteration reaches it, so a file that does not fit
+	 * in memory can be processed one chunk at a time.
+	 */
+	public static Iterable<Grid> csvChunks(final File f, final char delimiter, long chunkBytes) {
+		if (chunkBytes < 1) {
+			throw new IllegalArgumentException("The chunkBytes must be 1 or higher. Got: " + chunkBytes + ".");
+		}
+
+		final long[] offsets;
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			int parts = (int) Math.min(Integer.MAX_VALUE - 1, (ch.size() + chunkBytes - 1) / chunkBytes);
+			offsets = CsvReader.split(ch, Math.max(parts, 1), ForkJoinPool.commonPool());
+		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+
+		return new Iterable<Grid>() {
+			@Override
+			public Iterator<Grid> iterator() {
+				return new Iterator<Grid>() {
+
+					private int k = 0;
+
+					@Override
+					public boolean hasNext() {
+						return k + 1 < offsets.length;
+					}
+
+					@Override
+					public Grid next() {
+						if (hasNext() == false) {
+							throw new NoSuchElementException();
+						}
+
+						try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+							Grid g = new Grid();
+							new CsvReader(delimiter).read(ch, offsets[k], offsets[k + 1], g);
+							k++;
+							return g;
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				};
+			}
+		};
+	}
+
+	private static void report(File f, Grid g, long bytes, long nanos) {
+		double secs = Math.max(nanos, 1) / 1e9;
+		log.info(String.format("Loaded %s: %d rows, %d bytes in %.3f s (%.0f rows/s, %.1f MB/s).", f.getName(),
+				g.rows(), bytes, secs, g.rows() / secs, bytes / secs / (1024 * 1024)));
 	}
 }
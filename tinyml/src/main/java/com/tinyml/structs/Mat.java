@@ -1,8 +1,11 @@
 package com.tinyml.structs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.Arrays;
 
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.rng.distribution.impl.NormalDistribution;
@@ -19,6 +22,9 @@ public class Mat {
 	private final int m;
 	private final int n;
 
+	// keeps alive the memory arr points to when it does not belong to ND4J
+	private final Object owner;
+
 	public static Mat wrap(INDArray arr) {
 		return new Mat(arr.dup());
 	}
@@ -28,9 +34,18 @@ public class Mat {
 		arr = Nd4j.create(new int[] { m, n }, 'c');
 		this.m = m;
 		this.n = n;
+		this.owner = null;
 	}
 
 	private Mat(INDArray arr) {
+		this(arr, null);
+	}
+
+	/**
+	 * Wraps the array without copying it. The owner is kept referenced for as
+	 * long as this matrix, or a view of it, is reachable.
+	 */
+	Mat(INDArray arr, Object owner) {
 
 		int[] shape = arr.shape();
 		if (shape.length != 2) {
@@ -39,28 +54,51 @@ public class Mat {
 		this.arr = arr;
 		this.m = shape[0];
 		this.n = shape[1];
+		this.owner = owner;
 	}
 
+	/**
+	 * Creates a matrix with a copy of the first m * n values of the array, in
+	 * row-major order.
+	 */
 	public Mat(int m, int n, float[] arr) {
-		this.m = m;
-		this.n = n;
-		this.arr = Nd4j.create(new int[] { m, n }, 'c');
+		this(m, n, FloatBuffer.wrap(arr));
+	}
 
-		int l = m * n;
-		for (int i = 0; i < l; i++) {
-			this.arr.putScalar(i, arr[i]);
+	public Mat(int m, int n, double[] arr) {
+		this(m, n, FloatBuffer.wrap(floats(arr, m * n)));
+	}
+
+	/**
+	 * Creates a matrix with a copy of the next m * n values of the buffer, in
+	 * row-major order. The position of the buffer is not changed.
+	 */
+	public Mat(int m, int n, FloatBuffer buf) {
+		this(Buffers.copy(buf, new int[] { m, n }), null);
+	}
+
+	/**
+	 * Creates a matrix over the next m * n floats of the buffer, in row-major
+	 * order. A direct buffer in native byte order is used in place, so changes
+	 * to either show in the other; any other buffer is copied.
+	 */
+	public static Mat wrap(ByteBuffer buf, int m, int n) {
+		if (Buffers.canWrap(buf)) {
+			return new Mat(Buffers.wrap(buf, new int[] { m, n }), buf);
 		}
+		return new Mat(m, n, buf.slice().order(buf.order()).asFloatBuffer());
 	}
 
-	public Mat(int m, int n, double[] arr) {
-		this.m = m;
-		this.n = n;
-		this.arr = Nd4j.create(new int[] { m, n }, 'c');
+	static float[] floats(double[] arr, int len) {
+		if (arr.length < len) {
+			throw new IllegalArgumentException("Not enough values. Expected " + len + ", but got " + arr.length + ".");
+		}
 
-		int l = m * n;
-		for (int i = 0; i < l; i++) {
-			this.arr.putScalar(i, arr[i]);
+		float[] ans = new float[len];
+		for (int i = 0; i < len; i++) {
+			ans[i] = (float) arr[i];
 		}
+		return ans;
 	}
 
 	public static Mat rand(int d) {
@@ -123,11 +161,11 @@ public class Mat {
 	}
 
 	public Vec col(int idx) {
-		return new Vec(arr.getColumn(idx));
+		return new Vec(arr.getColumn(idx), owner);
 	}
 
 	public Vec row(int idx) {
-		return new Vec(arr.getRow(idx));
+		return new Vec(arr.getRow(idx), owner);
 	}
 
 	public Mat selectCols(int start, int end) {
@@ -294,7 +332,7 @@ public class Mat {
 					"Matrix dimensions must be the same. This " + m + "x" + n + ", other " + bm + "x" + bn);
 		}
 
-		INDArray newarr = arr.add(b.arr);
+		INDArray newarr = arr.sub(b.arr);
 
 		return new Mat(newarr);
 	}
@@ -388,14 +426,231 @@ public class Mat {
 					"Invalid matrix dimension for multiplication. This " + m + "x" + n + ", vector length " + l + ".");
 		}
 
-		INDArray newarr = Nd4j.createUninitialized(l);
-		Nd4j.getBlasWrapper().level2().gemv('c', 'n', 1, arr, x.arr, 0, newarr);
+		return dot(x, new Vec(m));
+	}
 
-		return new Vec(newarr);
+	private void checkSame(Mat b) {
+		if (m != b.m || n != b.n) {
+			throw new IllegalArgumentException(
+					"Matrix dimensions must be the same. This " + m + "x" + n + ", other " + b.m + "x" + b.n);
+		}
+	}
+
+	private static void checkOut(Mat out, int m, int n) {
+		if (out.m != m || out.n != n) {
+			throw new IllegalArgumentException(
+					"Invalid output dimension. Expected " + m + "x" + n + ", but got " + out.m + "x" + out.n + ".");
+		}
+	}
+
+	/**
+	 * Adds b to this matrix in place and returns it.
+	 */
+	public Mat addi(Mat b) {
+		return add(b, this);
+	}
+
+	/**
+	 * Writes the sum of this matrix and b into out, which can be either of them,
+	 * and returns out.
+	 */
+	public Mat add(Mat b, Mat out) {
+		checkSame(b);
+		checkOut(out, m, n);
+		arr.addi(b.arr, out.arr);
+		return out;
+	}
+
+	public Mat addi(float val) {
+		arr.addi(val);
+		return this;
+	}
+
+	public Mat subi(Mat b) {
+		return sub(b, this);
+	}
+
+	public Mat sub(Mat b, Mat out) {
+		checkSame(b);
+		checkOut(out, m, n);
+		arr.subi(b.arr, out.arr);
+		return out;
+	}
+
+	public Mat subi(float val) {
+		arr.subi(val);
+		return this;
+	}
+
+	/**
+	 * Multiplies this matrix by b element-wise in place and returns it.
+	 */
+	public Mat multi(Mat b) {
+		return mult(b, this);
+	}
+
+	public Mat mult(Mat b, Mat out) {
+		checkSame(b);
+		checkOut(out, m, n);
+		arr.muli(b.arr, out.arr);
+		return out;
+	}
+
+	public Mat multi(float scalar) {
+		arr.muli(scalar);
+		return this;
+	}
+
+	public Mat divi(float scalar) {
+		return multi(1.0f / scalar);
+	}
+
+	public Mat powi(float exp) {
+		Transforms.pow(arr, exp, false);
+		return this;
+	}
+
+	public Mat pow(float exp, Mat out) {
+		checkOut(out, m, n);
+		if (out != this) {
+			out.arr.assign(arr);
+		}
+		Transforms.pow(out.arr, exp, false);
+		return out;
+	}
+
+	/**
+	 * Copies the values of b into this matrix.
+	 */
+	public Mat assign(Mat b) {
+		checkSame(b);
+		arr.assign(b.arr);
+		return this;
+	}
+
+	/**
+	 * Writes the matrix product of this matrix and b into out and returns it.
+	 * The output can not be one of the operands.
+	 */
+	public Mat dot(Mat b, Mat out) {
+		if (n != b.m) {
+			throw new IllegalArgumentException("Invalid matrix dimension for multiplication. This " + m + "x" + n
+					+ ", other " + b.m + "x" + b.n + ".");
+		}
+		checkOut(out, m, b.n);
+		if (out == this || out == b) {
+			throw new IllegalArgumentException("The output can not be one of the operands.");
+		}
+
+		if (out.arr.ordering() == 'c') {
+			// gemm writes column-major, and mmul would go through a temporary for
+			// a row-major output. The transpose of the product goes straight into
+			// the column-major view of out instead.
+			Nd4j.getBlasWrapper().level3().gemm(b.arr.transpose(), arr.transpose(), out.arr.transpose(), false,
+					false, 1.0, 0.0);
+		} else {
+			arr.mmul(b.arr, out.arr);
+		}
+		return out;
+	}
+
+	/**
+	 * Writes this matrix times w, plus b added to every row, into out and
+	 * returns it.
+	 */
+	public Mat affine(Mat w, Vec b, Mat out) {
+		if (w.n != b.length()) {
+			throw new IllegalArgumentException("Invalid vector dimension for addition broadcast. Expected " + w.n
+					+ ", but got " + b.length() + " instead.");
+		}
+
+		dot(w, out);
+		out.arr.addiRowVector(b.arr);
+		return out;
+	}
+
+	/**
+	 * Writes this matrix times x into out and returns it.
+	 */
+	public Vec dot(Vec x, Vec out) {
+		int l = x.length();
+
+		if (n != l) {
+			throw new IllegalArgumentException(
+					"Invalid matrix dimension for multiplication. This " + m + "x" + n + ", vector length " + l + ".");
+		}
+		if (out.length() != m) {
+			throw new IllegalArgumentException(
+					"Invalid output length. Expected " + m + ", but got " + out.length() + ".");
+		}
+		if (out == x) {
+			throw new IllegalArgumentException("The output can not be the operand.");
+		}
+
+		Nd4j.getBlasWrapper().level2().gemv('c', 'n', 1, arr, x.arr, 0, out.arr);
+		return out;
+	}
+
+	/**
+	 * Standardizes the columns in place.
+	 */
+	public Mat stdScalei() {
+		Vec mean = colMean();
+		Vec std = colStdev();
+
+		arr.subiRowVector(mean.arr);
+		arr.diviRowVector(std.arr);
+
+		return this;
+	}
+
+	public Vec colSum(Vec out) {
+		checkLength(out, n);
+		arr.sum(out.arr, 0);
+		return out;
+	}
+
+	public Vec colMean(Vec out) {
+		checkLength(out, n);
+		arr.mean(out.arr, 0);
+		return out;
+	}
+
+	public Vec rowSum(Vec out) {
+		checkLength(out, m);
+		arr.sum(out.arr, 1);
+		return out;
+	}
+
+	private static void checkLength(Vec out, int l) {
+		if (out.length() != l) {
+			throw new IllegalArgumentException(
+					"Invalid output length. Expected " + l + ", but got " + out.length() + ".");
+		}
+	}
+
+	/**
+	 * Returns the Gram matrix of the columns, the transpose of this matrix times
+	 * itself. Only one triangle is computed, and no transposed copy is made.
+	 */
+	public Mat gram() {
+		Covariance c = new Covariance(n, false);
+		c.add(this);
+		return c.scatter();
+	}
+
+	/**
+	 * Returns the sample covariance matrix of the columns, centering them in
+	 * the same pass.
+	 */
+	public Mat cov() {
+		Covariance c = new Covariance(n, true);
+		c.add(this);
+		return c.cov();
 	}
 
 	public Mat transp() {
-		return new Mat(arr.transpose());
+		return new Mat(arr.transpose(), owner);
 	}
 
 	@Override
@@ -404,17 +659,44 @@ public class Mat {
 	}
 
 	public float[][] toArray() {
-		float[][] arr = new float[m][n];
+		float[] flat = toFloatArray();
 
+		float[][] arr = new float[m][];
 		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				arr[i][j] = get(i, j);
-			}
+			arr[i] = Arrays.copyOfRange(flat, i * n, (i + 1) * n);
 		}
 
 		return arr;
 	}
 
+	/**
+	 * Returns a copy of the values in row-major order.
+	 */
+	public float[] toFloatArray() {
+		float[] ans = new float[m * n];
+		Buffers.copy(arr, FloatBuffer.wrap(ans));
+		return ans;
+	}
+
+	/**
+	 * Copies the values in row-major order into the buffer, advancing its
+	 * position.
+	 */
+	public void get(FloatBuffer dst) {
+		Buffers.copy(arr, dst);
+	}
+
+	/**
+	 * Returns the values in row-major order as a direct buffer in native byte
+	 * order. It is the memory of the matrix, not a copy, unless the matrix is a
+	 * view of another one, such as the one returned by {@link #transp()}. The
+	 * memory is freed with the matrix, so keep the matrix reachable while the
+	 * buffer is read.
+	 */
+	public ByteBuffer buffer() {
+		return Buffers.view(arr);
+	}
+
 	/**
 	 * Returns the internal implementation object. Use it on your own risk.
 	 */
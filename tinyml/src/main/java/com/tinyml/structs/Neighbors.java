@@ -0,0 +1,63 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+
+/**
+ * The k nearest rows of each query, nearest first, with the id -1 for the places not found.
+ */
+public class Neighbors {
+
+	private final int queries;
+	private final int k;
+	// queries x k, row-major
+	private final int[] ids;
+	private final float[] dist;
+
+	Neighbors(int queries, int k) {
+		this.queries = queries;
+		this.k = k;
+		this.ids = new int[queries * k];
+		this.dist = new float[queries * k];
+	}
+
+	public int queries() {
+		return queries;
+	}
+
+	public int k() {
+		return k;
+	}
+
+	/**
+	 * Row of the r-th nearest neighbour of query q.
+	 */
+	public int id(int q, int r) {
+		check(q, r);
+		return ids[q * k + r];
+	}
+
+	public float distance(int q, int r) {
+		check(q, r);
+		return dist[q * k + r];
+	}
+
+	public int[] ids(int q) {
+		check(q, 0);
+		return Arrays.copyOfRange(ids, q * k, (q + 1) * k);
+	}
+
+	int[] ids() {
+		return ids;
+	}
+
+	float[] distances() {
+		return dist;
+	}
+
+	private void check(int q, int r) {
+		if (q < 0 || q >= queries || r < 0 || r >= Math.max(1, k)) {
+			throw new IndexOutOfBoundsException(
+					"Invalid neighbour " + r + " of query " + q + ", with " + queries + " queries of " + k + ".");
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package com.tinyml.structs;
+
+/**
+ * Recognizes numeric text without throwing.
+ */
+final class Numbers {
+
+	static final long NOT_INT = Long.MIN_VALUE;
+
+	private Numbers() {
+
+	}
+
+	/**
+	 * Parses text of the form {@code 0} or {@code -?[1-9][0-9]*} that fits in an
+	 * int. Anything else returns {@link #NOT_INT}.
+	 */
+	static long parseInt(String str) {
+		int len = str.length();
+		if (len == 0 || len > 11) {
+			return NOT_INT;
+		}
+
+		int i = 0;
+		boolean neg = false;
+		if (str.charAt(0) == '-') {
+			neg = true;
+			i = 1;
+			if (len == 1) {
+				return NOT_INT;
+			}
+		}
+
+		char first = str.charAt(i);
+		if (first == '0') {
+			// only the plain zero is canonical, "-0" and "007" are not
+			return (len == 1) ? 0 : NOT_INT;
+		}
+
+		long val = 0;
+		for (; i < len; i++) {
+			char ch = str.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return NOT_INT;
+			}
+			val = val * 10 + (ch - '0');
+		}
+
+		if (neg) {
+			val = -val;
+		}
+
+		if (val < Integer.MIN_VALUE || val > Integer.MAX_VALUE) {
+			return NOT_INT;
+		}
+
+		return val;
+	}
+
+	/**
+	 * Same as {@link #parseInt(String)}, over the ASCII bytes [start, end).
+	 */
+	static long parseInt(byte[] buf, int start, int end) {
+		int len = end - start;
+		if (len <= 0 || len > 11) {
+			return NOT_INT;
+		}
+
+		int i = start;
+		boolean neg = false;
+		if (buf[i] == '-') {
+			neg = true;
+			i++;
+			if (len == 1) {
+				return NOT_INT;
+			}
+		}
+
+		if (buf[i] == '0') {
+			return (len == 1) ? 0 : NOT_INT;
+		}
+
+		long val = 0;
+		for (; i < end; i++) {
+			byte ch = buf[i];
+			if (ch < '0' || ch > '9') {
+				return NOT_INT;
+			}
+			val = val * 10 + (ch - '0');
+		}
+
+		if (neg) {
+			val = -val;
+		}
+
+		if (val < Integer.MIN_VALUE || val > Integer.MAX_VALUE) {
+			return NOT_INT;
+		}
+
+		return val;
+	}
+
+	/**
+	 * Parses text that is exactly what {@link Float#toString(float)} prints for
+	 * some finite float. Anything else returns {@link Float#NaN}.
+	 */
+	static float parseFloat(String str) {
+		if (isDecimal(str) == false) {
+			return Float.NaN;
+		}
+
+		float val = Float.parseFloat(str);
+		if (Float.isInfinite(val) || Float.toString(val).equals(str) == false) {
+			return Float.NaN;
+		}
+
+		return val;
+	}
+
+	// the -?d+.d+(E-?d+)? shape, which Float.parseFloat can not throw on
+	private static boolean isDecimal(String str) {
+		int len = str.length();
+		int i = 0;
+		if (i < len && str.charAt(i) == '-') {
+			i++;
+		}
+
+		int start = i;
+		while (i < len && isDigit(str.charAt(i))) {
+			i++;
+		}
+		if (i == start || i >= len || str.charAt(i) != '.') {
+			return false;
+		}
+		i++;
+
+		start = i;
+		while (i < len && isDigit(str.charAt(i))) {
+			i++;
+		}
+		if (i == start) {
+			return false;
+		}
+
+		if (i == len) {
+			return true;
+		}
+
+		if (str.charAt(i) != 'E') {
+			return false;
+		}
+		i++;
+		if (i < len && str.charAt(i) == '-') {
+			i++;
+		}
+
+		start = i;
+		while (i < len && isDigit(str.charAt(i))) {
+			i++;
+		}
+
+		return i > start && i == len;
+	}
+
+	/**
+	 * Returns whether {@link Integer#parseInt(String)} accepts the text.
+	 */
+	static boolean isInteger(String str) {
+		int len = str.length();
+		if (len == 0) {
+			return false;
+		}
+
+		int i = 0;
+		char first = str.charAt(0);
+		if (first == '-' || first == '+') {
+			i = 1;
+			if (len == 1) {
+				return false;
+			}
+		}
+
+		long val = 0;
+		for (; i < len; i++) {
+			char ch = str.charAt(i);
+			if (ch > 127) {
+				// other scripts have digits too
+				return parses(str, false);
+			}
+			if (isDigit(ch) == false) {
+				return false;
+			}
+			val = val * 10 + (ch - '0');
+			if (val > 1L + Integer.MAX_VALUE) {
+				return false;
+			}
+		}
+
+		return (first == '-') ? true : val <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns whether {@link Double#parseDouble(String)} accepts the text.
+	 */
+	static boolean isNumber(String str) {
+		int len = str.length();
+		int i = 0;
+
+		// parseDouble ignores surrounding blanks
+		while (i < len && str.charAt(i) <= ' ') {
+			i++;
+		}
+		while (len > i && str.charAt(len - 1) <= ' ') {
+			len--;
+		}
+
+		if (i < len && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+			i++;
+		}
+
+		if (i >= len) {
+			return false;
+		}
+
+		if (str.startsWith("NaN", i) || str.startsWith("Infinity", i)) {
+			return str.charAt(i) == 'N' ? i + 3 == len : i + 8 == len;
+		}
+
+		if (str.charAt(i) == '0' && i + 1 < len && (str.charAt(i + 1) == 'x' || str.charAt(i + 1) == 'X')) {
+			// hexadecimal floats are rare enough
+			return parses(str, true);
+		}
+
+		int digits = 0;
+		while (i < len && isDigit(str.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < len && str.charAt(i) == '.') {
+			i++;
+			while (i < len && isDigit(str.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return false;
+		}
+
+		if (i < len && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+			i++;
+			if (i < len && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+				i++;
+			}
+			int exp = i;
+			while (i < len && isDigit(str.charAt(i))) {
+				i++;
+			}
+			if (i == exp) {
+				return false;
+			}
+		}
+
+		if (i < len) {
+			char ch = str.charAt(i);
+			if (ch == 'f' || ch == 'F' || ch == 'd' || ch == 'D') {
+				i++;
+			}
+		}
+
+		return i == len;
+	}
+
+	private static boolean parses(String str, boolean real) {
+		try {
+			if (real) {
+				Double.parseDouble(str);
+			} else {
+				Integer.parseInt(str);
+			}
+			return true;
+		} catch (NumberFormatException ex) {
+			return false;
+		}
+	}
+
+	private static boolean isDigit(char ch) {
+		return ch >= '0' && ch <= '9';
+	}
+}
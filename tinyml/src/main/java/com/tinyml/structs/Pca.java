@@ -0,0 +1,153 @@
+package com.tinyml.structs;
+
+import org.nd4j.linalg.eigen.Eigen;
+
+/**
+ * Principal component analysis of rows streamed through it in batches.
+ */
+public class Pca {
+
+	private static final int BATCH_ROWS = 1 << 14;
+
+	private final Covariance cov;
+
+	private Vec mean;
+	// components in the columns, by decreasing variance
+	private Mat components;
+	private float[] variances;
+	private float[] ratios;
+
+	public Pca(int cols) {
+		cov = new Covariance(cols, true);
+	}
+
+	public static Pca fit(Grid g, GridEncoder enc) {
+		Pca pca = new Pca(enc.cols());
+		pca.add(g, enc);
+		return pca.fit();
+	}
+
+	public static Pca fit(Iterable<Grid> chunks, GridEncoder enc) {
+		Pca pca = new Pca(enc.cols());
+		for (Grid chunk : chunks) {
+			pca.add(chunk, enc);
+		}
+		return pca.fit();
+	}
+
+	public void add(Mat rows) {
+		cov.add(rows);
+		components = null;
+	}
+
+	public void add(Grid g, GridEncoder enc) {
+		for (int at = 0; at < g.rows(); at += BATCH_ROWS) {
+			add(enc.encode(g, at, Math.min(at + BATCH_ROWS, g.rows())));
+		}
+	}
+
+	public void merge(Pca other) {
+		cov.merge(other.cov);
+		components = null;
+	}
+
+	public int cols() {
+		return cov.cols();
+	}
+
+	public long count() {
+		return cov.count();
+	}
+
+	/**
+	 * Solves the eigenproblem of the covariance of the rows added so far.
+	 */
+	public Pca fit() {
+		int n = cov.cols();
+
+		// the eigenvectors overwrite the matrix, in its columns
+		Mat vectors = cov.cov();
+		Vec values = Vec.wrap(Eigen.symmetricGeneralizedEigenvalues(vectors.ptr(), true));
+
+		// the solver sorts them by increasing value
+		float[] vals = values.toArray();
+		float[] vecs = vectors.toFloatArray();
+		float[] sorted = new float[n * n];
+		variances = new float[n];
+		ratios = new float[n];
+
+		double total = 0.0;
+		for (float v : vals) {
+			total += Math.max(v, 0f);
+		}
+
+		for (int k = 0; k < n; k++) {
+			int src = n - 1 - k;
+			// rounding can leave tiny negative values
+			variances[k] = Math.max(vals[src], 0f);
+			ratios[k] = total > 0.0 ? (float) (variances[k] / total) : 0f;
+			for (int i = 0; i < n; i++) {
+				sorted[i * n + k] = vecs[i * n + src];
+			}
+		}
+
+		mean = cov.mean();
+		components = new Mat(n, n, sorted);
+		return this;
+	}
+
+	private void checkFitted() {
+		if (components == null) {
+			throw new IllegalStateException("The analysis is not fitted. Call fit() after adding the rows.");
+		}
+	}
+
+	/**
+	 * Variances along the components, in decreasing order.
+	 */
+	public Vec eigenvalues() {
+		checkFitted();
+		return new Vec(variances);
+	}
+
+	/**
+	 * Components as the columns of a matrix, by decreasing variance.
+	 */
+	public Mat eigenvectors() {
+		checkFitted();
+		return components.clone();
+	}
+
+	/**
+	 * Fraction of the total variance along each component.
+	 */
+	public Vec explainedVarianceRatio() {
+		checkFitted();
+		return new Vec(ratios);
+	}
+
+	public Vec mean() {
+		checkFitted();
+		return new Vec(mean.toArray());
+	}
+
+	/**
+	 * Projects the centered rows on the first k components.
+	 */
+	public Mat transform(Mat rows, int k) {
+		return transform(rows, k, new Mat(rows.rows(), k));
+	}
+
+	public Mat transform(Mat rows, int k, Mat out) {
+		checkFitted();
+		if (k < 1 || k > cov.cols()) {
+			throw new IllegalArgumentException(
+					"The k parameter must be between 1 and " + cov.cols() + ". Got: " + k + ".");
+		}
+
+		// (x - mean) V is x V minus the projected mean
+		Mat w = components.selectCols(0, k);
+		Vec shift = w.transp().dot(mean).scalei(-1f);
+		return rows.affine(w, shift, out);
+	}
+}
@@ -0,0 +1,600 @@
+package com.tinyml.structs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * Little-endian binary files that are opened by mapping them in memory, without parsing.
+ */
+public class Snapshot {
+
+	private static final byte[] GRID_MAGIC = "TMLGRID1".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] MAT_MAGIC = "TMLMAT01".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] VEC_MAGIC = "TMLVEC01".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] INDEX_MAGIC = "TMLIVF01".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int ALIGN = 64;
+	private static final int HEADER = 64;
+	private static final int DESCRIPTOR = 48;
+
+	// values mapped per call, a multiple of the chunk size
+	private static final int SEGMENT = 1 << 28;
+
+	private Snapshot() {
+
+	}
+
+	public static void write(Grid g, File f) {
+		int rows = g.rows();
+		int cols = g.cols();
+
+		try (Out out = new Out(f)) {
+			long[][] offsets = new long[cols][];
+
+			out.skip(align(HEADER + (long) cols * DESCRIPTOR));
+
+			int words = (rows + 63) >>> 6;
+			for (int j = 0; j < cols; j++) {
+				GridColumn c = g.column(j);
+				long[] off = { -1, -1, -1, -1, 0 };
+
+				off[0] = out.align();
+				out.putLongs(c.nullBits().words(), words);
+
+				if (c.type() == GridColumn.Type.INTEGER || c.type() == GridColumn.Type.CATEGORY) {
+					off[1] = out.align();
+					out.putInts(c.ints(), rows);
+				} else if (c.type() == GridColumn.Type.FLOAT) {
+					off[1] = out.align();
+					out.putFloats(c.floats(), rows);
+					off[2] = out.align();
+					out.putLongs(c.integralBits().words(), words);
+				}
+
+				if (c.type() == GridColumn.Type.CATEGORY) {
+					off[3] = out.align();
+					Vocabulary v = c.vocabulary();
+					for (int i = 0; i < v.size(); i++) {
+						byte[] bytes = v.word(i).getBytes(StandardCharsets.UTF_8);
+						out.putInt(bytes.length);
+						out.putBytes(bytes);
+					}
+					off[4] = out.position() - off[3];
+				}
+
+				offsets[j] = off;
+			}
+			out.flush();
+
+			ByteBuffer head = ByteBuffer.allocate(HEADER + cols * DESCRIPTOR).order(ByteOrder.LITTLE_ENDIAN);
+			head.put(GRID_MAGIC);
+			head.putInt(rows);
+			head.putInt(cols);
+			head.position(HEADER);
+			for (int j = 0; j < cols; j++) {
+				GridColumn c = g.column(j);
+				Vocabulary v = c.vocabulary();
+				head.putInt(c.type().ordinal());
+				head.putInt((v == null) ? 0 : v.size());
+				for (long o : offsets[j]) {
+					head.putLong(o);
+				}
+			}
+			head.flip();
+			out.writeAt(head, 0);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static Grid grid(String path) {
+		return grid(new File(path));
+	}
+
+	public static Grid grid(File f) {
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+
+			ByteBuffer head = map(ch, 0, HEADER);
+			check(head, GRID_MAGIC, f);
+			int rows = head.getInt(8);
+			int cols = head.getInt(12);
+			if (rows < 0 || cols < 0) {
+				throw new IllegalDataException("Invalid grid header in " + f + ".");
+			}
+
+			ByteBuffer desc = map(ch, HEADER, (long) cols * DESCRIPTOR);
+			GridColumn.Type[] types = GridColumn.Type.values();
+			int words = (rows + 63) >>> 6;
+
+			List<GridColumn> columns = new ArrayList<>(cols);
+			for (int j = 0; j < cols; j++) {
+				int at = j * DESCRIPTOR;
+				int ordinal = desc.getInt(at);
+				int vocabSize = desc.getInt(at + 4);
+				if (ordinal < 0 || ordinal >= types.length || vocabSize < 0) {
+					throw new IllegalDataException("Invalid descriptor of column " + j + " in " + f + ".");
+				}
+				GridColumn.Type type = types[ordinal];
+				long nulls = desc.getLong(at + 8);
+				long data = desc.getLong(at + 16);
+				long integral = desc.getLong(at + 24);
+				long vocab = desc.getLong(at + 32);
+				long vocabBytes = desc.getLong(at + 40);
+
+				IntChunks ints = null;
+				FloatChunks floats = null;
+				Bitmap integralBits = null;
+				Vocabulary dict = null;
+
+				if (type == GridColumn.Type.INTEGER || type == GridColumn.Type.CATEGORY) {
+					ints = new IntChunks(mapInts(ch, data, rows), rows);
+				} else if (type == GridColumn.Type.FLOAT) {
+					floats = new FloatChunks(mapFloats(ch, data, rows), rows);
+					integralBits = readBits(ch, integral, words);
+				}
+
+				if (type == GridColumn.Type.CATEGORY) {
+					dict = readVocabulary(ch, vocab, vocabBytes, vocabSize, f);
+					checkCodes(ints, rows, vocabSize, j, f);
+				}
+
+				columns.add(new GridColumn(type, rows, readBits(ch, nulls, words), ints, floats, integralBits, dict));
+			}
+
+			return new Grid(columns, rows);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static void write(Mat a, File f) {
+		write(MAT_MAGIC, a.rows(), a.cols(), a.ptr(), f);
+	}
+
+	public static void write(Vec v, File f) {
+		write(VEC_MAGIC, v.length(), 1, v.arr, f);
+	}
+
+	public static Mat mat(String path) {
+		return mat(new File(path));
+	}
+
+	public static Mat mat(File f) {
+		try (FileChannel ch = open(f)) {
+
+			ByteBuffer head = map(ch, 0, HEADER);
+			check(head, MAT_MAGIC, f);
+			int m = head.getInt(8);
+			int n = head.getInt(12);
+
+			ByteBuffer payload = payload(ch, (long) m * n, f.canWrite());
+			return new Mat(Buffers.wrap(payload, new int[] { m, n }), payload);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static Vec vec(String path) {
+		return vec(new File(path));
+	}
+
+	public static Vec vec(File f) {
+		try (FileChannel ch = open(f)) {
+
+			ByteBuffer head = map(ch, 0, HEADER);
+			check(head, VEC_MAGIC, f);
+			int d = head.getInt(8);
+
+			ByteBuffer payload = payload(ch, d, f.canWrite());
+			return new Vec(Buffers.wrap(payload, new int[] { 1, d }), payload);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static void write(IvfPqIndex idx, File f) {
+		try (Out out = new Out(f)) {
+			ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			head.put(INDEX_MAGIC);
+			head.putInt(idx.m);
+			head.putInt(idx.n);
+			head.putInt(idx.lists);
+			head.putInt(idx.subspaces);
+			head.putInt(idx.codes);
+			head.putInt(idx.metric.ordinal());
+			head.clear();
+			out.write(head);
+
+			out.align();
+			for (float v : idx.centroids) {
+				out.putFloat(v);
+			}
+			out.align();
+			for (float v : idx.codebooks) {
+				out.putFloat(v);
+			}
+			out.align();
+			for (int v : idx.offsets) {
+				out.putInt(v);
+			}
+			out.align();
+			for (int i = 0; i < idx.m; i++) {
+				out.putInt(idx.ids.get(i));
+			}
+			out.align();
+			ByteBuffer codes = idx.rowCodes.duplicate();
+			codes.clear();
+			out.write(codes);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static IvfPqIndex index(String path) {
+		return index(new File(path));
+	}
+
+	/**
+	 * Opens the index with the row ids and codes mapped from the file, so only
+	 * the pages the queries read are loaded.
+	 */
+	public static IvfPqIndex index(File f) {
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+
+			ByteBuffer head = map(ch, 0, HEADER);
+			check(head, INDEX_MAGIC, f);
+			int m = head.getInt(8);
+			int n = head.getInt(12);
+			int lists = head.getInt(16);
+			int subspaces = head.getInt(20);
+			int codes = head.getInt(24);
+			int metric = head.getInt(28);
+			IvfPqIndex.Metric[] metrics = IvfPqIndex.Metric.values();
+			if (m < 1 || n < 1 || lists < 1 || lists > m || subspaces < 1 || subspaces > n || codes < 1
+					|| codes > IvfPqIndex.MAX_CODES || metric < 0 || metric >= metrics.length) {
+				throw new IllegalDataException("Invalid index header in " + f + ".");
+			}
+			if ((long) m * subspaces > Integer.MAX_VALUE) {
+				throw new IllegalDataException("The codes are too large to be mapped. Got " + m + " rows of "
+						+ subspaces + " bytes.");
+			}
+
+			long at = align(HEADER);
+			float[] centroids = new float[lists * n];
+			map(ch, at, centroids.length * 4L).asFloatBuffer().get(centroids);
+			at = align(at + centroids.length * 4L);
+
+			float[] codebooks = new float[codes * n];
+			map(ch, at, codebooks.length * 4L).asFloatBuffer().get(codebooks);
+			at = align(at + codebooks.length * 4L);
+
+			int[] offsets = new int[lists + 1];
+			map(ch, at, offsets.length * 4L).asIntBuffer().get(offsets);
+			at = align(at + offsets.length * 4L);
+			for (int l = 0; l < lists; l++) {
+				if (offsets[l] > offsets[l + 1]) {
+					throw new IllegalDataException("Invalid list offsets in " + f + ".");
+				}
+			}
+			if (offsets[0] != 0 || offsets[lists] != m) {
+				throw new IllegalDataException("Invalid list offsets in " + f + ".");
+			}
+
+			IntBuffer ids = map(ch, at, m * 4L).asIntBuffer();
+			at = align(at + m * 4L);
+
+			ByteBuffer rowCodes = map(ch, at, (long) m * subspaces);
+
+			return new IvfPqIndex(metrics[metric], m, n, lists, subspaces, codes, centroids, codebooks, offsets, ids,
+					rowCodes);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void write(byte[] magic, int m, int n, INDArray arr, File f) {
+		try (Out out = new Out(f)) {
+			ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			head.put(magic);
+			head.putInt(m);
+			head.putInt(n);
+			head.clear();
+			out.write(head);
+
+			ByteBuffer data = Buffers.view(arr);
+			if (data.order() == ByteOrder.LITTLE_ENDIAN) {
+				out.write(data);
+			} else {
+				FloatBuffer src = data.asFloatBuffer();
+				while (src.hasRemaining()) {
+					out.putFloat(src.get());
+				}
+				out.flush();
+			}
+			// the view is freed with the array, often a temporary of the caller
+			Buffers.reachable(arr);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static FileChannel open(File f) throws IOException {
+		if (f.canWrite()) {
+			// needed by private mappings, nothing is written
+			return FileChannel.open(f.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		return FileChannel.open(f.toPath(), StandardOpenOption.READ);
+	}
+
+	// private mappings share the pages until they are modified, and never write the file
+	private static ByteBuffer payload(FileChannel ch, long len, boolean writable) throws IOException {
+		long bytes = len * 4;
+		if (HEADER + bytes > ch.size()) {
+			throw new IllegalDataException("The file is truncated. Expected " + (HEADER + bytes) + " bytes, but got "
+					+ ch.size() + " instead.");
+		}
+
+		if (writable && ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN && bytes <= Integer.MAX_VALUE) {
+			MappedByteBuffer buf = ch.map(MapMode.PRIVATE, HEADER, bytes);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			return buf;
+		}
+
+		// the floats can not be used in place, copy them to native memory
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalDataException("The payload is too large to be loaded. Got " + bytes + " bytes.");
+		}
+
+		ByteBuffer buf = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+		FloatBuffer dst = buf.asFloatBuffer();
+		for (long at = 0; at < len; at += SEGMENT) {
+			int l = (int) Math.min(SEGMENT, len - at);
+			dst.put(map(ch, HEADER + at * 4, l * 4L).asFloatBuffer());
+		}
+		return buf;
+	}
+
+	private static void check(ByteBuffer head, byte[] magic, File f) {
+		byte[] arr = new byte[magic.length];
+		head.get(arr, 0, arr.length);
+		if (Arrays.equals(arr, magic) == false) {
+			throw new IllegalDataException("The file " + f + " is not a " + new String(magic, StandardCharsets.US_ASCII)
+					+ " snapshot.");
+		}
+	}
+
+	private static ByteBuffer map(FileChannel ch, long at, long len) throws IOException {
+		if (at < 0 || len < 0 || at > ch.size() - len) {
+			throw new IllegalDataException(
+					"The file is truncated. Expected " + (at + len) + " bytes, but got " + ch.size() + " instead.");
+		}
+		return ch.map(MapMode.READ_ONLY, at, len).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer[] mapChunks(FileChannel ch, long at, int rows) throws IOException {
+		int count = (rows + IntChunks.SIZE - 1) >>> IntChunks.BITS;
+		ByteBuffer[] ans = new ByteBuffer[count];
+
+		for (int s = 0; s < rows; s += SEGMENT) {
+			int l = Math.min(SEGMENT, rows - s);
+			ByteBuffer seg = map(ch, at + s * 4L, l * 4L);
+
+			for (int i = 0; i < l; i += IntChunks.SIZE) {
+				seg.limit(Math.min(l, i + IntChunks.SIZE) * 4);
+				seg.position(i * 4);
+				ans[(s + i) >>> IntChunks.BITS] = seg.slice().order(ByteOrder.LITTLE_ENDIAN);
+				seg.clear();
+			}
+		}
+
+		return ans;
+	}
+
+	private static IntBuffer[] mapInts(FileChannel ch, long at, int rows) throws IOException {
+		ByteBuffer[] chunks = mapChunks(ch, at, rows);
+		IntBuffer[] ans = new IntBuffer[chunks.length];
+		for (int i = 0; i < ans.length; i++) {
+			ans[i] = chunks[i].asIntBuffer();
+		}
+		return ans;
+	}
+
+	private static FloatBuffer[] mapFloats(FileChannel ch, long at, int rows) throws IOException {
+		ByteBuffer[] chunks = mapChunks(ch, at, rows);
+		FloatBuffer[] ans = new FloatBuffer[chunks.length];
+		for (int i = 0; i < ans.length; i++) {
+			ans[i] = chunks[i].asFloatBuffer();
+		}
+		return ans;
+	}
+
+	private static Bitmap readBits(FileChannel ch, long at, int words) throws IOException {
+		long[] arr = new long[Math.max(1, words)];
+		LongBuffer src = map(ch, at, words * 8L).asLongBuffer();
+		src.get(arr, 0, words);
+		return new Bitmap(arr);
+	}
+
+	private static Vocabulary readVocabulary(FileChannel ch, long at, long bytes, int size, File f)
+			throws IOException {
+		ByteBuffer buf = map(ch, at, bytes);
+		Vocabulary v = new Vocabulary();
+		byte[] arr = new byte[64];
+		for (int i = 0; i < size; i++) {
+			int len = (buf.remaining() < 4) ? -1 : buf.getInt();
+			if (len < 0 || len > buf.remaining()) {
+				throw new IllegalDataException("Invalid dictionary in " + f + ".");
+			}
+			if (len > arr.length) {
+				arr = new byte[len];
+			}
+			buf.get(arr, 0, len);
+			if (v.add(new String(arr, 0, len, StandardCharsets.UTF_8)) != i) {
+				throw new IllegalDataException("Duplicate word in the dictionary in " + f + ".");
+			}
+		}
+		return v;
+	}
+
+	private static void checkCodes(IntChunks ints, int rows, int size, int col, File f) {
+		int[] arr = new int[IntChunks.SIZE];
+		for (int at = 0; at < rows; at += arr.length) {
+			int len = Math.min(arr.length, rows - at);
+			ints.get(at, arr, 0, len);
+			for (int i = 0; i < len; i++) {
+				// nulls are stored as 0, even with an empty dictionary
+				if (arr[i] < 0 || (arr[i] >= size && arr[i] != 0)) {
+					throw new IllegalDataException("Invalid code " + arr[i] + " in column " + col + " of " + f + ".");
+				}
+			}
+		}
+	}
+
+	private static long align(long pos) {
+		return (pos + ALIGN - 1) / ALIGN * ALIGN;
+	}
+
+	private static class Out implements AutoCloseable {
+
+		private final FileChannel ch;
+		private final ByteBuffer buf;
+		private long pos;
+
+		private final int[] ints = new int[IntChunks.SIZE];
+		private final float[] floats = new float[IntChunks.SIZE];
+
+		Out(File f) throws IOException {
+			ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		private void room(int bytes) throws IOException {
+			if (buf.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				ch.write(buf);
+			}
+			buf.clear();
+		}
+
+		long position() {
+			return pos;
+		}
+
+		void skip(long bytes) throws IOException {
+			flush();
+			pos += bytes;
+			ch.position(pos);
+		}
+
+		long align() throws IOException {
+			long to = Snapshot.align(pos);
+			while (pos < to) {
+				room(1);
+				buf.put((byte) 0);
+				pos++;
+			}
+			return pos;
+		}
+
+		void putInt(int val) throws IOException {
+			room(4);
+			buf.putInt(val);
+			pos += 4;
+		}
+
+		void putFloat(float val) throws IOException {
+			room(4);
+			buf.putFloat(val);
+			pos += 4;
+		}
+
+		void putBytes(byte[] arr) throws IOException {
+			for (int i = 0; i < arr.length;) {
+				room(1);
+				int l = Math.min(buf.remaining(), arr.length - i);
+				buf.put(arr, i, l);
+				i += l;
+			}
+			pos += arr.length;
+		}
+
+		void putLongs(long[] arr, int count) throws IOException {
+			for (int i = 0; i < count; i++) {
+				room(8);
+				buf.putLong((i < arr.length) ? arr[i] : 0L);
+			}
+			pos += count * 8L;
+		}
+
+		void putInts(IntChunks src, int count) throws IOException {
+			for (int at = 0; at < count; at += ints.length) {
+				int l = Math.min(ints.length, count - at);
+				src.get(at, ints, 0, l);
+				for (int i = 0; i < l;) {
+					room(4);
+					int k = Math.min(l - i, buf.remaining() / 4);
+					buf.asIntBuffer().put(ints, i, k);
+					buf.position(buf.position() + k * 4);
+					i += k;
+				}
+			}
+			pos += count * 4L;
+		}
+
+		void putFloats(FloatChunks src, int count) throws IOException {
+			for (int at = 0; at < count; at += floats.length) {
+				int l = Math.min(floats.length, count - at);
+				src.get(at, floats, 0, l);
+				for (int i = 0; i < l;) {
+					room(4);
+					int k = Math.min(l - i, buf.remaining() / 4);
+					buf.asFloatBuffer().put(floats, i, k);
+					buf.position(buf.position() + k * 4);
+					i += k;
+				}
+			}
+			pos += count * 4L;
+		}
+
+		void write(ByteBuffer src) throws IOException {
+			flush();
+			while (src.hasRemaining()) {
+				pos += ch.write(src);
+			}
+		}
+
+		void writeAt(ByteBuffer src, long at) throws IOException {
+			while (src.hasRemaining()) {
+				at += ch.write(src, at);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			ch.close();
+		}
+	}
+}
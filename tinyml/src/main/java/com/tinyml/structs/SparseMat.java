@@ -0,0 +1,278 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse row form.
+ */
+public class SparseMat {
+
+	private final int m;
+	private final int n;
+
+	// row i is at [rowPtr[i], rowPtr[i + 1])
+	private final int[] rowPtr;
+	private final int[] colIdx;
+	private final float[] values;
+
+	/**
+	 * Creates the matrix over the arrays, without copying them. The columns of every row must be increasing.
+	 */
+	public SparseMat(int m, int n, int[] rowPtr, int[] colIdx, float[] values) {
+		if (m < 0 || n < 0) {
+			throw new IllegalArgumentException("Invalid dimension " + m + "x" + n + ".");
+		}
+		if (rowPtr.length != m + 1 || rowPtr[0] != 0) {
+			throw new IllegalArgumentException(
+					"The rowPtr must have " + (m + 1) + " entries starting at 0. Got: " + rowPtr.length + ".");
+		}
+		int nnz = rowPtr[m];
+		if (colIdx.length < nnz || values.length < nnz) {
+			throw new IllegalArgumentException("Expected " + nnz + " non-zeros. Got: " + colIdx.length
+					+ " columns and " + values.length + " values.");
+		}
+		for (int i = 0; i < m; i++) {
+			if (rowPtr[i + 1] < rowPtr[i]) {
+				throw new IllegalArgumentException("The rowPtr must not decrease. Got: " + rowPtr[i + 1]
+						+ " after " + rowPtr[i] + " at row " + i + ".");
+			}
+			for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+				int j = colIdx[p];
+				if (j < 0 || j >= n || (p > rowPtr[i] && j <= colIdx[p - 1])) {
+					throw new IllegalArgumentException("Invalid column " + j + " at row " + i + ".");
+				}
+			}
+		}
+
+		this.m = m;
+		this.n = n;
+		this.rowPtr = rowPtr;
+		this.colIdx = colIdx;
+		this.values = values;
+	}
+
+	public static SparseMat of(Mat a) {
+		int m = a.rows();
+		int n = a.cols();
+		float[] dense = a.toFloatArray();
+
+		int nnz = 0;
+		for (float v : dense) {
+			if (v != 0f) {
+				nnz++;
+			}
+		}
+
+		int[] ptr = new int[m + 1];
+		int[] cols = new int[nnz];
+		float[] vals = new float[nnz];
+		int p = 0;
+		for (int i = 0; i < m; i++) {
+			for (int j = 0, idx = i * n; j < n; j++, idx++) {
+				if (dense[idx] != 0f) {
+					cols[p] = j;
+					vals[p] = dense[idx];
+					p++;
+				}
+			}
+			ptr[i + 1] = p;
+		}
+
+		return new SparseMat(m, n, ptr, cols, vals);
+	}
+
+	public int rows() {
+		return m;
+	}
+
+	public int cols() {
+		return n;
+	}
+
+	public int nnz() {
+		return rowPtr[m];
+	}
+
+	public long bytes() {
+		return 48L + 4L * rowPtr.length + 8L * nnz();
+	}
+
+	public float get(int i, int j) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new IndexOutOfBoundsException("Invalid position " + i + "," + j + " in " + m + "x" + n + ".");
+		}
+
+		int p = Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i + 1], j);
+		return p >= 0 ? values[p] : 0f;
+	}
+
+	public SparseMat transp() {
+		int nnz = nnz();
+		int[] ptr = new int[n + 1];
+		for (int p = 0; p < nnz; p++) {
+			ptr[colIdx[p] + 1]++;
+		}
+		for (int j = 0; j < n; j++) {
+			ptr[j + 1] += ptr[j];
+		}
+
+		// rows are visited in order, so the columns of the transpose increase
+		int[] next = Arrays.copyOf(ptr, n);
+		int[] rows = new int[nnz];
+		float[] vals = new float[nnz];
+		for (int i = 0; i < m; i++) {
+			for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+				int q = next[colIdx[p]]++;
+				rows[q] = i;
+				vals[q] = values[p];
+			}
+		}
+
+		return new SparseMat(n, m, ptr, rows, vals);
+	}
+
+	public Mat toDense() {
+		float[] dense = new float[m * n];
+		for (int i = 0; i < m; i++) {
+			for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+				dense[i * n + colIdx[p]] = values[p];
+			}
+		}
+		return new Mat(m, n, dense);
+	}
+
+	public Vec dot(Vec x) {
+		if (x.length() != n) {
+			throw new IllegalArgumentException(
+					"Invalid matrix dimension for multiplication. This " + m + "x" + n + ", vector length "
+							+ x.length() + ".");
+		}
+
+		float[] xs = x.toArray();
+		float[] ans = new float[m];
+		for (int i = 0; i < m; i++) {
+			float s = 0f;
+			for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+				s += values[p] * xs[colIdx[p]];
+			}
+			ans[i] = s;
+		}
+		return new Vec(ans);
+	}
+
+	public Mat dot(Mat b) {
+		if (b.rows() != n) {
+			throw new IllegalArgumentException("Invalid matrix dimension for multiplication. This " + m + "x" + n
+					+ ", other " + b.rows() + "x" + b.cols() + ".");
+		}
+
+		int k = b.cols();
+		float[] bs = b.toFloatArray();
+		float[] ans = new float[m * k];
+		for (int i = 0; i < m; i++) {
+			int row = i * k;
+			for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+				float v = values[p];
+				int from = colIdx[p] * k;
+				for (int c = 0; c < k; c++) {
+					ans[row + c] += v * bs[from + c];
+				}
+			}
+		}
+		return new Mat(m, k, ans);
+	}
+
+	/**
+	 * Returns the transpose of this matrix times the dense one, without building the transpose.
+	 */
+	public Mat transpDot(Mat b) {
+		if (b.rows() != m) {
+			throw new IllegalArgumentException("Invalid matrix dimension for multiplication. This transposed " + n
+					+ "x" + m + ", other " + b.rows() + "x" + b.cols() + ".");
+		}
+
+		int k = b.cols();
+		float[] bs = b.toFloatArray();
+		float[] ans = new float[n * k];
+		for (int i = 0; i < m; i++) {
+			int from = i * k;
+			for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+				float v = values[p];
+				int to = colIdx[p] * k;
+				for (int c = 0; c < k; c++) {
+					ans[to + c] += v * bs[from + c];
+				}
+			}
+		}
+		return new Mat(n, k, ans);
+	}
+
+	public Vec colSum() {
+		double[] sums = new double[n];
+		int nnz = nnz();
+		for (int p = 0; p < nnz; p++) {
+			sums[colIdx[p]] += values[p];
+		}
+		return new Vec(sums);
+	}
+
+	public Vec colMean() {
+		double[] sums = new double[n];
+		int nnz = nnz();
+		for (int p = 0; p < nnz; p++) {
+			sums[colIdx[p]] += values[p];
+		}
+		for (int j = 0; j < n; j++) {
+			sums[j] /= m;
+		}
+		return new Vec(sums);
+	}
+
+	/**
+	 * Sample variance of the columns, the zeros that are not stored included.
+	 */
+	public Vec colVar() {
+		double[] sums = new double[n];
+		double[] squares = new double[n];
+		int nnz = nnz();
+		for (int p = 0; p < nnz; p++) {
+			double v = values[p];
+			sums[colIdx[p]] += v;
+			squares[colIdx[p]] += v * v;
+		}
+
+		double[] ans = new double[n];
+		if (m > 1) {
+			for (int j = 0; j < n; j++) {
+				double mean = sums[j] / m;
+				ans[j] = Math.max(0.0, (squares[j] - m * mean * mean) / (m - 1));
+			}
+		}
+		return new Vec(ans);
+	}
+
+	/**
+	 * Returns the dense Gram matrix of the columns.
+	 */
+	public Mat gram() {
+		// the upper triangle first, then mirrored in place
+		float[] full = new float[n * n];
+		for (int i = 0; i < m; i++) {
+			int end = rowPtr[i + 1];
+			for (int p = rowPtr[i]; p < end; p++) {
+				float v = values[p];
+				int row = colIdx[p] * n;
+				for (int q = p; q < end; q++) {
+					full[row + colIdx[q]] += v * values[q];
+				}
+			}
+		}
+
+		for (int a = 0; a < n; a++) {
+			for (int b = a + 1; b < n; b++) {
+				full[b * n + a] = full[a * n + b];
+			}
+		}
+		return new Mat(n, n, full);
+	}
+}
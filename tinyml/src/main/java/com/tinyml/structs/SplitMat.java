@@ -0,0 +1,178 @@
+package com.tinyml.structs;
+
+/**
+ * Matrix kept as a dense block of numeric columns and a sparse block of one-hot columns.
+ */
+public class SplitMat {
+
+	private final Mat dense;
+	private final SparseMat sparse;
+	private final int[] denseCols;
+	private final int[] sparseCols;
+	private final int n;
+
+	/**
+	 * Creates the matrix of the blocks, holding the given columns of the full matrix.
+	 */
+	public SplitMat(Mat dense, SparseMat sparse, int[] denseCols, int[] sparseCols) {
+		if (dense.rows() != sparse.rows()) {
+			throw new IllegalArgumentException("The blocks must have the same rows. Got: " + dense.rows() + " and "
+					+ sparse.rows() + ".");
+		}
+		if (denseCols.length != dense.cols() || sparseCols.length != sparse.cols()) {
+			throw new IllegalArgumentException("There must be one column index per column of each block.");
+		}
+
+		this.dense = dense;
+		this.sparse = sparse;
+		this.denseCols = denseCols;
+		this.sparseCols = sparseCols;
+		this.n = denseCols.length + sparseCols.length;
+	}
+
+	public int rows() {
+		return dense.rows();
+	}
+
+	public int cols() {
+		return n;
+	}
+
+	public Mat dense() {
+		return dense;
+	}
+
+	public SparseMat sparse() {
+		return sparse;
+	}
+
+	public int[] denseCols() {
+		return denseCols.clone();
+	}
+
+	public int[] sparseCols() {
+		return sparseCols.clone();
+	}
+
+	public long bytes() {
+		return 4L * dense.length() + sparse.bytes();
+	}
+
+	private static Mat selectRows(float[] b, int k, int[] idx) {
+		float[] ans = new float[idx.length * k];
+		for (int i = 0; i < idx.length; i++) {
+			System.arraycopy(b, idx[i] * k, ans, i * k, k);
+		}
+		return new Mat(idx.length, k, ans);
+	}
+
+	public Mat dot(Mat b) {
+		if (b.rows() != n) {
+			throw new IllegalArgumentException("Invalid matrix dimension for multiplication. This " + rows() + "x"
+					+ n + ", other " + b.rows() + "x" + b.cols() + ".");
+		}
+
+		int k = b.cols();
+		float[] bs = b.toFloatArray();
+
+		Mat ans = sparse.dot(selectRows(bs, k, sparseCols));
+		if (denseCols.length > 0) {
+			ans.addi(dense.dot(selectRows(bs, k, denseCols)));
+		}
+		return ans;
+	}
+
+	public Mat transpDot(Mat b) {
+		if (b.rows() != rows()) {
+			throw new IllegalArgumentException("Invalid matrix dimension for multiplication. This transposed " + n
+					+ "x" + rows() + ", other " + b.rows() + "x" + b.cols() + ".");
+		}
+
+		int k = b.cols();
+		float[] ans = new float[n * k];
+		scatterRows(sparse.transpDot(b).toFloatArray(), k, sparseCols, ans);
+		if (denseCols.length > 0) {
+			scatterRows(dense.transp().dot(b).toFloatArray(), k, denseCols, ans);
+		}
+		return new Mat(n, k, ans);
+	}
+
+	private static void scatterRows(float[] src, int k, int[] idx, float[] dst) {
+		for (int i = 0; i < idx.length; i++) {
+			System.arraycopy(src, i * k, dst, idx[i] * k, k);
+		}
+	}
+
+	public Vec colMean() {
+		float[] ans = new float[n];
+		float[] s = sparse.colMean().toArray();
+		for (int j = 0; j < sparseCols.length; j++) {
+			ans[sparseCols[j]] = s[j];
+		}
+		if (denseCols.length > 0) {
+			float[] d = dense.colMean().toArray();
+			for (int j = 0; j < denseCols.length; j++) {
+				ans[denseCols[j]] = d[j];
+			}
+		}
+		return new Vec(ans);
+	}
+
+	/**
+	 * Returns the Gram matrix of the columns, in the full column order.
+	 */
+	public Mat gram() {
+		float[] ans = new float[n * n];
+
+		float[] ss = sparse.gram().toFloatArray();
+		for (int a = 0; a < sparseCols.length; a++) {
+			for (int b = 0; b < sparseCols.length; b++) {
+				ans[sparseCols[a] * n + sparseCols[b]] = ss[a * sparseCols.length + b];
+			}
+		}
+
+		if (denseCols.length > 0) {
+			int nd = denseCols.length;
+			float[] dd = dense.gram().toFloatArray();
+			for (int a = 0; a < nd; a++) {
+				for (int b = 0; b < nd; b++) {
+					ans[denseCols[a] * n + denseCols[b]] = dd[a * nd + b];
+				}
+			}
+
+			float[] sd = sparse.transpDot(dense).toFloatArray();
+			for (int a = 0; a < sparseCols.length; a++) {
+				for (int b = 0; b < nd; b++) {
+					float v = sd[a * nd + b];
+					ans[sparseCols[a] * n + denseCols[b]] = v;
+					ans[denseCols[b] * n + sparseCols[a]] = v;
+				}
+			}
+		}
+
+		return new Mat(n, n, ans);
+	}
+
+	public Mat toDense() {
+		int m = rows();
+		float[] ans = new float[m * n];
+
+		float[] s = sparse.toDense().toFloatArray();
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < sparseCols.length; j++) {
+				ans[i * n + sparseCols[j]] = s[i * sparseCols.length + j];
+			}
+		}
+
+		if (denseCols.length > 0) {
+			float[] d = dense.toFloatArray();
+			for (int i = 0; i < m; i++) {
+				for (int j = 0; j < denseCols.length; j++) {
+					ans[i * n + denseCols[j]] = d[i * denseCols.length + j];
+				}
+			}
+		}
+
+		return new Mat(m, n, ans);
+	}
+}
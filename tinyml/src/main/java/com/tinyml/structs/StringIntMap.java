@@ -0,0 +1,172 @@
+package com.tinyml.structs;
+
+/**
+ * Map from non-null strings to ints with open addressing in parallel arrays.
+ */
+final class StringIntMap {
+
+	private static final int INITIAL = 16;
+
+	private String[] keys;
+	private int[] hashes;
+	private int[] vals;
+	private int mask;
+	private int size;
+
+	StringIntMap() {
+		this(INITIAL);
+	}
+
+	StringIntMap(int expected) {
+		int cap = INITIAL;
+		while (cap < expected * 2L) {
+			cap <<= 1;
+		}
+		alloc(cap);
+	}
+
+	private void alloc(int cap) {
+		keys = new String[cap];
+		hashes = new int[cap];
+		vals = new int[cap];
+		mask = cap - 1;
+	}
+
+	private static int hash(String key) {
+		// spreads the high bits, the table index only uses the low ones
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int slot(String key, int h) {
+		int i = h & mask;
+		while (true) {
+			String k = keys[i];
+			if (k == null || k == key || (hashes[i] == h && k.equals(key))) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	int get(String key, int missing) {
+		int i = slot(key, hash(key));
+		return keys[i] == null ? missing : vals[i];
+	}
+
+	int put(String key, int val, int missing) {
+		int h = hash(key);
+		int i = slot(key, h);
+		if (keys[i] != null) {
+			int old = vals[i];
+			vals[i] = val;
+			return old;
+		}
+
+		insert(i, key, h, val);
+		return missing;
+	}
+
+	int putIfAbsent(String key, int val) {
+		int h = hash(key);
+		int i = slot(key, h);
+		if (keys[i] != null) {
+			return vals[i];
+		}
+
+		insert(i, key, h, val);
+		return val;
+	}
+
+	int addTo(String key, int delta) {
+		int h = hash(key);
+		int i = slot(key, h);
+		if (keys[i] != null) {
+			vals[i] += delta;
+			return vals[i];
+		}
+
+		insert(i, key, h, delta);
+		return delta;
+	}
+
+	void addAll(StringIntMap other) {
+		String[] ks = other.keys;
+		for (int j = 0; j < ks.length; j++) {
+			if (ks[j] != null) {
+				int h = other.hashes[j];
+				int i = slot(ks[j], h);
+				if (keys[i] != null) {
+					vals[i] += other.vals[j];
+				} else {
+					insert(i, ks[j], h, other.vals[j]);
+				}
+			}
+		}
+	}
+
+	// slots of the table, read without copying by keyAt and valueAt
+	int capacity() {
+		return keys.length;
+	}
+
+	String keyAt(int slot) {
+		return keys[slot];
+	}
+
+	int valueAt(int slot) {
+		return vals[slot];
+	}
+
+	private void insert(int i, String key, int h, int val) {
+		keys[i] = key;
+		hashes[i] = h;
+		vals[i] = val;
+		size++;
+
+		// at most half full keeps the probe sequences short
+		if (size * 2 > keys.length) {
+			grow();
+		}
+	}
+
+	private void grow() {
+		String[] oldKeys = keys;
+		int[] oldHashes = hashes;
+		int[] oldVals = vals;
+
+		alloc(oldKeys.length * 2);
+		for (int j = 0; j < oldKeys.length; j++) {
+			String k = oldKeys[j];
+			if (k == null) {
+				continue;
+			}
+			int i = oldHashes[j] & mask;
+			while (keys[i] != null) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = k;
+			hashes[i] = oldHashes[j];
+			vals[i] = oldVals[j];
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	String[] keys() {
+		String[] ans = new String[size];
+		int n = 0;
+		for (String k : keys) {
+			if (k != null) {
+				ans[n++] = k;
+			}
+		}
+		return ans;
+	}
+
+	long bytes() {
+		return 48L + keys.length * 12L;
+	}
+}
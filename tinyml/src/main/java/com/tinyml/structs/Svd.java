@@ -0,0 +1,181 @@
+package com.tinyml.structs;
+
+import java.util.Random;
+
+import org.nd4j.linalg.eigen.Eigen;
+
+/**
+ * Truncated singular value decomposition by random projection.
+ */
+public class Svd {
+
+	public static final int DEFAULT_OVERSAMPLE = 10;
+	public static final int DEFAULT_POWER_ITERS = 2;
+
+	// relative size under which a direction of the range is dropped
+	private static final float RANK_EPS = 1e-6f;
+
+	private final Vec values;
+	private final Mat u;
+	private final Mat v;
+	private final Vec mean;
+
+	private Svd(Vec values, Mat u, Mat v, Vec mean) {
+		this.values = values;
+		this.u = u;
+		this.v = v;
+		this.mean = mean;
+	}
+
+	public static Svd randomized(Mat a, int k) {
+		return randomized(a, k, DEFAULT_OVERSAMPLE, DEFAULT_POWER_ITERS, false, 0L);
+	}
+
+	/**
+	 * Returns the top k singular values and vectors, centering the columns implicitly if asked.
+	 */
+	public static Svd randomized(Mat a, int k, int oversample, int powerIters, boolean center, long seed) {
+		int m = a.rows();
+		int n = a.cols();
+
+		if (k < 1 || k > Math.min(m, n)) {
+			throw new IllegalArgumentException(
+					"The k parameter must be between 1 and " + Math.min(m, n) + ". Got: " + k + ".");
+		}
+		if (oversample < 0) {
+			throw new IllegalArgumentException(
+					"The oversample parameter must be 0 or higher. Got: " + oversample + ".");
+		}
+		if (powerIters < 0) {
+			throw new IllegalArgumentException(
+					"The powerIters parameter must be 0 or higher. Got: " + powerIters + ".");
+		}
+
+		int l = Math.min(k + oversample, Math.min(m, n));
+		Vec mean = center ? a.colMean() : null;
+
+		Mat at = a.transp();
+		Mat y = new Mat(m, l);
+		Mat z = new Mat(n, l);
+
+		// the range of a times random directions
+		product(a, gaussian(n, l, seed), mean, false, y);
+		Mat q = orthonormalize(y);
+
+		for (int it = 0; it < powerIters; it++) {
+			product(at, q, mean, true, z);
+			product(a, orthonormalize(z), mean, false, y);
+			q = orthonormalize(y);
+		}
+
+		// b' = a' q is n x l, and b b' = q' a a' q = w s^2 w'
+		Mat bt = product(at, q, mean, true, z);
+		Mat bbt = bt.gram();
+		Vec eig = Vec.wrap(Eigen.symmetricGeneralizedEigenvalues(bbt.ptr(), true));
+
+		// the largest eigenvalues come last
+		float[] vals = eig.toArray();
+		float[] w = bbt.toFloatArray();
+		float[] sel = new float[l * k];
+		float[] inv = new float[k * k];
+		float[] s = new float[k];
+		for (int c = 0; c < k; c++) {
+			int src = l - 1 - c;
+			s[c] = (float) Math.sqrt(Math.max(vals[src], 0f));
+			inv[c * k + c] = s[c] > 0f ? 1f / s[c] : 0f;
+			for (int r = 0; r < l; r++) {
+				sel[r * k + c] = w[r * l + src];
+			}
+		}
+		Mat wk = new Mat(l, k, sel);
+
+		// u = q w and v = b' w / s
+		Mat uk = q.dot(wk, new Mat(m, k));
+		Mat vk = bt.dot(wk).dot(new Mat(k, k, inv), new Mat(n, k));
+
+		return new Svd(new Vec(s), uk, vk, mean);
+	}
+
+	private static Mat product(Mat x, Mat b, Vec mean, boolean transposed, Mat out) {
+		x.dot(b, out);
+		if (mean == null) {
+			return out;
+		}
+
+		if (transposed) {
+			// (a - 1 mean')' b = a' b - mean (1' b)
+			Vec sums = b.colSum();
+			out.ptr().subi(mean.arr.transpose().mmul(sums.arr));
+		} else {
+			// (a - 1 mean') b = a b - 1 (mean' b)
+			Vec shift = b.transp().dot(mean).scalei(-1f);
+			out.ptr().addiRowVector(shift.arr);
+		}
+		return out;
+	}
+
+	private static Mat gaussian(int n, int l, long seed) {
+		Random rnd = new Random(seed);
+		float[] vals = new float[n * l];
+		for (int i = 0; i < vals.length; i++) {
+			vals[i] = (float) rnd.nextGaussian();
+		}
+		return new Mat(n, l, vals);
+	}
+
+	// rotates and scales y with the eigenvectors of y' y, twice for the orthogonality lost to rounding
+	private static Mat orthonormalize(Mat y) {
+		Mat q = y;
+		for (int pass = 0; pass < 2; pass++) {
+			int l = q.cols();
+
+			Mat g = q.gram();
+			Vec eig = Vec.wrap(Eigen.symmetricGeneralizedEigenvalues(g.ptr(), true));
+			float[] vals = eig.toArray();
+			float[] w = g.toFloatArray();
+
+			float max = 0f;
+			for (float val : vals) {
+				max = Math.max(max, val);
+			}
+
+			for (int c = 0; c < l; c++) {
+				float scale = vals[c] > RANK_EPS * max ? (float) (1.0 / Math.sqrt(vals[c])) : 0f;
+				for (int r = 0; r < l; r++) {
+					w[r * l + c] *= scale;
+				}
+			}
+
+			q = q.dot(new Mat(l, l, w), new Mat(q.rows(), l));
+		}
+		return q;
+	}
+
+	/**
+	 * Singular values, in decreasing order.
+	 */
+	public Vec values() {
+		return values;
+	}
+
+	/**
+	 * Left singular vectors, in the columns.
+	 */
+	public Mat u() {
+		return u;
+	}
+
+	/**
+	 * Right singular vectors, in the columns.
+	 */
+	public Mat v() {
+		return v;
+	}
+
+	/**
+	 * Column means subtracted before the decomposition, or null.
+	 */
+	public Vec mean() {
+		return mean;
+	}
+}
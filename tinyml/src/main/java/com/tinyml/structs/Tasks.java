@@ -0,0 +1,63 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs tasks on the common fork-join pool.
+ */
+final class Tasks {
+
+	private Tasks() {
+
+	}
+
+	/**
+	 * Waits for the task, rethrowing the runtime exception it failed with.
+	 */
+	static <T> T join(ForkJoinTask<T> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Runs the tasks and returns their results in order. A single task runs in the calling thread.
+	 */
+	static <T> List<T> run(List<Callable<T>> tasks) {
+		List<T> ans = new ArrayList<>(tasks.size());
+		if (tasks.size() == 1) {
+			try {
+				ans.add(tasks.get(0).call());
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			return ans;
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		List<ForkJoinTask<T>> running = new ArrayList<>(tasks.size());
+		for (Callable<T> task : tasks) {
+			running.add(pool.submit(task));
+		}
+		for (ForkJoinTask<T> task : running) {
+			ans.add(join(task));
+		}
+		return ans;
+	}
+}
@@ -0,0 +1,87 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+
+/**
+ * The k smallest distances offered, with their ids, in a max-heap on primitive arrays.
+ */
+final class TopK {
+
+	private final float[] dist;
+	private final int[] ids;
+	private int size;
+
+	TopK(int k) {
+		dist = new float[k];
+		ids = new int[k];
+	}
+
+	int size() {
+		return size;
+	}
+
+	float bound() {
+		return (size < dist.length) ? Float.POSITIVE_INFINITY : dist[0];
+	}
+
+	void offer(float d, int id) {
+		if (size < dist.length) {
+			up(size++, d, id);
+		} else if (d < dist[0]) {
+			down(0, d, id);
+		}
+	}
+
+	private void up(int i, float d, int id) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (dist[parent] >= d) {
+				break;
+			}
+			dist[i] = dist[parent];
+			ids[i] = ids[parent];
+			i = parent;
+		}
+		dist[i] = d;
+		ids[i] = id;
+	}
+
+	private void down(int i, float d, int id) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && dist[child + 1] > dist[child]) {
+				child++;
+			}
+			if (dist[child] <= d) {
+				break;
+			}
+			dist[i] = dist[child];
+			ids[i] = ids[child];
+			i = child;
+		}
+		dist[i] = d;
+		ids[i] = id;
+	}
+
+	/**
+	 * Writes the entries by increasing distance, then -1 and infinity up to k, and empties the heap.
+	 */
+	void drain(int[] outIds, float[] outDist, int offset) {
+		int k = dist.length;
+		Arrays.fill(outIds, offset + size, offset + k, -1);
+		Arrays.fill(outDist, offset + size, offset + k, Float.POSITIVE_INFINITY);
+
+		// the root is the largest, so the entries come out from the last
+		while (size > 0) {
+			int last = --size;
+			outIds[offset + last] = ids[0];
+			outDist[offset + last] = dist[0];
+			if (last > 0) {
+				down(0, dist[last], ids[last]);
+			}
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package com.tinyml.structs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 
@@ -16,31 +18,60 @@ public class Vec {
 
 	private final int length;
 
+	// keeps alive the memory arr points to when it does not belong to ND4J
+	private final Object owner;
+
 	public static Vec wrap(INDArray arr) {
 		return new Vec(arr.dup());
 	}
 
 	Vec(INDArray arr) {
+		this(arr, null);
+	}
+
+	/**
+	 * Wraps the array without copying it. The owner is kept referenced for as
+	 * long as this vector is reachable.
+	 */
+	Vec(INDArray arr, Object owner) {
 		this.arr = arr;
 		this.length = arr.length();
+		this.owner = owner;
 	}
 
 	public Vec(float[] arr) {
-		this.length = arr.length;
-
-		this.arr = Nd4j.createUninitialized(length);
-		for (int i = 0; i < length; i++) {
-			this.arr.putScalar(i, arr[i]);
-		}
+		this(FloatBuffer.wrap(arr));
 	}
 
 	public Vec(double[] arr) {
-		this.length = arr.length;
+		this(Mat.floats(arr, arr.length));
+	}
+
+	/**
+	 * Creates a vector with a copy of the values remaining in the buffer. The
+	 * position of the buffer is not changed.
+	 */
+	public Vec(FloatBuffer buf) {
+		this(Buffers.copy(buf, new int[] { 1, buf.remaining() }), null);
+	}
+
+	/**
+	 * Creates a vector over the next d floats of the buffer. A direct buffer in
+	 * native byte order is used in place, so changes to either show in the
+	 * other; any other buffer is copied.
+	 */
+	public static Vec wrap(ByteBuffer buf, int d) {
+		if (Buffers.canWrap(buf)) {
+			return new Vec(Buffers.wrap(buf, new int[] { 1, d }), buf);
+		}
 
-		this.arr = Nd4j.createUninitialized(length);
-		for (int i = 0; i < length; i++) {
-			this.arr.putScalar(i, (float) arr[i]);
+		FloatBuffer values = buf.slice().order(buf.order()).asFloatBuffer();
+		if (values.remaining() < d) {
+			throw new IllegalArgumentException(
+					"Not enough values. Expected " + d + ", but got " + values.remaining() + ".");
 		}
+		values.limit(d);
+		return new Vec(values);
 	}
 
 	public static Vec rand(int d) {
@@ -52,6 +83,7 @@ public class Vec {
 	public Vec(int d) {
 		this.arr = Nd4j.create(d);
 		this.length = d;
+		this.owner = null;
 	}
 
 	private void check(int idx) {
@@ -142,19 +174,105 @@ public class Vec {
 		return new Vec(newarr);
 	}
 
+	private void checkSame(Vec b) {
+		if (length != b.length) {
+			throw new IllegalArgumentException(
+					"Vector dimensions must be the same. This " + length + ", other " + b.length + ".");
+		}
+	}
+
+	/**
+	 * Adds b to this vector in place and returns it.
+	 */
+	public Vec addi(Vec b) {
+		return add(b, this);
+	}
+
+	/**
+	 * Writes the sum of this vector and b into out, which can be either of them,
+	 * and returns out.
+	 */
+	public Vec add(Vec b, Vec out) {
+		checkSame(b);
+		checkSame(out);
+		arr.addi(b.arr, out.arr);
+		return out;
+	}
+
+	public Vec subi(Vec b) {
+		return sub(b, this);
+	}
+
+	public Vec sub(Vec b, Vec out) {
+		checkSame(b);
+		checkSame(out);
+		arr.subi(b.arr, out.arr);
+		return out;
+	}
+
+	/**
+	 * Multiplies this vector by b element-wise in place and returns it.
+	 */
+	public Vec multi(Vec b) {
+		checkSame(b);
+		arr.muli(b.arr);
+		return this;
+	}
+
+	public Vec scalei(float scalar) {
+		arr.muli(scalar);
+		return this;
+	}
+
+	public Vec scale(float scalar, Vec out) {
+		checkSame(out);
+		arr.muli(scalar, out.arr);
+		return out;
+	}
+
+	public Vec divi(float scalar) {
+		return scalei(1.0f / scalar);
+	}
+
+	/**
+	 * Copies the values of b into this vector.
+	 */
+	public Vec assign(Vec b) {
+		checkSame(b);
+		arr.assign(b.arr);
+		return this;
+	}
+
+	public Vec assign(float val) {
+		arr.assign(val);
+		return this;
+	}
+
 	public float sum() {
 		return arr.sumNumber().floatValue();
 	}
 
 	public float[] toArray() {
+		float[] ans = new float[length];
+		Buffers.copy(arr, FloatBuffer.wrap(ans));
+		return ans;
+	}
 
-		final int d = length();
-		float[] arr = new float[d];
-		for (int j = 0; j < d; j++) {
-			arr[j] = get(j);
-		}
+	/**
+	 * Copies the values into the buffer, advancing its position.
+	 */
+	public void get(FloatBuffer dst) {
+		Buffers.copy(arr, dst);
+	}
 
-		return arr;
+	/**
+	 * Returns the values as a direct buffer in native byte order. It is the
+	 * memory of the vector, not a copy, unless the vector is a view such as a
+	 * row or a column of a matrix. The memory is freed with the vector, so keep
+	 * the vector reachable while the buffer is read.
+	 */
+	public ByteBuffer buffer() {
+		return Buffers.view(arr);
 	}
 
 	public Vec unit() {
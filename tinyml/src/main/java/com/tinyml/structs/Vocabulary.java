@@ -0,0 +1,65 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dictionary of the words of a categorical column, coded in order of appearance.
+ */
+public class Vocabulary {
+
+	private final StringIntMap codes;
+	private final List<String> words;
+
+	Vocabulary() {
+		codes = new StringIntMap();
+		words = new ArrayList<>();
+	}
+
+	/**
+	 * Returns the code of the word, adding it to the end if it is new.
+	 */
+	int add(String word) {
+		int code = codes.putIfAbsent(word, words.size());
+		if (code == words.size()) {
+			words.add(word);
+		}
+
+		return code;
+	}
+
+	/**
+	 * Returns the code of the word, or -1 if it is not part of the vocabulary.
+	 */
+	public int code(String word) {
+		return codes.get(word, -1);
+	}
+
+	public String word(int code) {
+		if (code < 0 || code >= words.size()) {
+			throw new IndexOutOfBoundsException(
+					"The code parameter is out of range. Got: " + code + ", size: " + words.size() + ".");
+		}
+		return words.get(code);
+	}
+
+	public int size() {
+		return words.size();
+	}
+
+	long bytes() {
+		long total = 64L + words.size() * 8L + codes.bytes();
+		for (String w : words) {
+			total += 40L + w.length();
+		}
+		return total;
+	}
+
+	Vocabulary copy() {
+		Vocabulary ans = new Vocabulary();
+		for (String w : words) {
+			ans.add(w);
+		}
+		return ans;
+	}
+}
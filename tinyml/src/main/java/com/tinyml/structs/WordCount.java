@@ -1,26 +1,60 @@
 package com.tinyml.structs;
 
-import java.util.TreeMap;
+import java.util.Arrays;
 
+/**
+ * Counts the occurrences of words.
+ */
 public class WordCount {
 
-	private final TreeMap<String, Integer> map;
+	private final StringIntMap map;
 
 	private int count = 0;
 
+	// sorted words and their positions, null until first needed
+	private String[] sorted;
+	private StringIntMap index;
+
 	public WordCount() {
-		map = new TreeMap<>();
+		map = new StringIntMap();
+	}
+
+	WordCount(StringIntMap map, int count) {
+		this.map = map;
+		this.count = count;
 	}
 
 	public void add(String word) {
-		Integer val = map.get(word);
-		if (val == null) {
-			map.put(word, 1);
-		} else {
-			map.put(word, val + 1);
+		map.addTo(word, 1);
+		count++;
+
+		sorted = null;
+		index = null;
+	}
+
+	/**
+	 * Adds the word several times.
+	 */
+	public void add(String word, int times) {
+		if (times < 0) {
+			throw new IllegalArgumentException("The times parameter must be 0 or higher. Got: " + times + ".");
 		}
+		map.addTo(word, times);
+		count += times;
 
-		count++;
+		sorted = null;
+		index = null;
+	}
+
+	public void merge(WordCount other) {
+		if (other == this) {
+			throw new IllegalArgumentException("The other parameter can not be this count.");
+		}
+		map.addAll(other.map);
+		count += other.count;
+
+		sorted = null;
+		index = null;
 	}
 
 	public int diff() {
@@ -32,28 +66,142 @@ public class WordCount {
 	}
 
 	public int count(String word) {
-		Integer count = map.get(word);
-		if (count == null) {
-			return 0;
+		return map.get(word, 0);
+	}
+
+	private void buildIndex() {
+		if (index != null) {
+			return;
 		}
 
-		return count;
+		String[] words = map.keys();
+		Arrays.sort(words);
+
+		StringIntMap idx = new StringIntMap(words.length);
+		for (int i = 0; i < words.length; i++) {
+			idx.put(words[i], i, -1);
+		}
+
+		sorted = words;
+		index = idx;
 	}
 
+	/**
+	 * Returns the position of the word among the sorted distinct words, or -1
+	 * if it was never added.
+	 */
 	public int wordIdx(String word) {
+		if (word == null) {
+			return -1;
+		}
+
+		buildIndex();
+		return index.get(word, -1);
+	}
 
-		int idx = 0;
-		for (String key : map.keySet()) {
+	/**
+	 * Returns the word at the position in sorted order.
+	 */
+	public String word(int idx) {
+		buildIndex();
+		if (idx < 0 || idx >= sorted.length) {
+			throw new IndexOutOfBoundsException(
+					"The idx parameter is out of range. Got: " + idx + ", size: " + sorted.length + ".");
+		}
+		return sorted[idx];
+	}
 
-			if (word == key) {
-				return idx;
+	/**
+	 * Returns the k most frequent words, the most frequent first and equal counts in word order.
+	 */
+	public String[] top(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("The k parameter must be 0 or higher. Got: " + k + ".");
+		}
+
+		// min-heap of slots, the root is the least frequent word kept so far
+		int[] heap = new int[Math.min(k, map.size())];
+		int size = 0;
+		for (int slot = 0; slot < map.capacity() && heap.length > 0; slot++) {
+			if (map.keyAt(slot) == null) {
+				continue;
+			}
+			if (size < heap.length) {
+				heap[size] = slot;
+				up(heap, size++);
+			} else if (before(slot, heap[0])) {
+				heap[0] = slot;
+				down(heap, 0, size);
+			}
+		}
+
+		// taking the root each time gives the words from the last
+		String[] ans = new String[size];
+		while (size > 0) {
+			ans[size - 1] = map.keyAt(heap[0]);
+			heap[0] = heap[--size];
+			down(heap, 0, size);
+		}
+		return ans;
+	}
+
+	/**
+	 * Returns the words counted more than the share of all the words, the most
+	 * frequent first. There are fewer than 1 / share of them.
+	 */
+	public String[] heavyHitters(double share) {
+		if (!(share > 0.0 && share <= 1.0)) {
+			throw new IllegalArgumentException("The share parameter must be in (0, 1]. Got: " + share + ".");
+		}
+
+		int hits = 0;
+		double min = share * count;
+		for (int slot = 0; slot < map.capacity(); slot++) {
+			if (map.keyAt(slot) != null && map.valueAt(slot) > min) {
+				hits++;
 			}
-			if (word != null && word.equals(key)) {
-				return idx;
+		}
+		return top(hits);
+	}
+
+	private boolean before(int a, int b) {
+		int ca = map.valueAt(a);
+		int cb = map.valueAt(b);
+		if (ca != cb) {
+			return ca > cb;
+		}
+		return map.keyAt(a).compareTo(map.keyAt(b)) < 0;
+	}
+
+	private void up(int[] heap, int i) {
+		int slot = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (before(heap[parent], slot) == false) {
+				break;
 			}
-			idx++;
+			heap[i] = heap[parent];
+			i = parent;
 		}
+		heap[i] = slot;
+	}
 
-		return -1;
+	private void down(int[] heap, int i, int size) {
+		int slot = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && before(heap[child], heap[child + 1])) {
+				child++;
+			}
+			if (before(heap[child], slot)) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = slot;
 	}
 }
@@ -0,0 +1,159 @@
+package com.tinyml.structs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts the words of grid columns in parallel row ranges.
+ */
+final class WordCounter {
+
+	// rows per task, a multiple of the chunk size
+	static final int RANGE = 1 << 20;
+
+	private static final int BLOCK = 4096;
+
+	private WordCounter() {
+
+	}
+
+	static WordCount[] count(Grid g, int[] cols) {
+		return count(g, cols, RANGE);
+	}
+
+	static WordCount[] count(final Grid g, final int[] cols, int range) {
+		int rows = g.rows();
+		for (int j : cols) {
+			g.column(j);
+		}
+
+		Part total;
+		if (rows <= range) {
+			total = scan(g, cols, 0, rows);
+		} else {
+			ForkJoinPool pool = ForkJoinPool.commonPool();
+			List<ForkJoinTask<Part>> tasks = new ArrayList<>();
+			for (int from = 0; from < rows; from += range) {
+				final int start = from;
+				final int end = Math.min(rows, from + range);
+				tasks.add(pool.submit(new Callable<Part>() {
+					@Override
+					public Part call() {
+						return scan(g, cols, start, end);
+					}
+				}));
+			}
+
+			total = Tasks.join(tasks.get(0));
+			for (int t = 1; t < tasks.size(); t++) {
+				total.merge(Tasks.join(tasks.get(t)));
+			}
+		}
+
+		WordCount[] ans = new WordCount[cols.length];
+		for (int k = 0; k < cols.length; k++) {
+			ans[k] = total.finish(g.column(cols[k]), k);
+		}
+		return ans;
+	}
+
+	// category columns count their codes, the others their words
+	private static class Part {
+
+		final int[][] hist;
+		final StringIntMap[] words;
+		final int[] counts;
+
+		Part(int cols) {
+			hist = new int[cols][];
+			words = new StringIntMap[cols];
+			counts = new int[cols];
+		}
+
+		void merge(Part other) {
+			for (int k = 0; k < hist.length; k++) {
+				if (hist[k] != null) {
+					int[] h = hist[k];
+					int[] o = other.hist[k];
+					for (int i = 0; i < h.length; i++) {
+						h[i] += o[i];
+					}
+				} else {
+					words[k].addAll(other.words[k]);
+				}
+				counts[k] += other.counts[k];
+			}
+		}
+
+		WordCount finish(GridColumn c, int k) {
+			if (hist[k] == null) {
+				return new WordCount(words[k], counts[k]);
+			}
+
+			int[] h = hist[k];
+			int diff = 0;
+			for (int times : h) {
+				if (times > 0) {
+					diff++;
+				}
+			}
+
+			Vocabulary v = c.vocabulary();
+			StringIntMap map = new StringIntMap(diff);
+			for (int code = 0; code < h.length; code++) {
+				if (h[code] > 0) {
+					map.put(v.word(code), h[code], 0);
+				}
+			}
+			return new WordCount(map, counts[k]);
+		}
+	}
+
+	private static Part scan(Grid g, int[] cols, int from, int to) {
+		Part p = new Part(cols.length);
+		int[] buf = new int[BLOCK];
+
+		for (int k = 0; k < cols.length; k++) {
+			GridColumn c = g.column(cols[k]);
+			Bitmap nulls = c.nullBits();
+			boolean some = c.nulls() > 0;
+
+			if (c.type() == GridColumn.Type.CATEGORY) {
+				IntChunks ints = c.ints();
+				int[] h = new int[c.vocabulary().size()];
+				int n = 0;
+				for (int at = from; at < to; at += BLOCK) {
+					int l = Math.min(BLOCK, to - at);
+					ints.get(at, buf, 0, l);
+					for (int i = 0; i < l; i++) {
+						if (some == false || nulls.get(at + i) == false) {
+							h[buf[i]]++;
+							n++;
+						}
+					}
+				}
+				p.hist[k] = h;
+				p.counts[k] = n;
+				continue;
+			}
+
+			StringIntMap map = new StringIntMap();
+			int n = 0;
+			if (c.type() != GridColumn.Type.EMPTY) {
+				for (int i = from; i < to; i++) {
+					if (some == false || nulls.get(i) == false) {
+						map.addTo(c.get(i), 1);
+						n++;
+					}
+				}
+			}
+			p.words[k] = map;
+			p.counts[k] = n;
+		}
+
+		return p;
+	}
+}
@@ -0,0 +1,56 @@
+package com.tinyml.structs;
+
+import junit.framework.TestCase;
+
+public class AffineScorerTest extends TestCase {
+
+	public void testAffine() {
+		Mat w = Mat.rand(37, 5);
+		Vec b = Vec.rand(5);
+		Mat x = Mat.rand(10, 37);
+
+		Mat expected = x.affine(w, b);
+		AffineScorer scorer = new AffineScorer(w, b);
+		assertEquals(37, scorer.inputs());
+		assertEquals(5, scorer.outputs());
+
+		float[] rows = x.toFloatArray();
+		float[] out = new float[7];
+		for (int i = 0; i < 10; i++) {
+			scorer.score(rows, i * 37, out, 2);
+			for (int o = 0; o < 5; o++) {
+				assertEquals(expected.get(i, o), out[2 + o], 1e-4);
+			}
+		}
+	}
+
+	public void testActivations() {
+		Mat w = new Mat(2, 3, new float[] { 1, -1, 0, 2, 1, 0 });
+		Vec b = new Vec(new float[] { 0, 0, 1 });
+		float[] x = { 1, 1 };
+		float[] out = new float[3];
+
+		// x w + b = 3, 0, 1
+		new AffineScorer(w, b, AffineScorer.Activation.RELU).score(x, out);
+		assertEquals(3f, out[0]);
+		assertEquals(0f, out[1]);
+
+		new AffineScorer(w, b, AffineScorer.Activation.SIGMOID).score(x, out);
+		assertEquals(0.5f, out[1], 1e-6f);
+
+		new AffineScorer(w, b, AffineScorer.Activation.TANH).score(x, out);
+		assertEquals(Math.tanh(3), out[0], 1e-6);
+
+		new AffineScorer(w, b, AffineScorer.Activation.SOFTMAX).score(x, out);
+		double z = Math.exp(3) + Math.exp(0) + Math.exp(1);
+		assertEquals(Math.exp(3) / z, out[0], 1e-6);
+		assertEquals(1.0, out[0] + out[1] + out[2], 1e-6);
+
+		try {
+			new AffineScorer(w, b).score(new float[1], out);
+			fail("A short row must be rejected.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
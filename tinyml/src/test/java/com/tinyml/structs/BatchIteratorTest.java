@@ -0,0 +1,78 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class BatchIteratorTest extends TestCase {
+
+	private static Grid grid(int rows) {
+		Grid g = new Grid();
+		String[] words = { "a", "b", "c" };
+		for (int i = 0; i < rows; i++) {
+			String num = (i % 7 == 0) ? "" : Integer.toString(i);
+			g.add(Arrays.asList(num, words[i % 3], Float.toString(i * 0.5f)));
+		}
+		return g;
+	}
+
+	public void testInOrder() {
+		Grid g = grid(103);
+		GridEncoder enc = new GridEncoder(g, true);
+		Mat all = enc.encode(g);
+
+		int row = 0;
+		int batches = 0;
+		try (BatchIterator it = new BatchIterator(g, enc, 10)) {
+			assertEquals(11, it.batches());
+			while (it.hasNext()) {
+				Mat b = it.next();
+				batches++;
+				assertEquals(batches < 11 ? 10 : 3, b.rows());
+				for (int i = 0; i < b.rows(); i++, row++) {
+					for (int j = 0; j < all.cols(); j++) {
+						assertEquals(all.get(row, j), b.get(i, j));
+					}
+				}
+			}
+		}
+		assertEquals(11, batches);
+		assertEquals(103, row);
+	}
+
+	public void testShuffled() {
+		Grid g = grid(50);
+		GridEncoder enc = new GridEncoder(g, false);
+
+		// the last column is half the row number
+		boolean[] seen = new boolean[50];
+		float[] order = new float[50];
+		int row = 0;
+		try (BatchIterator it = new BatchIterator(g, enc, 8, true, 3L, 2)) {
+			while (it.hasNext()) {
+				Mat b = it.next();
+				for (int i = 0; i < b.rows(); i++, row++) {
+					int r = Math.round(b.get(i, 5) * 2);
+					assertFalse(seen[r]);
+					seen[r] = true;
+					order[row] = r;
+				}
+			}
+		}
+		assertEquals(50, row);
+
+		boolean moved = false;
+		for (int i = 0; i < 50; i++) {
+			moved |= order[i] != i;
+		}
+		assertTrue(moved);
+	}
+
+	public void testClose() {
+		Grid g = grid(1000);
+		BatchIterator it = new BatchIterator(g, new GridEncoder(g, false), 10);
+		it.next();
+		it.close();
+		assertFalse(it.hasNext());
+	}
+}
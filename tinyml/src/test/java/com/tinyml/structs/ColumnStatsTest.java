@@ -0,0 +1,148 @@
+package com.tinyml.structs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ColumnStatsTest extends TestCase {
+
+	public void testMergeMatchesSequential() {
+		Random r = new Random(7);
+		ColumnStats all = new ColumnStats();
+		ColumnStats a = new ColumnStats();
+		ColumnStats b = new ColumnStats();
+
+		for (int i = 0; i < 1000; i++) {
+			double x = r.nextGaussian() * 10 + 3;
+			all.addNumber(x, false);
+			((i < 300) ? a : b).addNumber(x, false);
+		}
+		a.addMissing(2);
+		all.addMissing(2);
+
+		a.merge(b);
+
+		assertEquals(all.count(), a.count());
+		assertEquals(all.numbers(), a.numbers());
+		assertEquals(all.missing(), a.missing());
+		assertEquals(all.min(), a.min());
+		assertEquals(all.max(), a.max());
+		assertEquals(all.mean(), a.mean(), 1e-9);
+		assertEquals(all.var(), a.var(), 1e-9);
+	}
+
+	public void testWordsThatAreNumbers() {
+		Grid g = new Grid();
+		g.add(Arrays.asList("007", "x"));
+		g.add(Arrays.asList("+5", "y"));
+		g.add(Arrays.asList("1e3", "z"));
+		g.add(Arrays.asList("abc", "w"));
+		g.add(Arrays.asList("", "v"));
+
+		GridColumnInfo info = g.info().info(0);
+
+		assertEquals(GridColumn.Type.CATEGORY, g.column(0).type());
+		assertEquals(5, info.count());
+		assertEquals(1, info.missing());
+		assertEquals(3, info.numbers());
+		assertEquals(2, info.integers());
+		assertEquals(1, info.words());
+		assertEquals(1012.0, info.sum());
+		assertEquals(1000.0, info.max());
+		assertEquals(0.0, info.min());
+	}
+
+	public void testFloatsAreReadAsText() {
+		Grid g = new Grid();
+		g.add(Arrays.asList("0.1"));
+		g.add(Arrays.asList("0.2"));
+		g.add(Arrays.asList("0.3"));
+
+		GridColumnInfo info = g.info().info(0);
+
+		assertEquals(GridColumn.Type.FLOAT, g.column(0).type());
+		assertEquals(0.1 + 0.2 + 0.3, info.sum());
+		assertEquals(0.3, info.max());
+
+		// the same when profiling the mapped column
+		GridColumnInfo mapped = Snapshot.grid(write(g, true)).info().info(0);
+		assertEquals(info.sum(), mapped.sum());
+		assertEquals(info.avg(), mapped.avg());
+	}
+
+	private static Grid batch(int from, int to) {
+		Grid g = new Grid();
+		for (int i = from; i < to; i++) {
+			g.add(Arrays.asList(Integer.toString(i % 50), (i % 9 == 0) ? "" : Float.toString(i * 0.5f),
+					"w" + (i % 4)));
+		}
+		return g;
+	}
+
+	public void testStatsFollowAppends() {
+		Grid g = batch(0, 500);
+		GridInfo before = g.info();
+
+		g.addAll(batch(500, 800));
+		g.add(Arrays.asList("1000", "x", "w9"));
+
+		GridInfo after = g.info();
+		GridColumnInfo expected = new GridColumnInfo(Loader.csv(write(g)), 0);
+
+		assertEquals(500, before.info(0).count());
+		assertEquals(801, after.info(0).count());
+		assertEquals(expected.avg(), after.avg(0), 1e-9);
+		assertEquals(expected.stdev(), after.stdev(0), 1e-9);
+		assertEquals(1000.0, after.max(0));
+		assertEquals(1, after.info(1).words());
+	}
+
+	public void testMergeShards() {
+		Grid a = batch(0, 300);
+		Grid b = batch(300, 1000);
+
+		GridInfo merged = a.info().merge(b.info());
+
+		a.addAll(b);
+		GridInfo all = Snapshot.grid(write(a, true)).info();
+
+		for (int j = 0; j < all.cols(); j++) {
+			assertEquals(all.info(j).count(), merged.info(j).count());
+			assertEquals(all.info(j).missing(), merged.info(j).missing());
+			assertEquals(all.avg(j), merged.avg(j), 1e-9);
+			assertEquals(all.stdev(j), merged.stdev(j), 1e-9);
+		}
+	}
+
+	private static File write(Grid g) {
+		return write(g, false);
+	}
+
+	private static File write(Grid g, boolean snapshot) {
+		try {
+			File f = File.createTempFile("tinyml", snapshot ? ".grid" : ".csv");
+			f.deleteOnExit();
+			if (snapshot) {
+				Snapshot.write(g, f);
+			} else {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < g.rows(); i++) {
+					for (int j = 0; j < g.cols(); j++) {
+						String val = g.get(i, j);
+						sb.append(j > 0 ? "," : "").append(val == null ? "" : val);
+					}
+					sb.append('\n');
+				}
+				Files.write(f.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			return f;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.tinyml.structs;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class CovarianceTest extends TestCase {
+
+	private static float[] values(int len, double mean, long seed) {
+		Random rnd = new Random(seed);
+		float[] ans = new float[len];
+		for (int i = 0; i < len; i++) {
+			ans[i] = (float) (mean + rnd.nextGaussian() * (1 + i % 3));
+		}
+		return ans;
+	}
+
+	/**
+	 * Covariance computed in double precision with two passes.
+	 */
+	private static double[][] cov(float[] x, int m, int n) {
+		double[] mean = new double[n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				mean[j] += x[i * n + j] / (double) m;
+			}
+		}
+
+		double[][] ans = new double[n][n];
+		for (int i = 0; i < m; i++) {
+			for (int a = 0; a < n; a++) {
+				for (int b = 0; b < n; b++) {
+					ans[a][b] += (x[i * n + a] - mean[a]) * (x[i * n + b] - mean[b]) / (m - 1);
+				}
+			}
+		}
+		return ans;
+	}
+
+	private static void assertClose(Mat expected, Mat actual, double tol) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.cols(), actual.cols());
+		for (int i = 0; i < expected.rows(); i++) {
+			for (int j = 0; j < expected.cols(); j++) {
+				double e = expected.get(i, j);
+				assertEquals(e, actual.get(i, j), tol * Math.max(1.0, Math.abs(e)));
+			}
+		}
+	}
+
+	public void testGram() {
+		Mat x = new Mat(500, 7, values(3500, 2.0, 1));
+
+		Mat g = x.gram();
+		assertClose(x.transp().dot(x), g, 1e-5);
+		assertEquals(g.get(2, 5), g.get(5, 2));
+
+		// a transposed view is copied first
+		Mat t = x.transp();
+		assertClose(t.transp().dot(t), t.gram(), 1e-5);
+	}
+
+	public void testCenteredCov() {
+		int m = 2000;
+		int n = 5;
+		// a large mean compared to the spread
+		float[] vals = values(m * n, 1e4, 2);
+
+		double[][] expected = cov(vals, m, n);
+		Mat c = new Mat(m, n, vals).cov();
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				assertEquals(expected[a][b], c.get(a, b), 1e-3 * Math.max(1.0, Math.abs(expected[a][b])));
+			}
+		}
+	}
+
+	public void testBlocksAndMerge() {
+		int m = 1000;
+		int n = 6;
+		float[] vals = values(m * n, 5.0, 3);
+		Mat x = new Mat(m, n, vals);
+
+		for (boolean center : new boolean[] { true, false }) {
+			Covariance whole = new Covariance(n, center);
+			whole.add(x);
+
+			Covariance a = new Covariance(n, center);
+			a.add(x.selectRows(0, 300));
+			a.add(x.selectRows(300, 310));
+			Covariance b = new Covariance(n, center);
+			b.add(x.selectRows(310, m));
+			a.merge(b);
+
+			assertEquals(m, a.count());
+			assertClose(whole.scatter(), a.scatter(), 1e-4);
+			assertClose(whole.cov(), a.cov(), 1e-4);
+			assertClose(new Mat(1, n, whole.mean().toArray()), new Mat(1, n, a.mean().toArray()), 1e-5);
+		}
+
+		double[][] expected = cov(vals, m, n);
+		Covariance raw = new Covariance(n, false);
+		raw.add(x);
+		assertEquals(expected[1][3], raw.cov().get(1, 3), 1e-3);
+	}
+}
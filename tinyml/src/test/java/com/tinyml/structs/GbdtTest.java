@@ -0,0 +1,201 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import com.tinyml.structs.LinearModel.Loss;
+
+import junit.framework.TestCase;
+
+public class GbdtTest extends TestCase {
+
+	private static final String[] WORDS = { "a", "b", "c", "d", "e" };
+	private static final float[] EFFECTS = { 0f, 3f, -2f, 1f, 0f };
+
+	private static float step(float x) {
+		return (x < 3f) ? 1f : (x < 7f) ? 5f : -2f;
+	}
+
+	public void testStepFunction() {
+		// a step function of the first column, the second one is noise
+		Random rnd = new Random(1);
+		int m = 5000;
+		Grid g = new Grid();
+		float[] y = new float[m];
+		for (int i = 0; i < m; i++) {
+			float x = 10f * rnd.nextFloat();
+			g.add(Arrays.asList(Float.toString(x), Float.toString(rnd.nextFloat())));
+			y[i] = step(x);
+		}
+
+		GbdtModel model = new GbdtTrainer(Loss.SQUARED).trees(50).depth(2).learningRate(0.3f).fit(g, new Vec(y));
+		assertEquals(50, model.trees());
+		assertEquals(2, model.depth());
+		assertEquals(2, model.cols());
+		assertTrue(model.loss(49) < model.loss(0));
+		assertTrue(model.loss(49) < 0.03);
+		assertTrue(model.seconds(0) >= 0.0);
+
+		float[] p = model.predict(g).toArray();
+		int wrong = 0;
+		for (int i = 0; i < m; i++) {
+			if (Math.abs(p[i] - y[i]) > 0.1f) {
+				wrong++;
+			}
+		}
+		// the rows in the bins at the steps are off, and a few near them
+		assertTrue("wrong " + wrong, wrong < 0.04 * m);
+	}
+
+	public void testNumericWords() {
+		// numbers that are not in the Float.toString form are stored as words, and still binned in order
+		Random rnd = new Random(5);
+		int m = 5000;
+		Grid g = new Grid();
+		float[] y = new float[m];
+		for (int i = 0; i < m; i++) {
+			float x = 10f * rnd.nextFloat();
+			g.add(Arrays.asList(String.format(Locale.ROOT, "%.2f", x)));
+			y[i] = step(x);
+		}
+		assertEquals(GridColumn.Type.CATEGORY, g.column(0).type());
+
+		Binner b = Binner.fit(g);
+		assertTrue(b.isNumeric(0));
+		assertEquals(Binner.MAX_BINS, b.bins(0));
+
+		GbdtModel model = new GbdtTrainer(Loss.SQUARED).trees(50).depth(2).learningRate(0.3f).fit(g, new Vec(y));
+		float[] p = model.predict(g).toArray();
+		int wrong = 0;
+		for (int i = 0; i < m; i++) {
+			if (Math.abs(p[i] - y[i]) > 0.1f) {
+				wrong++;
+			}
+		}
+		assertTrue("wrong " + wrong, wrong < 0.04 * m);
+	}
+
+	public void testCategoriesAndMissing() {
+		// a category effect, plus a numeric effect or 4 when the value is missing
+		Random rnd = new Random(2);
+		int m = 8000;
+		Grid g = new Grid();
+		float[] y = new float[m];
+		for (int i = 0; i < m; i++) {
+			int k = rnd.nextInt(WORDS.length);
+			float x = rnd.nextFloat();
+			boolean missing = rnd.nextInt(5) == 0;
+			g.add(Arrays.asList(WORDS[k], missing ? null : Float.toString(x)));
+			y[i] = EFFECTS[k] + (missing ? 4f : 2f * x);
+		}
+
+		Binner b = Binner.fit(g);
+		assertFalse(b.isNumeric(0));
+		assertEquals(WORDS.length + 1, b.bins(0));
+		assertTrue(b.isNumeric(1));
+
+		GbdtModel model = new GbdtTrainer(Loss.SQUARED).trees(200).depth(4).fit(g, new Vec(y));
+		float[] p = model.predict(g).toArray();
+		double err = 0.0;
+		for (int i = 0; i < m; i++) {
+			err += Math.abs(p[i] - y[i]);
+		}
+		assertTrue("error " + err / m, err / m < 0.05);
+	}
+
+	public void testLogistic() {
+		Random rnd = new Random(3);
+		int m = 6000;
+		Grid g = new Grid();
+		float[] y = new float[m];
+		for (int i = 0; i < m; i++) {
+			int k = rnd.nextInt(WORDS.length);
+			float x = (float) rnd.nextGaussian();
+			g.add(Arrays.asList(Float.toString(x), WORDS[k]));
+			y[i] = (x * x + EFFECTS[k] > 1.5f) ? 1f : 0f;
+		}
+
+		GbdtModel model = new GbdtTrainer(Loss.LOGISTIC).trees(100).depth(3).learningRate(0.3f).fit(g,
+				new Vec(y));
+		assertEquals(Loss.LOGISTIC, model.loss());
+		assertTrue(model.loss(99) < model.loss(0));
+
+		float[] p = model.predict(g).toArray();
+		int right = 0;
+		for (int i = 0; i < m; i++) {
+			assertTrue(p[i] >= 0f && p[i] <= 1f);
+			if ((p[i] > 0.5f) == (y[i] > 0.5f)) {
+				right++;
+			}
+		}
+		assertTrue(right > 0.98 * m);
+	}
+
+	public void testOtherGrid() {
+		// many words share the last bin, and new grids are binned as the training one
+		Random rnd = new Random(4);
+		Grid train = new Grid();
+		Grid test = new Grid();
+		float[] y = new float[4000];
+		float[] expected = new float[1000];
+		for (int i = 0; i < y.length + expected.length; i++) {
+			int w = rnd.nextInt(300);
+			float x = 10f * rnd.nextFloat();
+			float v = step(x) + ((w % 2 == 0) ? 2f : 0f);
+			if (i < y.length) {
+				train.add(Arrays.asList("w" + w, Float.toString(x)));
+				y[i] = v;
+			} else {
+				test.add(Arrays.asList("w" + w, Float.toString(x)));
+				expected[i - y.length] = v;
+			}
+		}
+
+		Binner b = Binner.fit(train);
+		assertEquals(Binner.MAX_BINS, b.bins(0));
+
+		GbdtModel model = new GbdtTrainer(Loss.SQUARED).trees(100).depth(3).learningRate(0.2f).fit(train,
+				new Vec(y));
+		float[] p = model.predict(test).toArray();
+		int close = 0;
+		for (int i = 0; i < p.length; i++) {
+			// the other words are not known apart, the steps are
+			if (Math.abs(p[i] - expected[i]) < 1.1f) {
+				close++;
+			}
+		}
+		assertTrue("close " + close, close > 0.95 * p.length);
+	}
+
+	public void testInvalid() {
+		Grid g = new Grid();
+		g.add(Arrays.asList("1", "a"));
+		g.add(Arrays.asList("2", "b"));
+		GbdtTrainer t = new GbdtTrainer(Loss.LOGISTIC);
+		try {
+			t.fit(g, new Vec(new float[] { 0f }));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			t.fit(g, new Vec(new float[] { 0f, 2f }));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			t.depth(GbdtTrainer.MAX_DEPTH + 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			t.minRows(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package com.tinyml.structs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class GridTest extends TestCase {
+
+	private static Grid grid(String[]... rows) {
+		Grid g = new Grid();
+		for (String[] row : rows) {
+			g.add(Arrays.asList(row));
+		}
+		return g;
+	}
+
+	public void testValuesAreKeptAsText() {
+		Grid g = grid(new String[] { " 1 ", "2.5", "a" }, new String[] { "007", "3", "" },
+				new String[] { "-4", "1.0E10", "b" });
+
+		assertEquals(3, g.rows());
+		assertEquals(3, g.cols());
+
+		assertEquals("1", g.get(0, 0));
+		assertEquals("007", g.get(1, 0));
+		assertEquals("-4", g.get(2, 0));
+
+		assertEquals("2.5", g.get(0, 1));
+		assertEquals("3", g.get(1, 1));
+		assertEquals("1.0E10", g.get(2, 1));
+
+		assertEquals("a", g.get(0, 2));
+		assertNull(g.get(1, 2));
+		assertEquals("b", g.get(2, 2));
+	}
+
+	public void testColumnTypes() {
+		Grid g = grid(new String[] { "1", "1", "1.5", "x", "" }, new String[] { "2", "2.25", "2", "y", "" },
+				new String[] { "", "3", "3", "x", "" });
+
+		assertEquals(GridColumn.Type.INTEGER, g.column(0).type());
+		assertEquals(GridColumn.Type.FLOAT, g.column(1).type());
+		assertEquals(GridColumn.Type.FLOAT, g.column(2).type());
+		assertEquals(GridColumn.Type.CATEGORY, g.column(3).type());
+		assertEquals(GridColumn.Type.EMPTY, g.column(4).type());
+
+		assertEquals(1, g.column(0).nulls());
+		assertTrue(g.column(0).isNull(2));
+		assertEquals(2, g.column(3).vocabulary().size());
+		assertEquals(g.column(3).code(0), g.column(3).code(2));
+	}
+
+	public void testPromotionKeepsPreviousRows() {
+		Grid g = grid(new String[] { "16777217", "a" }, new String[] { "0.5", "b" },
+				new String[] { "", "c" });
+
+		assertEquals(GridColumn.Type.CATEGORY, g.column(0).type());
+		assertEquals("16777217", g.get(0, 0));
+		assertEquals("0.5", g.get(1, 0));
+		assertNull(g.get(2, 0));
+	}
+
+	public void testRaggedRows() {
+		Grid g = grid(new String[] { "1" }, new String[] { "2", "b" });
+
+		assertEquals(2, g.cols());
+		assertNull(g.get(0, 1));
+		assertEquals("b", g.get(1, 1));
+	}
+
+	public void testSelectCols() {
+		Grid g = grid(new String[] { "1", "a", "2.5" }, new String[] { "2", "b", "3.5" });
+		Grid s = g.selectCols(1, 3);
+
+		assertEquals(2, s.rows());
+		assertEquals(2, s.cols());
+		assertEquals("b", s.get(1, 0));
+		assertEquals("3.5", s.get(1, 1));
+
+		g.add(Arrays.asList("3", "c", "4.5"));
+		assertEquals(2, s.rows());
+	}
+
+	public void testToMatrix() {
+		Grid g = grid(new String[] { "3", "b", "1.5" }, new String[] { "", "a", "1.5" },
+				new String[] { "5", "", "2.5" });
+
+		Mat m = g.toMatrix();
+
+		// value and missing flag, two words, one float
+		assertEquals(3, m.rows());
+		assertEquals(5, m.cols());
+
+		float[][] expected = { { 3, 0, 0, 1, 1.5f }, { 0, 1, 1, 0, 1.5f }, { 5, 0, 0, 0, 2.5f } };
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 5; j++) {
+				assertEquals(expected[i][j], m.get(i, j));
+			}
+		}
+
+		Mat s = g.toMatrix(true);
+		float avg = (1.5f + 1.5f + 2.5f) / 3;
+		assertEquals((2.5f - avg) / (float) g.info().stdev(2), s.get(2, 4), 1e-6f);
+	}
+
+	public void testEncoderChunks() {
+		Grid a = grid(new String[] { "3", "b" }, new String[] { "4", "a" });
+		Grid b = grid(new String[] { "", "c" }, new String[] { "6", "a" });
+
+		GridEncoder enc = GridEncoder.fit(Arrays.asList(a, b), false);
+
+		// value and missing flag, three words
+		assertEquals(5, enc.cols());
+
+		// the codes of each chunk map to the shared columns
+		Mat mb = enc.encode(b);
+		float[][] expected = { { 0, 1, 0, 0, 1 }, { 6, 0, 1, 0, 0 } };
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 5; j++) {
+				assertEquals(expected[i][j], mb.get(i, j));
+			}
+		}
+
+		// a word not seen in fitting is a row of zeros
+		Grid c = grid(new String[] { "1", "d" });
+		Mat mc = enc.encode(c);
+		assertEquals(1f, mc.get(0, 0));
+		for (int j = 1; j < 5; j++) {
+			assertEquals(0f, mc.get(0, j));
+		}
+
+		Mat part = enc.encode(a, 1, 2);
+		assertEquals(1, part.rows());
+		assertEquals(4f, part.get(0, 0));
+		assertEquals(1f, part.get(0, 2));
+	}
+
+	public void testEncoderMixedChunks() {
+		// the first column is stored as numbers in the first chunk and as words in the second
+		Grid a = grid(new String[] { "1", "2.5" }, new String[] { "2", "" });
+		Grid b = grid(new String[] { "a", "x" }, new String[] { "1", "3" });
+		Grid whole = grid(new String[] { "1", "2.5" }, new String[] { "2", "" }, new String[] { "a", "x" },
+				new String[] { "1", "3" });
+
+		GridEncoder chunked = GridEncoder.fit(Arrays.asList(a, b), false);
+		GridEncoder once = new GridEncoder(whole, false);
+		assertEquals(once.cols(), chunked.cols());
+
+		Mat expected = once.encode(whole);
+		Mat[] parts = { chunked.encode(a), chunked.encode(b) };
+		for (int i = 0; i < whole.rows(); i++) {
+			Mat part = parts[i / 2];
+			for (int j = 0; j < expected.cols(); j++) {
+				assertEquals(expected.get(i, j), part.get(i % 2, j));
+			}
+		}
+	}
+
+	public void testSplitMatrix() {
+		Grid g = grid(new String[] { "3", "b", "1.5", "x" }, new String[] { "", "a", "1.5", "" },
+				new String[] { "5", "", "2.5", "y" }, new String[] { "7", "c", "0.5", "x" });
+
+		Mat m = g.toMatrix(true);
+		SplitMat s = g.toSplitMatrix(true);
+
+		assertEquals(m.cols(), s.cols());
+		// the ones of the two one-hot columns
+		assertEquals(6, s.sparse().nnz());
+		assertEquals(3, s.dense().cols());
+
+		Mat d = s.toDense();
+		for (int i = 0; i < m.rows(); i++) {
+			for (int j = 0; j < m.cols(); j++) {
+				assertEquals(m.get(i, j), d.get(i, j));
+			}
+		}
+
+		Mat w = Mat.rand(m.cols(), 3);
+		Mat expected = m.dot(w);
+		Mat actual = s.dot(w);
+		Mat gram = m.transp().dot(m);
+		Mat sgram = s.gram();
+		for (int i = 0; i < m.rows(); i++) {
+			for (int k = 0; k < 3; k++) {
+				assertEquals(expected.get(i, k), actual.get(i, k), 1e-4);
+			}
+		}
+		for (int a = 0; a < m.cols(); a++) {
+			for (int b = 0; b < m.cols(); b++) {
+				assertEquals(gram.get(a, b), sgram.get(a, b), 1e-4);
+			}
+		}
+	}
+
+	public void testEncoderFrozen() throws IOException {
+		Grid train = grid(new String[] { "3", "b", "1.5" }, new String[] { "", "a", "1.5" },
+				new String[] { "5", "", "2.5" });
+		GridEncoder enc = new GridEncoder(train, true);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		enc.write(new DataOutputStream(bytes));
+		GridEncoder copy = GridEncoder.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(enc.cols(), copy.cols());
+
+		// new data keeps the statistics of the training grid
+		String[][] rows = { { "100", "a", "0.5" }, { "", "c", "" }, { "4", "b" } };
+		Grid batch = grid(rows);
+		Mat expected = enc.encode(batch);
+		Mat actual = copy.encode(batch);
+
+		float[] out = new float[copy.cols()];
+		for (int i = 0; i < rows.length; i++) {
+			copy.encode(rows[i], out, 0);
+			for (int j = 0; j < copy.cols(); j++) {
+				assertEquals(expected.get(i, j), actual.get(i, j));
+				assertEquals(expected.get(i, j), out[j]);
+			}
+		}
+
+		float avg = (3f + 5f) / 2;
+		assertEquals((100f - avg) / (float) train.info().stdev(0), expected.get(0, 0), 1e-5f);
+
+		try {
+			GridEncoder.read(new DataInputStream(new ByteArrayInputStream(new byte[16])));
+			fail("Only fitted encoders can be read.");
+		} catch (IllegalDataException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.tinyml.structs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.tinyml.structs.HashingEncoder.Kind;
+
+import junit.framework.TestCase;
+
+public class HashingEncoderTest extends TestCase {
+
+	private static Grid grid(String[]... rows) {
+		Grid g = new Grid();
+		for (String[] row : rows) {
+			g.add(Arrays.asList(row));
+		}
+		return g;
+	}
+
+	public void testMurmur3() {
+		assertEquals(0, HashingEncoder.murmur3(new byte[0], 0));
+		assertEquals(0x248bfa47, HashingEncoder.murmur3("hello".getBytes(StandardCharsets.UTF_8), 0));
+		assertEquals(0x2e4ff723, HashingEncoder.murmur3(
+				"The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0));
+	}
+
+	public void testEncode() {
+		HashingEncoder enc = new HashingEncoder(16);
+
+		Grid a = grid(new String[] { "x", "2" }, new String[] { "y", "3" });
+		// the words get other codes in this grid
+		Grid b = grid(new String[] { "y", "4" }, new String[] { "", "5" }, new String[] { "x", "" });
+
+		Mat ma = enc.encode(a.selectCols(0, 1));
+		Mat mb = enc.encode(b.selectCols(0, 1));
+		assertEquals(16, ma.cols());
+
+		// the same word goes to the same column whatever the grid
+		for (int j = 0; j < 16; j++) {
+			assertEquals(ma.get(0, j), mb.get(2, j));
+			assertEquals(ma.get(1, j), mb.get(0, j));
+		}
+		assertEquals(0f, mb.row(1).sum());
+
+		// every row adds up its values, the words count for one
+		Mat full = enc.encode(b);
+		assertEquals(1f + 4f, full.row(0).sum());
+		assertEquals(5f, full.row(1).sum());
+		assertEquals(1f, full.row(2).sum());
+	}
+
+	public void testSparseAndSigned() {
+		HashingEncoder enc = new HashingEncoder(8, true, 42);
+
+		String[][] rows = new String[200][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = new String[] { "w" + (i % 37), "v" + (i % 11), Integer.toString(i), "z" };
+		}
+		Grid g = grid(rows);
+
+		Mat dense = enc.encode(g);
+		SparseMat sparse = enc.encodeSparse(g);
+		assertEquals(200, sparse.rows());
+		assertEquals(8, sparse.cols());
+		assertTrue(sparse.nnz() <= 200 * 4);
+
+		Mat back = sparse.toDense();
+		for (int i = 0; i < 200; i++) {
+			for (int j = 0; j < 8; j++) {
+				assertEquals(dense.get(i, j), back.get(i, j));
+			}
+		}
+
+		Mat part = enc.encode(g, 10, 12);
+		assertEquals(2, part.rows());
+		for (int j = 0; j < 8; j++) {
+			assertEquals(dense.get(10, j), part.get(0, j));
+			assertEquals(dense.get(11, j), part.get(1, j));
+		}
+
+		boolean negative = false;
+		for (int i = 0; i < 200 && negative == false; i++) {
+			for (int j = 0; j < 8; j++) {
+				negative |= dense.get(i, j) < 0f;
+			}
+		}
+		assertTrue(negative);
+	}
+
+	private static void assertSameRow(Mat expected, int i, Mat actual, int k) {
+		for (int j = 0; j < expected.cols(); j++) {
+			assertEquals(expected.get(i, j), actual.get(k, j));
+		}
+	}
+
+	public void testSameInEveryChunk() {
+		// a number is a number whether its chunk stores the column as words or as numbers
+		HashingEncoder enc = new HashingEncoder(32);
+		Grid words = grid(new String[] { "1.50" }, new String[] { "x" });
+		Grid numbers = grid(new String[] { "1.5" }, new String[] { "2" });
+		assertEquals(GridColumn.Type.CATEGORY, words.column(0).type());
+		assertEquals(GridColumn.Type.FLOAT, numbers.column(0).type());
+
+		Mat a = enc.encode(words);
+		Mat b = enc.encode(numbers);
+		assertSameRow(b, 0, a, 0);
+		assertEquals(1.5f, a.row(0).sum());
+		assertEquals(1f, a.row(1).sum());
+
+		// codes as words and a measure as numbers, with text in some chunks
+		HashingEncoder typed = new HashingEncoder(32, false, 0, new Kind[] { Kind.WORD, Kind.NUMBER });
+		Grid clean = grid(new String[] { "12345", "3" }, new String[] { "7", "4" });
+		Grid dirty = grid(new String[] { "12345", "3" }, new String[] { "A1", "n/a" });
+		Grid floats = grid(new String[] { "7", "2.5" }, new String[] { "0.5", "1" });
+		assertEquals(GridColumn.Type.INTEGER, clean.column(0).type());
+		assertEquals(GridColumn.Type.CATEGORY, dirty.column(0).type());
+		assertEquals(GridColumn.Type.FLOAT, floats.column(1).type());
+
+		Mat c = typed.encode(clean);
+		Mat d = typed.encode(dirty);
+		assertSameRow(c, 0, d, 0);
+		assertEquals(1f + 3f, c.row(0).sum());
+		// the word counts for one, the measure that is not a number is missing
+		assertEquals(1f, d.row(1).sum());
+		assertEquals(1f + 2.5f, typed.encode(floats).row(0).sum());
+		// 7 is the same word in an integer column and in a float one
+		assertEquals(GridColumn.Type.FLOAT, floats.column(0).type());
+		assertSameRow(typed.encode(clean.selectCols(0, 1)), 1, typed.encode(floats.selectCols(0, 1)), 0);
+
+		try {
+			new HashingEncoder(32, false, 0, new Kind[] { Kind.WORD }).encode(clean);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.tinyml.structs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class IvfPqIndexTest extends TestCase {
+
+	/**
+	 * Rows around 30 random centers.
+	 */
+	private static float[] rows(int m, int n, long seed) {
+		Random rnd = new Random(seed);
+		float[] centers = new float[30 * n];
+		for (int i = 0; i < centers.length; i++) {
+			centers[i] = (float) rnd.nextGaussian() * 4f;
+		}
+		float[] vals = new float[m * n];
+		for (int i = 0; i < m; i++) {
+			int c = rnd.nextInt(30);
+			for (int f = 0; f < n; f++) {
+				vals[i * n + f] = centers[c * n + f] + (float) rnd.nextGaussian();
+			}
+		}
+		return vals;
+	}
+
+	/**
+	 * The k nearest rows of the query by brute force.
+	 */
+	private static int[] exact(float[] x, int m, int n, float[] q, int k) {
+		TopK top = new TopK(k);
+		for (int i = 0; i < m; i++) {
+			float d = 0f;
+			for (int f = 0; f < n; f++) {
+				float diff = x[i * n + f] - q[f];
+				d += diff * diff;
+			}
+			top.offer(d, i);
+		}
+		int[] ids = new int[k];
+		top.drain(ids, new float[k], 0);
+		return ids;
+	}
+
+	private static double recall(IvfPqIndex idx, float[] x, int m, int n, Mat queries, int k, int probes) {
+		Neighbors nb = idx.query(queries, k, probes);
+		float[] qs = queries.toFloatArray();
+		int hits = 0;
+		for (int q = 0; q < queries.rows(); q++) {
+			float[] row = new float[n];
+			System.arraycopy(qs, q * n, row, 0, n);
+			int[] truth = exact(x, m, n, row, k);
+			for (int r = 0; r < k; r++) {
+				for (int t : truth) {
+					if (nb.id(q, r) == t) {
+						hits++;
+					}
+				}
+			}
+		}
+		return hits / (double) (queries.rows() * k);
+	}
+
+	public void testTopK() {
+		TopK top = new TopK(3);
+		float[] d = { 5f, 1f, 4f, 2f, 3f, 0.5f };
+		for (int i = 0; i < d.length; i++) {
+			top.offer(d[i], i);
+		}
+		assertEquals(2f, top.bound());
+
+		int[] ids = new int[4];
+		float[] dist = new float[4];
+		top.drain(ids, dist, 0);
+		assertEquals(0, top.size());
+		assertEquals(5, ids[0]);
+		assertEquals(1, ids[1]);
+		assertEquals(3, ids[2]);
+		assertEquals(2f, dist[2]);
+
+		TopK big = new TopK(5);
+		big.offer(1f, 7);
+		ids = new int[5];
+		dist = new float[5];
+		big.drain(ids, dist, 0);
+		assertEquals(7, ids[0]);
+		assertEquals(-1, ids[1]);
+		assertEquals(Float.POSITIVE_INFINITY, dist[3]);
+	}
+
+	public void testRecall() {
+		int m = 6000;
+		int n = 16;
+		float[] x = rows(m, n, 1);
+		IvfPqIndex idx = IvfPqIndex.build(new Mat(m, n, x), IvfPqIndex.Metric.L2, 40, 8, 3);
+		assertEquals(m, idx.rows());
+
+		Mat queries = new Mat(50, n, rows(50, n, 2));
+		double all = recall(idx, x, m, n, queries, 10, 40);
+		double one = recall(idx, x, m, n, queries, 10, 1);
+		assertTrue("recall " + all, all > 0.8);
+		assertTrue(one <= all);
+
+		// a row of the index finds itself
+		int self = 0;
+		Neighbors nb = idx.query(new Mat(m, n, x).selectRows(0, 100), 1, 4);
+		for (int q = 0; q < 100; q++) {
+			if (nb.id(q, 0) == q) {
+				self++;
+			}
+		}
+		assertTrue("self " + self, self > 80);
+	}
+
+	public void testCosineAndSnapshot() throws IOException {
+		int m = 2000;
+		int n = 8;
+		float[] x = rows(m, n, 4);
+		Mat a = new Mat(m, n, x);
+		IvfPqIndex idx = IvfPqIndex.build(a, IvfPqIndex.Metric.COSINE, 10, 4, 5);
+
+		// a scaled row has the same direction
+		Vec q = a.row(17).scale(3f);
+		Neighbors nb = idx.query(q, 5, 10);
+		assertEquals(1, nb.queries());
+		assertEquals(17, nb.id(0, 0));
+		assertEquals(0f, nb.distance(0, 0), 0.02f);
+		for (int r = 1; r < 5; r++) {
+			assertTrue(nb.distance(0, r) >= nb.distance(0, r - 1));
+		}
+
+		File f = File.createTempFile("tinyml", ".ivf");
+		try {
+			Snapshot.write(idx, f);
+			IvfPqIndex s = Snapshot.index(f);
+			assertEquals(IvfPqIndex.Metric.COSINE, s.metric());
+			assertEquals(4, s.subspaces());
+
+			Mat queries = a.selectRows(100, 140);
+			Neighbors expected = idx.query(queries, 7, 3);
+			Neighbors got = s.query(queries, 7, 3);
+			for (int i = 0; i < 40; i++) {
+				for (int r = 0; r < 7; r++) {
+					assertEquals(expected.id(i, r), got.id(i, r));
+					assertEquals(expected.distance(i, r), got.distance(i, r));
+				}
+			}
+		} finally {
+			f.delete();
+		}
+
+		try {
+			idx.query(q, 0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
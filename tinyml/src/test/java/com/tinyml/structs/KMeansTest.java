@@ -0,0 +1,146 @@
+package com.tinyml.structs;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class KMeansTest extends TestCase {
+
+	/**
+	 * Rows around k centers far apart, the row i around center i % k.
+	 */
+	private static float[] blobs(int m, int n, int k, float[] centers, long seed) {
+		Random rnd = new Random(seed);
+		for (int i = 0; i < centers.length; i++) {
+			centers[i] = (float) rnd.nextGaussian() * 20f;
+		}
+
+		float[] vals = new float[m * n];
+		for (int i = 0; i < m; i++) {
+			for (int f = 0; f < n; f++) {
+				vals[i * n + f] = centers[(i % k) * n + f] + (float) rnd.nextGaussian();
+			}
+		}
+		return vals;
+	}
+
+	private static int nearest(float[] x, int i, float[] c, int k, int n) {
+		int best = -1;
+		double min = Double.POSITIVE_INFINITY;
+		for (int j = 0; j < k; j++) {
+			double d = 0.0;
+			for (int f = 0; f < n; f++) {
+				double diff = x[i * n + f] - c[j * n + f];
+				d += diff * diff;
+			}
+			if (d < min) {
+				min = d;
+				best = j;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Checks that the rows of each true cluster share a label, different from
+	 * the labels of the other clusters.
+	 */
+	private static void assertClusters(int[] labels, int k) {
+		int[] of = new int[k];
+		for (int t = 0; t < k; t++) {
+			of[t] = labels[t];
+			for (int s = 0; s < t; s++) {
+				assertTrue(of[s] != of[t]);
+			}
+		}
+		for (int i = 0; i < labels.length; i++) {
+			assertEquals(of[i % k], labels[i]);
+		}
+	}
+
+	public void testLloyd() {
+		int m = 3000;
+		int n = 6;
+		int k = 5;
+		float[] centers = new float[k * n];
+		float[] x = blobs(m, n, k, centers, 1);
+
+		KMeans km = KMeans.fit(new Mat(m, n, x), k, 50, 3);
+		int[] labels = km.labels();
+		assertClusters(labels, k);
+		assertTrue(km.iterations() < 50);
+
+		// converged: every row is at its nearest centroid, the mean of its rows
+		float[] c = km.centroids().toFloatArray();
+		double inertia = 0.0;
+		for (int i = 0; i < m; i++) {
+			assertEquals(nearest(x, i, c, k, n), labels[i]);
+			for (int f = 0; f < n; f++) {
+				double diff = x[i * n + f] - c[labels[i] * n + f];
+				inertia += diff * diff;
+			}
+		}
+		assertEquals(inertia, km.inertia(), 1e-4 * inertia);
+		assertEquals(m * n, inertia, 0.1 * m * n);
+
+		for (int t = 0; t < k; t++) {
+			for (int f = 0; f < n; f++) {
+				assertEquals(centers[t * n + f], c[labels[t] * n + f], 0.2f);
+			}
+		}
+	}
+
+	public void testPrunedMatchesNearest() {
+		// overlapping clusters, over several row ranges, take many iterations
+		int m = 70000;
+		int n = 3;
+		int k = 40;
+		Random rnd = new Random(5);
+		float[] x = new float[m * n];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = (float) rnd.nextGaussian();
+		}
+
+		KMeans km = KMeans.fit(new Mat(m, n, x), k, 300, 1);
+		int[] labels = km.labels();
+		float[] c = km.centroids().toFloatArray();
+		int wrong = 0;
+		for (int i = 0; i < m; i++) {
+			if (nearest(x, i, c, k, n) != labels[i]) {
+				wrong++;
+			}
+		}
+		// rounding can only flip rows that are as near to two centroids
+		assertTrue("wrong " + wrong, wrong < 10);
+	}
+
+	public void testMiniBatchAndPredict() {
+		int m = 4000;
+		int n = 4;
+		int k = 3;
+		float[] centers = new float[k * n];
+		Mat x = new Mat(m, n, blobs(m, n, k, centers, 2));
+
+		KMeans km = KMeans.fitMiniBatch(x, k, 256, 50, 9);
+		assertEquals(50, km.iterations());
+		int[] labels = km.labels();
+		assertClusters(labels, k);
+		assertEquals(m * n, km.inertia(), 0.15 * m * n);
+
+		int[] predicted = km.predict(x.selectRows(0, 10));
+		for (int i = 0; i < predicted.length; i++) {
+			assertEquals(labels[i], predicted[i]);
+		}
+
+		KMeans one = KMeans.fit(x, 1);
+		assertEquals(1, one.iterations());
+		assertEquals(x.colMean().get(2), one.centroids().toFloatArray()[2], 1e-4f);
+
+		try {
+			KMeans.fit(x, m + 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.tinyml.structs;
+
+import java.util.Random;
+
+import com.tinyml.structs.IvfPqIndex.Metric;
+
+import junit.framework.TestCase;
+
+public class KNearestTest extends TestCase {
+
+	private static float[] gaussian(int len, Random rnd) {
+		float[] vals = new float[len];
+		for (int i = 0; i < vals.length; i++) {
+			vals[i] = (float) rnd.nextGaussian();
+		}
+		return vals;
+	}
+
+	/**
+	 * Distance of row i of x to row q of the queries, computed directly.
+	 */
+	private static double distance(float[] x, int i, float[] qs, int q, int n, Metric metric) {
+		double d = 0.0;
+		double xx = 0.0;
+		double qq = 0.0;
+		double xq = 0.0;
+		for (int f = 0; f < n; f++) {
+			double a = x[i * n + f];
+			double b = qs[q * n + f];
+			d += (a - b) * (a - b);
+			xx += a * a;
+			qq += b * b;
+			xq += a * b;
+		}
+		return (metric == Metric.L2) ? d : 1.0 - xq / Math.sqrt(xx * qq);
+	}
+
+	private static void check(int m, int nq, int n, int k, Metric metric, int queryBlock, int rowBlock) {
+		Random rnd = new Random(m + nq + k);
+		float[] x = gaussian(m * n, rnd);
+		float[] qs = gaussian(nq * n, rnd);
+		Neighbors nb = KNearest.search(new Mat(m, n, x), new Mat(nq, n, qs), k, metric, queryBlock, rowBlock);
+
+		assertEquals(nq, nb.queries());
+		assertEquals(k, nb.k());
+		for (int q = 0; q < nq; q++) {
+			// the rows sorted by their true distance, by selection
+			boolean[] taken = new boolean[m];
+			for (int r = 0; r < Math.min(k, m); r++) {
+				int best = -1;
+				for (int i = 0; i < m; i++) {
+					if (taken[i] == false && (best < 0
+							|| distance(x, i, qs, q, n, metric) < distance(x, best, qs, q, n, metric))) {
+						best = i;
+					}
+				}
+				taken[best] = true;
+				assertEquals(best, nb.id(q, r));
+				assertEquals(distance(x, best, qs, q, n, metric), nb.distance(q, r), 1e-3);
+			}
+			for (int r = m; r < k; r++) {
+				assertEquals(-1, nb.id(q, r));
+				assertEquals(Float.POSITIVE_INFINITY, nb.distance(q, r));
+			}
+		}
+	}
+
+	public void testTiles() {
+		// tiles that do not divide the queries or the rows
+		check(200, 45, 6, 5, Metric.L2, 8, 13);
+		check(200, 3, 6, 1, Metric.L2, 8, 13);
+		check(150, 20, 5, 4, Metric.COSINE, 7, 32);
+	}
+
+	public void testDefaultBlocks() {
+		check(1500, 300, 8, 10, Metric.L2, KNearest.QUERY_BLOCK, KNearest.ROW_BLOCK);
+	}
+
+	public void testFewerRowsThanK() {
+		check(3, 4, 2, 5, Metric.L2, 2, 2);
+	}
+
+	public void testInvalid() {
+		try {
+			KNearest.search(new Mat(4, 3), new Mat(2, 2), 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			KNearest.search(new Mat(4, 3), new Mat(2, 3), 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
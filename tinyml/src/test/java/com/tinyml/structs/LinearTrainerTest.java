@@ -0,0 +1,205 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.tinyml.structs.LinearModel.Loss;
+import com.tinyml.structs.LinearTrainer.Optimizer;
+
+import junit.framework.TestCase;
+
+public class LinearTrainerTest extends TestCase {
+
+	private static final float[] TRUE_WEIGHTS = { 2f, -1f, 0.5f, 0f, 3f };
+
+	private static float[] gaussian(int len, Random rnd) {
+		float[] vals = new float[len];
+		for (int i = 0; i < vals.length; i++) {
+			vals[i] = (float) rnd.nextGaussian();
+		}
+		return vals;
+	}
+
+	/**
+	 * Scores x.w + 1 of the true weights, or labels drawn with their
+	 * probability for logistic regression.
+	 */
+	private static float[] labels(float[] x, int m, Loss loss, Random rnd) {
+		int n = TRUE_WEIGHTS.length;
+		float[] y = new float[m];
+		for (int i = 0; i < m; i++) {
+			float z = 1f;
+			for (int j = 0; j < n; j++) {
+				z += TRUE_WEIGHTS[j] * x[i * n + j];
+			}
+			if (loss == Loss.LOGISTIC) {
+				y[i] = (rnd.nextFloat() < LinearModel.sigmoid(3f * z)) ? 1f : 0f;
+			} else {
+				y[i] = z;
+			}
+		}
+		return y;
+	}
+
+	public void testLinearSgd() {
+		Random rnd = new Random(1);
+		int m = 4000;
+		float[] x = gaussian(m * TRUE_WEIGHTS.length, rnd);
+		float[] y = labels(x, m, Loss.SQUARED, rnd);
+
+		LinearModel model = new LinearTrainer(Loss.SQUARED, Optimizer.SGD).learningRate(0.05f).epochs(20)
+				.fit(new Mat(m, TRUE_WEIGHTS.length, x), new Vec(y));
+
+		float[] w = model.weights().toArray();
+		for (int j = 0; j < w.length; j++) {
+			assertEquals(TRUE_WEIGHTS[j], w[j], 0.01f);
+		}
+		assertEquals(1f, model.bias(), 0.01f);
+		assertEquals(20, model.epochs());
+		assertTrue(model.loss(19) < model.loss(0));
+		assertTrue(model.loss(19) < 1e-4);
+		assertTrue(model.seconds(0) >= 0.0);
+
+		Mat head = new Mat(m, TRUE_WEIGHTS.length, x).selectRows(0, 10);
+		float[] p = model.predict(head).toArray();
+		float[] row = new float[1];
+		AffineScorer s = model.scorer();
+		for (int i = 0; i < 10; i++) {
+			assertEquals(y[i], p[i], 0.05f);
+			s.score(x, i * TRUE_WEIGHTS.length, row, 0);
+			assertEquals(p[i], row[0], 1e-4f);
+		}
+	}
+
+	public void testLogisticAdam() {
+		Random rnd = new Random(2);
+		int m = 6000;
+		float[] x = gaussian(m * TRUE_WEIGHTS.length, rnd);
+		float[] y = labels(x, m, Loss.LOGISTIC, rnd);
+
+		Mat xm = new Mat(m, TRUE_WEIGHTS.length, x);
+		LinearModel model = new LinearTrainer(Loss.LOGISTIC, Optimizer.ADAM).learningRate(0.05f).epochs(10).fit(xm,
+				new Vec(y));
+
+		// the labels were drawn with sigmoid(3 z), so the weights are in proportion to the true ones
+		float[] w = model.weights().toArray();
+		for (int j = 0; j < w.length; j++) {
+			assertEquals(TRUE_WEIGHTS[j] / TRUE_WEIGHTS[0], w[j] / w[0], 0.1f);
+		}
+		assertEquals(1f / TRUE_WEIGHTS[0], model.bias() / w[0], 0.1f);
+
+		float[] p = model.predict(xm).toArray();
+		int right = 0;
+		for (int i = 0; i < m; i++) {
+			assertTrue(p[i] >= 0f && p[i] <= 1f);
+			if ((p[i] > 0.5f) == (y[i] > 0.5f)) {
+				right++;
+			}
+		}
+		assertTrue(right > 0.9 * m);
+	}
+
+	public void testL1AndL2() {
+		Random rnd = new Random(3);
+		int m = 4000;
+		float[] x = gaussian(m * TRUE_WEIGHTS.length, rnd);
+		float[] y = labels(x, m, Loss.SQUARED, rnd);
+		Mat xm = new Mat(m, TRUE_WEIGHTS.length, x);
+
+		// the weight of 0 and the smallest ones are cut to exactly 0
+		float[] sparse = new LinearTrainer(Loss.SQUARED, Optimizer.SGD).learningRate(0.05f).l1(1f).epochs(5)
+				.fit(xm, new Vec(y)).weights().toArray();
+		assertEquals(0f, sparse[3]);
+		assertEquals(0f, sparse[2]);
+		assertTrue(sparse[4] > 1f);
+
+		float[] shrunk = new LinearTrainer(Loss.SQUARED, Optimizer.SGD).learningRate(0.05f).l2(1f).epochs(5)
+				.fit(xm, new Vec(y)).weights().toArray();
+		for (int j = 0; j < shrunk.length; j++) {
+			// the L2 minimum is w / (1 + l2) for standard columns
+			assertEquals(TRUE_WEIGHTS[j] / 2f, shrunk[j], 0.1f);
+		}
+	}
+
+	public void testHogwild() {
+		Random rnd = new Random(4);
+		int m = 20000;
+		float[] x = gaussian(m * TRUE_WEIGHTS.length, rnd);
+		float[] y = labels(x, m, Loss.SQUARED, rnd);
+
+		LinearModel model = new LinearTrainer(Loss.SQUARED, Optimizer.SGD).learningRate(0.05f).threads(4).epochs(5)
+				.fit(new Mat(m, TRUE_WEIGHTS.length, x), new Vec(y));
+		float[] w = model.weights().toArray();
+		for (int j = 0; j < w.length; j++) {
+			assertEquals(TRUE_WEIGHTS[j], w[j], 0.05f);
+		}
+		assertEquals(5, model.epochs());
+	}
+
+	public void testHogwildAdam() {
+		Random rnd = new Random(5);
+		int m = 20000;
+		float[] x = gaussian(m * TRUE_WEIGHTS.length, rnd);
+		float[] y = labels(x, m, Loss.SQUARED, rnd);
+		Mat xm = new Mat(m, TRUE_WEIGHTS.length, x);
+
+		// one epoch, while the bias correction of the shared moments still matters
+		LinearTrainer t = new LinearTrainer(Loss.SQUARED, Optimizer.ADAM).learningRate(0.02f).epochs(1);
+		LinearModel one = t.fit(xm, new Vec(y));
+		LinearModel four = t.threads(4).fit(xm, new Vec(y));
+		float[] w1 = one.weights().toArray();
+		float[] w4 = four.weights().toArray();
+		for (int j = 0; j < w1.length; j++) {
+			assertEquals(TRUE_WEIGHTS[j], w1[j], 0.1f);
+			assertEquals(w1[j], w4[j], 0.02f);
+		}
+		assertEquals(one.bias(), four.bias(), 0.02f);
+	}
+
+	public void testGrid() {
+		// a numeric column, and a category worth 2 for "b"
+		Random rnd = new Random(5);
+		int m = 3000;
+		Grid g = new Grid();
+		float[] y = new float[m];
+		String[] words = { "a", "b", "c" };
+		for (int i = 0; i < m; i++) {
+			float v = (float) rnd.nextGaussian();
+			int k = rnd.nextInt(3);
+			g.add(Arrays.asList(Float.toString(v), words[k]));
+			y[i] = 1.5f * v + (k == 1 ? 2f : 0f);
+		}
+		GridEncoder enc = new GridEncoder(g, false);
+
+		for (int threads = 1; threads <= 2; threads++) {
+			LinearModel model = new LinearTrainer(Loss.SQUARED, Optimizer.ADAM).learningRate(0.05f).epochs(30)
+					.batchSize(32).threads(threads).fit(g, enc, new Vec(y));
+			float[] p = model.predict(enc.encode(g)).toArray();
+			for (int i = 0; i < m; i++) {
+				assertEquals(y[i], p[i], 0.1f);
+			}
+		}
+	}
+
+	public void testInvalid() {
+		LinearTrainer t = new LinearTrainer(Loss.LOGISTIC, Optimizer.SGD);
+		try {
+			t.fit(new Mat(3, 2), new Vec(new float[] { 0f, 1f }));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			t.fit(new Mat(2, 2), new Vec(new float[] { 0f, 2f }));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			t.batchSize(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
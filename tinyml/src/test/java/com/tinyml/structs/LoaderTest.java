@@ -0,0 +1,172 @@
+package com.tinyml.structs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+public class LoaderTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException {
+		file = File.createTempFile("tinyml", ".csv");
+	}
+
+	@Override
+	protected void tearDown() {
+		file.delete();
+	}
+
+	private void write(String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Grid read(char delimiter, int bufferSize) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Grid g = new Grid();
+			new CsvReader(delimiter, bufferSize).read(ch, 0, ch.size(), g);
+			return g;
+		}
+	}
+
+	public void testTrimAndNulls() throws IOException {
+		write("1, a ,2.5\n2,,  \n\n 3 ,b,x\r\n");
+
+		Grid g = Loader.csv(file);
+
+		assertEquals(3, g.rows());
+		assertEquals(3, g.cols());
+		assertEquals("1", g.get(0, 0));
+		assertEquals("a", g.get(0, 1));
+		assertNull(g.get(1, 1));
+		assertNull(g.get(1, 2));
+		assertEquals("3", g.get(2, 0));
+		assertEquals("x", g.get(2, 2));
+		assertEquals(GridColumn.Type.INTEGER, g.column(0).type());
+	}
+
+	public void testQuotes() throws IOException {
+		write("\"a,b\",\"say \"\"hi\"\"\"\n  \"two\nlines\" , \"\"\n");
+
+		Grid g = Loader.csv(file);
+
+		assertEquals(2, g.rows());
+		assertEquals("a,b", g.get(0, 0));
+		assertEquals("say \"hi\"", g.get(0, 1));
+		assertEquals("two\nlines", g.get(1, 0));
+		assertNull(g.get(1, 1));
+	}
+
+	public void testDelimiter() throws IOException {
+		write("1;a,b\n2;c\n");
+
+		Grid g = Loader.csv(file, ';');
+
+		assertEquals(2, g.cols());
+		assertEquals("a,b", g.get(0, 1));
+	}
+
+	public void testSmallBuffer() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append(i).append(",\"word ").append(i % 7).append("\",").append(i * 0.5f).append('\n');
+		}
+		sb.append("100,last,1.0");
+		write(sb.toString());
+
+		Grid g = read(',', 4);
+
+		assertEquals(101, g.rows());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Integer.toString(i), g.get(i, 0));
+			assertEquals("word " + (i % 7), g.get(i, 1));
+			assertEquals(Float.toString(i * 0.5f), g.get(i, 2));
+		}
+		assertEquals("last", g.get(100, 1));
+	}
+
+	public void testParallelKeepsOrder() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 80000; i++) {
+			sb.append(i).append(',');
+			if (i % 5 == 0) {
+				sb.append("\"multi\nline, ").append(i % 11).append('"');
+			} else {
+				sb.append("word").append(i % 13);
+			}
+			sb.append(',').append((i % 1000 == 999) ? "0.5" : Integer.toString(i % 3)).append('\n');
+		}
+		write(sb.toString());
+		// large enough for the parallel path
+		assertTrue(file.length() > Loader.MIN_PARALLEL_BYTES);
+
+		Grid seq = Loader.csv(file, ',');
+		Grid par = Loader.csv(file, ',', 4);
+
+		assertEquals(80000, par.rows());
+		assertEquals(seq.cols(), par.cols());
+		for (int j = 0; j < seq.cols(); j++) {
+			assertEquals(seq.column(j).type(), par.column(j).type());
+			for (int i = 0; i < seq.rows(); i++) {
+				assertEquals(seq.get(i, j), par.get(i, j));
+			}
+		}
+	}
+
+	public void testRangesInsideQuotes() throws IOException {
+		// long quoted fields with line breaks that look like records, so most range
+		// boundaries fall inside quotes
+		StringBuilder sb = new StringBuilder();
+		List<Integer> starts = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			starts.add(sb.length());
+			sb.append(i).append(",\"");
+			for (int k = 0; k < 5; k++) {
+				sb.append("filler ").append(i).append('\n').append(k).append(",x,").append(i);
+			}
+			sb.append("\"\n");
+		}
+		String content = sb.toString();
+		write(content);
+
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			for (int parts = 2; parts <= 16; parts++) {
+				long[] offsets = CsvReader.split(ch, parts, ForkJoinPool.commonPool());
+				assertEquals(content.length(), offsets[offsets.length - 1]);
+				for (int k = 0; k + 1 < offsets.length; k++) {
+					assertTrue(starts.contains((int) offsets[k]));
+				}
+			}
+		}
+
+		Grid seq = Loader.csv(file, ',');
+		Grid par = Loader.csv(file, ',', 4, 0, 1);
+		assertEquals(20, par.rows());
+		assertEquals(2, par.cols());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.toString(i), par.get(i, 0));
+			assertEquals(seq.get(i, 1), par.get(i, 1));
+			assertTrue(par.get(i, 1).contains("\n4,x," + i));
+		}
+	}
+
+	public void testUnterminatedQuote() throws IOException {
+		write("1,\"abc\n");
+
+		try {
+			Loader.csv(file);
+			fail();
+		} catch (IllegalDataException e) {
+			// expected
+		}
+	}
+}
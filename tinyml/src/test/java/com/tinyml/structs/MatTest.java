@@ -0,0 +1,163 @@
+package com.tinyml.structs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class MatTest extends TestCase {
+
+	private static float[] values(int len) {
+		float[] ans = new float[len];
+		for (int i = 0; i < len; i++) {
+			ans[i] = i * 0.5f - 3;
+		}
+		return ans;
+	}
+
+	public void testArrays() {
+		float[] vals = values(12);
+		Mat a = new Mat(3, 4, vals);
+
+		assertEquals(vals[6], a.get(1, 2));
+		assertTrue(Arrays.equals(vals, a.toFloatArray()));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(vals, 8, 12), a.toArray()[2]));
+
+		double[] dvals = new double[12];
+		for (int i = 0; i < dvals.length; i++) {
+			dvals[i] = vals[i];
+		}
+		assertTrue(Arrays.equals(vals, new Mat(3, 4, dvals).toFloatArray()));
+
+		// views are copied in their own row-major order
+		Mat t = a.transp();
+		assertEquals(a.get(2, 1), t.toArray()[1][2]);
+		assertEquals(a.get(0, 3), t.toFloatArray()[9]);
+
+		Vec v = new Vec(vals);
+		assertTrue(Arrays.equals(vals, v.toArray()));
+		assertTrue(Arrays.equals(new float[] { vals[1], vals[5], vals[9] }, a.col(1).toArray()));
+	}
+
+	public void testBuffers() {
+		float[] vals = values(6);
+
+		FloatBuffer src = FloatBuffer.wrap(values(8));
+		src.position(2);
+		Mat a = new Mat(2, 3, src);
+		assertEquals(2, src.position());
+		assertEquals(values(8)[3], a.get(0, 1));
+
+		FloatBuffer dst = FloatBuffer.allocate(7);
+		dst.put(0f);
+		a.get(dst);
+		assertEquals(7, dst.position());
+		assertEquals(a.get(1, 2), dst.get(6));
+
+		Vec v = new Vec(FloatBuffer.wrap(vals));
+		assertEquals(6, v.length());
+		assertEquals(vals[5], v.buffer().asFloatBuffer().get(5));
+	}
+
+	public void testWrap() {
+		ByteBuffer direct = ByteBuffer.allocateDirect(6 * 4).order(ByteOrder.nativeOrder());
+		direct.asFloatBuffer().put(values(6));
+
+		Mat a = Mat.wrap(direct, 2, 3);
+		assertEquals(values(6)[4], a.get(1, 1));
+
+		// the same memory
+		direct.putFloat(4 * 4, 42f);
+		assertEquals(42f, a.get(1, 1));
+		a.set(0, 0, 7f);
+		assertEquals(7f, direct.getFloat(0));
+		assertEquals(7f, a.buffer().getFloat(0));
+
+		Vec v = Vec.wrap(direct, 6);
+		assertEquals(42f, v.get(4));
+
+		// other buffers are copied
+		ByteBuffer heap = ByteBuffer.allocate(6 * 4).order(ByteOrder.BIG_ENDIAN);
+		heap.asFloatBuffer().put(values(6));
+		Mat b = Mat.wrap(heap, 3, 2);
+		heap.putFloat(0, 42f);
+		assertEquals(values(6)[0], b.get(0, 0));
+		assertEquals(values(6)[5], b.get(2, 1));
+	}
+
+	private static void assertSame(Mat expected, Mat actual) {
+		assertTrue(Arrays.equals(expected.toFloatArray(), actual.toFloatArray()));
+	}
+
+	public void testInPlace() {
+		Mat a = new Mat(3, 4, values(12));
+		Mat b = new Mat(3, 4, values(12)).mult(0.25f).add(1f);
+
+		assertSame(a.add(b), a.clone().addi(b));
+		assertSame(a.mult(b), a.clone().multi(b));
+		assertSame(a.mult(3f), a.clone().multi(3f));
+		assertSame(a.pow(2f), a.clone().powi(2f));
+		assertSame(a.pow(2f), a.pow(2f, new Mat(3, 4)));
+		assertSame(a.stdScale(), a.clone().stdScalei());
+
+		Mat d = a.clone().subi(b);
+		assertEquals(a.get(1, 2) - b.get(1, 2), d.get(1, 2));
+		assertSame(d, a.sub(b));
+
+		// the output can be an operand
+		Mat out = b.clone();
+		a.add(out, out);
+		assertSame(a.add(b), out);
+
+		try {
+			a.add(b, new Mat(4, 3));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testInto() {
+		Mat x = new Mat(3, 4, values(12));
+		Mat w = new Mat(4, 2, values(8));
+		Vec bias = new Vec(new float[] { 1, -1 });
+
+		Mat out = new Mat(3, 2);
+		assertSame(x.dot(w), x.dot(w, out));
+		assertSame(x.affine(w, bias), x.affine(w, bias, out));
+
+		Vec v = new Vec(new float[] { 1, 2, 3, 4 });
+		Vec y = x.dot(v, new Vec(3));
+		assertEquals(3, y.length());
+		assertEquals(x.row(2).dot(v), y.get(2), 1e-4f);
+		assertEquals(3, x.dot(v).length());
+
+		assertTrue(Arrays.equals(x.colSum().toArray(), x.colSum(new Vec(4)).toArray()));
+		assertTrue(Arrays.equals(x.colMean().toArray(), x.colMean(new Vec(4)).toArray()));
+		assertTrue(Arrays.equals(x.rowSum().toArray(), x.rowSum(new Vec(3)).toArray()));
+
+		Vec a = new Vec(values(5));
+		Vec b = new Vec(values(5)).scale(2f);
+		assertTrue(Arrays.equals(a.add(b).toArray(), a.add(b, new Vec(5)).toArray()));
+		assertTrue(Arrays.equals(a.sub(b).toArray(), new Vec(values(5)).subi(b).toArray()));
+		assertTrue(Arrays.equals(a.scale(3f).toArray(), a.scale(3f, new Vec(5)).toArray()));
+		assertTrue(Arrays.equals(b.toArray(), new Vec(5).assign(a).scalei(2f).toArray()));
+	}
+
+	public void testTemporaries() {
+		// the memory of a product is read after its last use, while collections free the ones before it
+		Mat x = new Mat(64, 32, values(64 * 32));
+		Mat w = new Mat(32, 16, values(32 * 16));
+		float[] expected = x.dot(w).toFloatArray();
+		float[] sums = x.dot(w).rowSum().toArray();
+		for (int i = 0; i < 2000; i++) {
+			if (i % 50 == 0) {
+				System.gc();
+			}
+			assertTrue(Arrays.equals(expected, x.dot(w).toFloatArray()));
+			assertTrue(Arrays.equals(sums, x.dot(w).rowSum().toArray()));
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.tinyml.structs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PcaTest extends TestCase {
+
+	/**
+	 * Rows spread mostly along the first column, then the second.
+	 */
+	private static Mat rows(int m, long seed) {
+		Random rnd = new Random(seed);
+		float[] vals = new float[m * 4];
+		for (int i = 0; i < m; i++) {
+			double a = rnd.nextGaussian() * 10;
+			double b = rnd.nextGaussian() * 3;
+			vals[i * 4] = (float) (100 + a);
+			vals[i * 4 + 1] = (float) (a * 0.1 + b);
+			vals[i * 4 + 2] = (float) (rnd.nextGaussian() * 0.5);
+			vals[i * 4 + 3] = (float) (-5 + rnd.nextGaussian() * 0.1);
+		}
+		return new Mat(m, 4, vals);
+	}
+
+	public void testComponents() {
+		Mat x = rows(3000, 1);
+		Pca pca = new Pca(4);
+		pca.add(x);
+		pca.fit();
+
+		Mat cov = x.cov();
+		Vec values = pca.eigenvalues();
+		Mat vectors = pca.eigenvectors();
+
+		for (int k = 0; k < 4; k++) {
+			if (k > 0) {
+				assertTrue(values.get(k - 1) >= values.get(k));
+			}
+			// cov v = lambda v
+			Vec v = vectors.col(k);
+			Vec cv = cov.dot(v);
+			for (int i = 0; i < 4; i++) {
+				assertEquals(values.get(k) * v.get(i), cv.get(i), 1e-3 * Math.max(1.0, values.get(0)));
+			}
+			assertEquals(1.0, v.norml2(), 1e-4);
+		}
+
+		Vec ratios = pca.explainedVarianceRatio();
+		assertEquals(1.0, ratios.sum(), 1e-5);
+		assertTrue(ratios.get(0) > 0.9);
+	}
+
+	public void testBatchesAndTransform() {
+		Mat x = rows(2000, 2);
+
+		Pca whole = new Pca(4);
+		whole.add(x);
+		whole.fit();
+
+		Pca a = new Pca(4);
+		a.add(x.selectRows(0, 700));
+		Pca b = new Pca(4);
+		b.add(x.selectRows(700, 1500));
+		b.add(x.selectRows(1500, 2000));
+		a.merge(b);
+		a.fit();
+
+		assertEquals(2000, a.count());
+		for (int k = 0; k < 4; k++) {
+			assertEquals(whole.eigenvalues().get(k), a.eigenvalues().get(k), 1e-3 * whole.eigenvalues().get(0));
+		}
+
+		// the projection of the centered rows, one batch at a time
+		float[] mean = whole.mean().toArray();
+		float[] centered = x.toFloatArray();
+		for (int i = 0; i < centered.length; i++) {
+			centered[i] -= mean[i % 4];
+		}
+		Mat expected = new Mat(2000, 4, centered).dot(whole.eigenvectors().selectCols(0, 2));
+
+		Mat out = new Mat(500, 2);
+		for (int at = 0; at < 2000; at += 500) {
+			whole.transform(x.selectRows(at, at + 500), 2, out);
+			for (int i = 0; i < 500; i++) {
+				for (int k = 0; k < 2; k++) {
+					assertEquals(expected.get(at + i, k), out.get(i, k), 1e-3);
+				}
+			}
+		}
+	}
+
+	public void testCsvChunks() throws IOException {
+		File f = File.createTempFile("pca", ".csv");
+		f.deleteOnExit();
+
+		Random rnd = new Random(3);
+		String[] words = { "red", "green", "blue" };
+		try (PrintWriter w = new PrintWriter(f, "UTF-8")) {
+			for (int i = 0; i < 5000; i++) {
+				// the last word only shows up near the end of the file
+				String word = i > 4900 ? "black" : words[rnd.nextInt(3)];
+				w.println(rnd.nextInt(50) + "," + (rnd.nextGaussian() * 2) + "," + word);
+			}
+		}
+
+		Grid g = Loader.csv(f);
+		GridEncoder whole = new GridEncoder(g, true);
+
+		Iterable<Grid> chunks = Loader.csvChunks(f, ',', 16 * 1024);
+		int count = 0;
+		int rows = 0;
+		for (Grid chunk : chunks) {
+			count++;
+			rows += chunk.rows();
+		}
+		assertTrue(count > 1);
+		assertEquals(5000, rows);
+
+		GridEncoder enc = GridEncoder.fit(chunks, true);
+		assertEquals(whole.cols(), enc.cols());
+		assertEquals(6, enc.cols());
+
+		Pca expected = Pca.fit(g, whole);
+		Pca streamed = Pca.fit(chunks, enc);
+		assertEquals(5000, streamed.count());
+		for (int k = 0; k < enc.cols(); k++) {
+			assertEquals(expected.eigenvalues().get(k), streamed.eigenvalues().get(k), 1e-3);
+		}
+	}
+}
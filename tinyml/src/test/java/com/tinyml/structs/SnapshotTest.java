@@ -0,0 +1,156 @@
+package com.tinyml.structs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class SnapshotTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException {
+		file = File.createTempFile("tinyml", ".bin");
+	}
+
+	@Override
+	protected void tearDown() {
+		file.delete();
+	}
+
+	public void testGrid() {
+		Grid g = new Grid();
+		for (int i = 0; i < 70000; i++) {
+			String num = (i % 10 == 0) ? "" : Integer.toString(i);
+			String real = (i % 3 == 0) ? Integer.toString(i % 100) : Float.toString(i * 0.25f);
+			g.add(Arrays.asList(num, real, "w" + (i % 17), ""));
+		}
+
+		Snapshot.write(g, file);
+		Grid s = Snapshot.grid(file);
+
+		assertEquals(g.rows(), s.rows());
+		assertEquals(g.cols(), s.cols());
+		for (int j = 0; j < g.cols(); j++) {
+			assertEquals(g.column(j).type(), s.column(j).type());
+			for (int i = 0; i < g.rows(); i++) {
+				assertEquals(g.get(i, j), s.get(i, j));
+			}
+		}
+
+		// appending copies the mapped data before changing it
+		s.add(Arrays.asList("1", "2.5", "new", "x"));
+		assertEquals("new", s.get(g.rows(), 2));
+		assertEquals(g.get(5, 0), s.get(5, 0));
+	}
+
+	public void testCorruptGrid() throws IOException {
+		Grid g = new Grid();
+		g.add(Arrays.asList("1", "a"));
+		g.add(Arrays.asList("2", "b"));
+		Snapshot.write(g, file);
+		long size = file.length();
+
+		// negative rows, a bad type, a negative dictionary size, a code out of the dictionary
+		assertCorrupt(8, -1);
+		assertCorrupt(64, 9);
+		assertCorrupt(64 + 48 + 4, -1);
+		long codes = readLong(64 + 48 + 16);
+		assertCorrupt(codes + 4, 2);
+
+		// an offset past the end, and a truncated file
+		Snapshot.write(g, file);
+		writeLong(64 + 48 + 32, size);
+		assertCorrupt();
+		Snapshot.write(g, file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(size - 8);
+		}
+		assertCorrupt();
+	}
+
+	private void assertCorrupt(long at, int val) throws IOException {
+		byte[] saved = new byte[4];
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(at);
+			raf.readFully(saved);
+		}
+		write(at, ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, val));
+		assertCorrupt();
+		write(at, ByteBuffer.wrap(saved));
+		assertEquals(2, Snapshot.grid(file).rows());
+	}
+
+	private void assertCorrupt() {
+		try {
+			Snapshot.grid(file);
+			fail();
+		} catch (IllegalDataException e) {
+			// expected
+		}
+	}
+
+	private long readLong(long at) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		try (FileChannel ch = new RandomAccessFile(file, "r").getChannel()) {
+			ch.read(buf, at);
+		}
+		return buf.getLong(0);
+	}
+
+	private void writeLong(long at, long val) throws IOException {
+		write(at, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, val));
+	}
+
+	private void write(long at, ByteBuffer buf) throws IOException {
+		try (FileChannel ch = new RandomAccessFile(file, "rw").getChannel()) {
+			ch.write(buf, at);
+		}
+	}
+
+	public void testMat() {
+		Mat a = new Mat(3, 4);
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 4; j++) {
+				a.set(i, j, i * 4 + j + 0.5f);
+			}
+		}
+
+		Snapshot.write(a, file);
+		Mat b = Snapshot.mat(file);
+
+		assertEquals(3, b.rows());
+		assertEquals(4, b.cols());
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(a.get(i, j), b.get(i, j));
+			}
+		}
+
+		// changes stay in memory
+		b.set(0, 0, 100);
+		assertEquals(0.5f, Snapshot.mat(file).get(0, 0));
+
+		Snapshot.write(a.transp(), file);
+		Mat t = Snapshot.mat(file);
+		assertEquals(4, t.rows());
+		assertEquals(a.get(2, 1), t.get(1, 2));
+	}
+
+	public void testVec() {
+		Vec v = new Vec(new float[] { 1, 2, 3.5f });
+
+		Snapshot.write(v, file);
+		Vec w = Snapshot.vec(file);
+
+		assertEquals(3, w.length());
+		assertEquals(3.5f, w.get(2));
+		assertEquals(v.dot(v), w.dot(w));
+	}
+}
@@ -0,0 +1,101 @@
+package com.tinyml.structs;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SparseMatTest extends TestCase {
+
+	/**
+	 * Dense matrix with about one value in ten.
+	 */
+	private static Mat sparseValues(int m, int n, long seed) {
+		Random rnd = new Random(seed);
+		float[] vals = new float[m * n];
+		for (int i = 0; i < vals.length; i++) {
+			if (rnd.nextInt(10) == 0) {
+				vals[i] = (float) rnd.nextGaussian();
+			}
+		}
+		return new Mat(m, n, vals);
+	}
+
+	private static void assertClose(Mat expected, Mat actual) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.cols(), actual.cols());
+		for (int i = 0; i < expected.rows(); i++) {
+			for (int j = 0; j < expected.cols(); j++) {
+				assertEquals(expected.get(i, j), actual.get(i, j), 1e-4);
+			}
+		}
+	}
+
+	public void testLayout() {
+		int[] ptr = { 0, 2, 2, 3 };
+		int[] cols = { 0, 3, 1 };
+		float[] vals = { 1f, 2f, 3f };
+		SparseMat s = new SparseMat(3, 4, ptr, cols, vals);
+
+		assertEquals(3, s.nnz());
+		assertEquals(2f, s.get(0, 3));
+		assertEquals(0f, s.get(1, 1));
+		assertEquals(3f, s.get(2, 1));
+
+		SparseMat t = s.transp();
+		assertEquals(4, t.rows());
+		assertEquals(3, t.cols());
+		assertEquals(2f, t.get(3, 0));
+		assertEquals(3f, t.get(1, 2));
+
+		try {
+			new SparseMat(1, 4, new int[] { 0, 2 }, new int[] { 3, 1 }, new float[] { 1f, 1f });
+			fail("Unsorted columns must be rejected.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testProducts() {
+		Mat a = sparseValues(300, 40, 1);
+		SparseMat s = SparseMat.of(a);
+		assertClose(a, s.toDense());
+
+		Mat b = Mat.rand(40, 5);
+		assertClose(a.dot(b), s.dot(b));
+
+		Mat c = Mat.rand(300, 5);
+		assertClose(a.transp().dot(c), s.transpDot(c));
+		SparseMat t = s.transp();
+		assertClose(a, t.transp().toDense());
+		for (int i = 0; i < 300; i += 7) {
+			for (int j = 0; j < 40; j++) {
+				assertEquals(a.get(i, j), t.get(j, i));
+			}
+		}
+
+		Vec x = Vec.rand(40);
+		Vec ax = a.dot(x);
+		Vec sx = s.dot(x);
+		for (int i = 0; i < 300; i++) {
+			assertEquals(ax.get(i), sx.get(i), 1e-4);
+		}
+
+		assertClose(a.transp().dot(a), s.gram());
+	}
+
+	public void testColumnStats() {
+		Mat a = sparseValues(500, 12, 2);
+		SparseMat s = SparseMat.of(a);
+
+		Vec mean = a.colMean();
+		Vec var = a.colVar();
+		Vec smean = s.colMean();
+		Vec svar = s.colVar();
+		Vec ssum = s.colSum();
+		for (int j = 0; j < 12; j++) {
+			assertEquals(mean.get(j), smean.get(j), 1e-5);
+			assertEquals(var.get(j), svar.get(j), 1e-4);
+			assertEquals(mean.get(j) * 500, ssum.get(j), 1e-3);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.tinyml.structs;
+
+import java.util.Random;
+
+import org.nd4j.linalg.eigen.Eigen;
+
+import junit.framework.TestCase;
+
+public class SvdTest extends TestCase {
+
+	/**
+	 * Rows near a subspace of the given rank, with decaying scales, noise and an
+	 * offset.
+	 */
+	private static Mat lowRank(int m, int n, int rank, float offset, long seed) {
+		Random rnd = new Random(seed);
+
+		float[] left = new float[m * rank];
+		for (int i = 0; i < left.length; i++) {
+			left[i] = (float) (rnd.nextGaussian() * 10 / (1 + i % rank));
+		}
+		float[] right = new float[rank * n];
+		for (int i = 0; i < right.length; i++) {
+			right[i] = (float) rnd.nextGaussian();
+		}
+
+		float[] vals = new Mat(m, rank, left).dot(new Mat(rank, n, right)).toFloatArray();
+		for (int i = 0; i < vals.length; i++) {
+			vals[i] += offset + (float) rnd.nextGaussian() * 0.01f;
+		}
+		return new Mat(m, n, vals);
+	}
+
+	/**
+	 * All the eigenvalues of the symmetric matrix, in decreasing order.
+	 */
+	private static float[] eigenvalues(Mat sym) {
+		float[] asc = Vec.wrap(Eigen.symmetricGeneralizedEigenvalues(sym.clone().ptr())).toArray();
+		float[] ans = new float[asc.length];
+		for (int i = 0; i < asc.length; i++) {
+			ans[i] = asc[asc.length - 1 - i];
+		}
+		return ans;
+	}
+
+	public void testTopValues() {
+		int m = 600;
+		int n = 80;
+		int k = 5;
+		Mat a = lowRank(m, n, 8, 0f, 1);
+
+		Svd svd = Svd.randomized(a, k);
+		float[] expected = eigenvalues(a.gram());
+
+		Vec s = svd.values();
+		assertEquals(k, s.length());
+		for (int i = 0; i < k; i++) {
+			double e = Math.sqrt(expected[i]);
+			assertEquals(e, s.get(i), 1e-3 * e);
+		}
+
+		// a v = s u, with orthonormal columns
+		Mat av = a.dot(svd.v());
+		Mat u = svd.u();
+		for (int c = 0; c < k; c++) {
+			for (int i = 0; i < m; i += 37) {
+				assertEquals(s.get(c) * u.get(i, c), av.get(i, c), 1e-3 * s.get(0));
+			}
+		}
+		Mat utu = u.transp().dot(u);
+		Mat vtv = svd.v().transp().dot(svd.v());
+		for (int i = 0; i < k; i++) {
+			for (int j = 0; j < k; j++) {
+				assertEquals(i == j ? 1.0 : 0.0, utu.get(i, j), 1e-4);
+				assertEquals(i == j ? 1.0 : 0.0, vtv.get(i, j), 1e-3);
+			}
+		}
+	}
+
+	public void testCentered() {
+		int m = 1000;
+		int n = 40;
+		int k = 4;
+		Mat a = lowRank(m, n, 6, 50f, 2);
+
+		Svd svd = Svd.randomized(a, k, 8, 3, true, 7L);
+
+		Pca pca = new Pca(n);
+		pca.add(a);
+		pca.fit();
+
+		for (int i = 0; i < k; i++) {
+			double var = pca.eigenvalues().get(i);
+			double s = svd.values().get(i);
+			assertEquals(var, s * s / (m - 1), 2e-3 * var);
+
+			// the same direction, up to the sign
+			double dot = svd.v().col(i).dot(pca.eigenvectors().col(i));
+			assertEquals(1.0, Math.abs(dot), 1e-3);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.tinyml.structs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class WordCountTest extends TestCase {
+
+	public void testSortedIndex() {
+		WordCount wc = new WordCount();
+		for (String w : Arrays.asList("pear", "apple", "fig", "apple", "pear", "apple")) {
+			wc.add(w);
+		}
+
+		assertEquals(6, wc.count());
+		assertEquals(3, wc.diff());
+		assertEquals(3, wc.count("apple"));
+		assertEquals(0, wc.count("plum"));
+
+		assertEquals(0, wc.wordIdx("apple"));
+		assertEquals(1, wc.wordIdx("fig"));
+		assertEquals(2, wc.wordIdx("pear"));
+		assertEquals(-1, wc.wordIdx("plum"));
+		assertEquals(-1, wc.wordIdx(null));
+		assertEquals("fig", wc.word(1));
+
+		// adding a word moves the ones after it
+		wc.add("banana");
+		assertEquals(1, wc.wordIdx("banana"));
+		assertEquals(3, wc.wordIdx("pear"));
+	}
+
+	public void testMapGrows() {
+		StringIntMap map = new StringIntMap();
+		Random rnd = new Random(7);
+		int[] vals = new int[5000];
+		for (int i = 0; i < vals.length; i++) {
+			vals[i] = rnd.nextInt();
+			assertEquals(-1, map.put("k" + i, vals[i], -1));
+		}
+
+		assertEquals(vals.length, map.size());
+		assertEquals(vals.length, map.keys().length);
+		for (int i = 0; i < vals.length; i++) {
+			// equal strings that are not the same instance
+			assertEquals(vals[i], map.get(new String("k" + i), -1));
+		}
+		assertEquals(-1, map.get("k-1", -1));
+
+		assertEquals(vals[3], map.put("k3", 1, -1));
+		assertEquals(4, map.addTo("k3", 3));
+		assertEquals(4, map.putIfAbsent("k3", 9));
+		assertEquals(2, map.addTo("new", 2));
+	}
+
+	public void testGridEncoding() {
+		Grid g = new Grid();
+		String[] words = { "b", "c", "a", "c" };
+		for (String w : words) {
+			g.add(Arrays.asList(w));
+		}
+
+		WordCount wc = g.countWords(0);
+		assertEquals(2, wc.count("c"));
+
+		Mat m = g.toMatrix();
+		assertEquals(3, m.cols());
+		for (int i = 0; i < words.length; i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals(wc.wordIdx(words[i]) == j ? 1f : 0f, m.get(i, j));
+			}
+		}
+	}
+
+	public void testMergeAndTop() {
+		WordCount a = new WordCount();
+		WordCount b = new WordCount();
+		a.add("pear", 3);
+		a.add("fig", 1);
+		b.add("apple", 3);
+		b.add("pear", 2);
+		b.add("plum", 1);
+
+		a.merge(b);
+		assertEquals(10, a.count());
+		assertEquals(4, a.diff());
+		assertEquals(5, a.count("pear"));
+		assertEquals(2, a.wordIdx("pear"));
+
+		assertEquals(Arrays.asList("pear", "apple", "fig"), Arrays.asList(a.top(3)));
+		assertEquals(4, a.top(10).length);
+		assertEquals(0, a.top(0).length);
+		assertEquals(Arrays.asList("pear"), Arrays.asList(a.heavyHitters(0.4)));
+		assertEquals(Arrays.asList("pear", "apple"), Arrays.asList(a.heavyHitters(0.2)));
+	}
+
+	public void testTopMatchesSort() {
+		Random rnd = new Random(3);
+		WordCount wc = new WordCount();
+		for (int i = 0; i < 20000; i++) {
+			wc.add("w" + (int) Math.abs(rnd.nextGaussian() * 300));
+		}
+
+		String[] words = new String[wc.diff()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = wc.word(i);
+		}
+		final WordCount counts = wc;
+		Arrays.sort(words, new java.util.Comparator<String>() {
+			@Override
+			public int compare(String x, String y) {
+				return Integer.compare(counts.count(y), counts.count(x));
+			}
+		});
+
+		assertEquals(Arrays.asList(Arrays.copyOf(words, 25)), Arrays.asList(wc.top(25)));
+	}
+
+	public void testShardedCount() {
+		Random rnd = new Random(11);
+		Grid g = new Grid();
+		for (int i = 0; i < 5000; i++) {
+			String w = rnd.nextInt(10) == 0 ? "" : "c" + rnd.nextInt(40);
+			g.add(Arrays.asList(w, Integer.toString(rnd.nextInt(7)), "x" + rnd.nextInt(3)));
+		}
+		// column 1 holds numbers, which are counted as words too
+		int[] cols = { 0, 1, 2 };
+
+		WordCount[] whole = WordCounter.count(g, cols, g.rows());
+		WordCount[] sharded = WordCounter.count(g, cols, 700);
+		for (int k = 0; k < cols.length; k++) {
+			assertEquals(whole[k].count(), sharded[k].count());
+			assertEquals(whole[k].diff(), sharded[k].diff());
+			for (int i = 0; i < whole[k].diff(); i++) {
+				String w = whole[k].word(i);
+				assertEquals(whole[k].count(w), sharded[k].count(w));
+			}
+		}
+		assertEquals(g.rows(), whole[1].count());
+		assertTrue(whole[0].count() < g.rows());
+		assertEquals(0, whole[0].count(""));
+
+		WordCount[] all = g.countWords();
+		assertNotNull(all[0]);
+		assertNull(all[1]);
+		assertEquals(whole[2].count("x1"), all[2].count("x1"));
+	}
+}